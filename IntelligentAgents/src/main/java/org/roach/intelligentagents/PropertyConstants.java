@@ -10,22 +10,12 @@ public class PropertyConstants {
     }
 
     /**
-     * property fired when an agent is created
-     */
-    @NonNull
-    public static final String NEW_AGENT = "new_agent";
-    /**
-     * property fired when an agent sends a message
+     * property fired by a watched agent when it sends a message
      */
     @NonNull
     public static final String SEND_MESSAGE = "send_message";
     /**
-     * property fired telling an agent to prepare to act
-     */
-    @NonNull
-    public static final String PREPARE_TO_ACT = "prepare_to_act";
-    /**
-     * property fired to update the grid
+     * property fired by a watched agent when it moves
      */
     @NonNull
     public static final String UPDATE_GRID = "update_grid";
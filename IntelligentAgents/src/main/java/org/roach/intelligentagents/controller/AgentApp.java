@@ -10,6 +10,8 @@ package org.roach.intelligentagents.controller;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.engine.SequentialTickEngine;
+import org.roach.intelligentagents.model.engine.TickEngine;
 import org.roach.intelligentagents.model.strategy.AgentStrategy;
 
 /**
@@ -35,6 +37,18 @@ public final class AgentApp {
 
     public void setSimgrid(SimulationGrid simgrid) { this.simgrid = simgrid; }
 
+    /** Schedules the agents' actions each tick. */
+    @NonNull
+    private TickEngine engine = new SequentialTickEngine();
+
+    public void setEngine(@NonNull TickEngine engine) { this.engine = engine; }
+
+    /**
+     * @return the engine that advances the agents each tick
+     */
+    @NonNull
+    public TickEngine getEngine() { return engine; }
+
     /**
      * @return % finished
      */
@@ -1,9 +1,26 @@
 package org.roach.intelligentagents.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.jdt.annotation.Nullable;
 import org.roach.intelligentagents.AgentAppOpts;
 import org.roach.intelligentagents.model.AgentFactory;
 import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.checkpoint.Checkpoint;
+import org.roach.intelligentagents.model.engine.ArrayTickEngine;
+import org.roach.intelligentagents.model.engine.MeteredTickEngine;
+import org.roach.intelligentagents.model.engine.RecordingTickEngine;
+import org.roach.intelligentagents.model.engine.ReplayTickEngine;
+import org.roach.intelligentagents.model.engine.TickEngine;
+import org.roach.intelligentagents.model.jfr.SimEvents;
+import org.roach.intelligentagents.model.metrics.SimMetrics;
 import org.roach.intelligentagents.model.strategy.AgentStrategy;
+import org.roach.intelligentagents.model.trace.ReplayStrategy;
+import org.roach.intelligentagents.model.trace.TraceRecorder;
+import org.roach.intelligentagents.view.AAnimator;
 import org.roach.intelligentagents.view.swing.GUI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +55,52 @@ public class SpringMain {
     @Value("${numAgents:15}")
     private int numAgents;
 
+    @Value("${bucketSize:0}")
+    private int bucketSize;
+
+    @Value("${engine:sequential}")
+    private String engine;
+
+    @Value("${threads:0}")
+    private int threads;
+
+    @Value("${seed:}")
+    private String seed;
+
+    @Value("${fps:30}")
+    private int fps;
+
+    @Value("${ticksPerSecond:0}")
+    private double ticksPerSecond;
+
+    @Value("${metrics:false}")
+    private boolean metrics;
+
+    @Value("${metricsFile:}")
+    private String metricsFile;
+
+    @Value("${jfrFile:}")
+    private String jfrFile;
+
+    @Value("${checkpointFile:}")
+    private String checkpointFile;
+
+    @Value("${checkpointEvery:1000}")
+    private int checkpointEvery;
+
+    @Value("${restore:false}")
+    private boolean restore;
+
+    @Value("${traceFile:}")
+    private String traceFile;
+
+    @Value("${replayFile:}")
+    private String replayFile;
+
+    /** The replay of replayFile, once opened. */
+    @Nullable
+    private ReplayTickEngine replay;
+
     /**
      * @param args command-line arguments
      */
@@ -65,35 +128,174 @@ public class SpringMain {
      */
     @Bean
     public AgentApp agentApp() {
+        if (!jfrFile.isBlank())
+            startFlightRecording(Path.of(jfrFile.trim()));
         AgentApp agentApp = new AgentApp();
         agentApp.setPercentFinished(percentFinished);
-        agentApp.setStrategyType(strategyClass());
+        agentApp.setStrategyType(replayFile.isBlank() ? strategyClass() : ReplayStrategy.class);
         agentApp.setSimgrid(simGrid());
+        agentApp.setEngine(tickEngine());
         return agentApp;
     }
 
+    /**
+     * Records the run, simulation events included, to a file written when the
+     * program exits. The run goes on unrecorded if the recording cannot start.
+     */
+    private static void startFlightRecording(Path file) {
+        try {
+            SimEvents.startRecording(file);
+        } catch (IOException | IllegalStateException | SecurityException e) {
+            LOGGER.atError().setCause(e).setMessage("Unable to record to {}").addArgument(file).log();
+        }
+    }
+
+    /**
+     * @return the engine that advances the agents each tick
+     */
+    @Bean
+    public TickEngine tickEngine() {
+        if (!replayFile.isBlank())
+            return replay();
+        if (ArrayTickEngine.NAME.equals(engine)) {
+            AgentAppOpts opts = options();
+            return metered(ArrayTickEngine.populate(simGrid(), numAgents, opts.commDist, opts.commTime));
+        }
+        return traced(metered(TickEngine.forName(engine, threads)));
+    }
+
+    /**
+     * @return the engine, timed per tick if metrics are on
+     */
+    private TickEngine metered(TickEngine tickEngine) {
+        return simGrid().getMetrics() != null ? new MeteredTickEngine(tickEngine) : tickEngine;
+    }
+
+    /**
+     * @return the engine, recording every tick to traceFile if it is set; the
+     *         run goes on unrecorded if the trace cannot be started
+     */
+    private TickEngine traced(TickEngine tickEngine) {
+        if (traceFile.isBlank())
+            return tickEngine;
+        Path file = Path.of(traceFile.trim());
+        try {
+            return new RecordingTickEngine(tickEngine, simGrid(),
+                    new TraceRecorder(file, simGrid(), AAnimator.getTime()));
+        } catch (IOException e) {
+            LOGGER.atError().setCause(e).setMessage("Unable to record a trace to {}").addArgument(file).log();
+            return tickEngine;
+        }
+    }
+
+    /**
+     * @return the replay of replayFile, which the program cannot run without
+     */
+    private ReplayTickEngine replay() {
+        ReplayTickEngine r = replay;
+        if (r == null) {
+            Path file = Path.of(replayFile.trim());
+            try {
+                r = ReplayTickEngine.open(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to replay " + file, e);
+            }
+            AAnimator.setTime(r.getStartTick());
+            replay = r;
+        }
+        return r;
+    }
+
     /**
      * @return the simulation grid
      */
     @Bean
     public SimulationGrid simGrid() {
-        SimulationGrid simGrid = new SimulationGrid(gridSize, numTasks);
+        if (!replayFile.isBlank())
+            return replay().getSimGrid();
+        SimulationGrid restored = restoredGrid();
+        if (restored != null)
+            return restored;
+        SimulationGrid simGrid = seed.isBlank() ? new SimulationGrid(gridSize, numTasks, bucketSize)
+                : new SimulationGrid(gridSize, numTasks, bucketSize, Long.parseLong(seed.trim()));
         simGrid.initTaskGrid();
+        if (metrics || !metricsFile.isBlank())
+            simGrid.setMetrics(simMetrics());
+        if (ArrayTickEngine.NAME.equals(engine))
+            return simGrid; // The array engine keeps its own agents
         AgentFactory agentFactory = agentFactory();
         agentFactory.setSimGrid(simGrid);
         simGrid.setAgents(agentFactory.build());
         return simGrid;
     }
 
+    /**
+     * @return the grid saved in checkpointFile if restore is set and the file
+     *         exists, or null to start a new run
+     */
+    @Nullable
+    private SimulationGrid restoredGrid() {
+        Path file = checkpointPath();
+        if (!restore || file == null || !Files.exists(file))
+            return null;
+        try {
+            Checkpoint checkpoint = Checkpoint.read(file, metrics || !metricsFile.isBlank() ? simMetrics() : null);
+            AAnimator.setTime(checkpoint.time());
+            LOGGER.atInfo().setMessage("Restored {} at tick {}").addArgument(file).addArgument(checkpoint.time())
+                    .log();
+            return checkpoint.simGrid();
+        } catch (IOException e) {
+            LOGGER.atError().setCause(e).setMessage("Unable to restore {}; starting a new run").addArgument(file)
+                    .log();
+            return null;
+        }
+    }
+
+    /**
+     * @return where checkpoints are written, or null if they are off; agents of
+     *         the array engine cannot be checkpointed
+     */
+    @Nullable
+    private Path checkpointPath() {
+        if (checkpointFile.isBlank() || ArrayTickEngine.NAME.equals(engine))
+            return null;
+        return Path.of(checkpointFile.trim());
+    }
+
+    /**
+     * @return the metrics of the run, written to metricsFile when the program
+     *         exits if it is set
+     */
+    @Bean
+    public SimMetrics simMetrics() {
+        SimMetrics simMetrics = new SimMetrics();
+        if (!metricsFile.isBlank()) {
+            Path file = Path.of(metricsFile.trim());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    simMetrics.dump(file);
+                } catch (IOException e) {
+                    LOGGER.atError().setCause(e).setMessage("Unable to write metrics to {}").addArgument(file).log();
+                }
+            }, "MetricsDump"));
+        }
+        return simMetrics;
+    }
+
     /**
      * @return the UI
      */
     @Bean
     public GUI gui() {
         AgentApp agentApp = agentApp();
-        GUI gui = new GUI(agentApp, 3, gridSize, false);
+        GUI gui = new GUI(agentApp, 3, agentApp.getSimgrid().getGridSize(), false);
         gui.setShowGraphics(true);
         gui.setShowHelperGraphics(true);
+        gui.setFramesPerSecond(fps);
+        gui.setTicksPerSecond(ticksPerSecond);
+        Path checkpoint = checkpointPath();
+        if (checkpoint != null)
+            gui.setCheckpoint(checkpoint, checkpointEvery);
         agentApp.getSimgrid().addPropertyChangeListener(gui);
         return gui;
     }
@@ -0,0 +1,107 @@
+package org.roach.intelligentagents.controller.batch;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+/**
+ * Command-line options of the {@link BatchRunner}. Every list option is one
+ * dimension of the sweep and takes comma-separated values.
+ *
+ * @author Larry S. Roach
+ */
+@Parameters
+public class BatchOpts {
+
+    /**
+     * strategies to compare
+     */
+    @Parameter(names = {
+            "--strategies" }, description = "Strategy classes; simple names are looked up in the strategy package")
+    public List<String> strategies = List.of("MailboxStrategy", "PrioritizingStrategy", "FinderDoerStrategy",
+            "SearchStrategy");
+
+    /**
+     * grid sizes
+     */
+    @Parameter(names = { "--gridSizes" }, description = "Grid sizes")
+    public List<Integer> gridSizes = List.of(100);
+
+    /**
+     * agent counts
+     */
+    @Parameter(names = { "--numAgents" }, description = "Numbers of agents")
+    public List<Integer> numAgents = List.of(100);
+
+    /**
+     * task counts
+     */
+    @Parameter(names = { "--numTasks" }, description = "Numbers of tasks")
+    public List<Integer> numTasks = List.of(500);
+
+    /**
+     * communications distances
+     */
+    @Parameter(names = { "--commDists" }, description = "Communications distances")
+    public List<Integer> commDists = List.of(12);
+
+    /**
+     * seeds
+     */
+    @Parameter(names = { "--seeds" }, description = "Seeds; every combination is run once per seed")
+    public List<Long> seeds = List.of(1L);
+
+    /**
+     * communications time
+     */
+    @Parameter(names = {
+            "--commTime" }, description = "Number of ticks an agent broadcasts before turning the receiver off")
+    public int commTime = 6;
+
+    /**
+     * percentage of tasks that ends a run
+     */
+    @Parameter(names = { "--percentFinished" }, description = "Percentage of tasks that must be complete to end a run")
+    public int percentFinished = 95;
+
+    /**
+     * tick limit
+     */
+    @Parameter(names = { "--maxTicks" }, description = "Ticks after which an unfinished run gives up")
+    public int maxTicks = 1_000_000;
+
+    /**
+     * bucket size
+     */
+    @Parameter(names = { "--bucketSize" }, description = "Side of the coarse query buckets; 0 disables them")
+    public int bucketSize = 12;
+
+    /**
+     * worker threads
+     */
+    @Parameter(names = { "--threads" }, description = "Runs to execute at once; 0 uses one per core")
+    public int threads = 0;
+
+    /**
+     * warm-up runs
+     */
+    @Parameter(names = {
+            "--warmup" }, description = "Unrecorded runs of the first configuration made before the sweep")
+    public int warmup = 1;
+
+    /**
+     * output format
+     */
+    @Parameter(names = { "--format" }, description = "Output format: csv or jsonl")
+    public String format = "csv";
+
+    /**
+     * output file
+     */
+    @Nullable
+    @Parameter(names = { "--out" }, description = "File to write results to; standard output if absent")
+    public String out;
+}
@@ -0,0 +1,179 @@
+package org.roach.intelligentagents.controller.batch;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.AgentFactory;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.engine.SequentialTickEngine;
+import org.roach.intelligentagents.model.engine.TickEngine;
+import org.roach.intelligentagents.model.jfr.SimEvents;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.JCommander;
+
+/**
+ * Runs a sweep of simulations without a GUI and records how many ticks each
+ * took to complete. Unlike the console animator, which ends the JVM after a
+ * single simulation, the runner executes every combination of the sweep in one
+ * JVM, several at a time, so that later runs reuse code the JIT has already
+ * compiled. Each simulation is independent and runs on one thread with the
+ * sequential engine; parallelism comes from running simulations side by side.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * java -cp IntelligentAgents.jar org.roach.intelligentagents.controller.batch.BatchRunner \
+ *     --strategies MailboxStrategy,SearchStrategy --numAgents 100,500 --seeds 1,2,3 --out results.csv
+ * </pre>
+ *
+ * @author Larry S. Roach
+ */
+public class BatchRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchRunner.class);
+
+    @NonNull
+    private final BatchOpts opts;
+
+    /**
+     * @param opts The sweep and how to run it
+     */
+    public BatchRunner(@NonNull final BatchOpts opts) {
+        this.opts = opts;
+    }
+
+    /**
+     * @param args command-line arguments, see {@link BatchOpts}
+     * @throws IOException          if the results cannot be written
+     * @throws InterruptedException if interrupted while waiting for runs
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        BatchOpts opts = new BatchOpts();
+        JCommander.newBuilder().addObject(opts).build().parse(args);
+        BatchRunner runner = new BatchRunner(opts);
+        if (opts.out == null) {
+            PrintWriter out = new PrintWriter(System.out, true);
+            runner.runAll(out);
+            out.flush();
+        } else {
+            try (PrintWriter out = new PrintWriter(new FileWriter(opts.out), true)) {
+                runner.runAll(out);
+            }
+        }
+    }
+
+    /**
+     * @return every run of the sweep, in sweep order
+     */
+    @NonNull
+    public List<RunConfig> sweep() {
+        List<Class<? extends AgentStrategy>> strategyTypes = new ArrayList<>();
+        for (String name : opts.strategies)
+            strategyTypes.add(strategyClass(name));
+        return RunConfig.sweep(strategyTypes, opts.gridSizes, opts.numAgents, opts.numTasks, opts.commDists,
+                opts.seeds);
+    }
+
+    /**
+     * Runs the whole sweep and writes one line per run, in the order the runs
+     * finish. Runs that fail are logged and left out.
+     *
+     * @param out Where to write the results
+     * @throws InterruptedException if interrupted while waiting for runs
+     */
+    public void runAll(@NonNull final PrintWriter out) throws InterruptedException {
+        List<RunConfig> runs = sweep();
+        boolean json = "jsonl".equalsIgnoreCase(opts.format);
+        if (!json && !"csv".equalsIgnoreCase(opts.format))
+            throw new IllegalArgumentException("Unknown format: " + opts.format);
+        if (runs.isEmpty())
+            return;
+        for (int i = 0; i < opts.warmup; i++)
+            run(-1, runs.get(0));
+        if (!json)
+            out.println(RunResult.CSV_HEADER);
+        int threads = Math.min(runs.size(),
+                opts.threads > 0 ? opts.threads : Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CompletionService<RunResult> done = new ExecutorCompletionService<>(pool);
+            for (int i = 0; i < runs.size(); i++) {
+                int index = i;
+                done.submit(() -> run(index, runs.get(index)));
+            }
+            for (int i = 0; i < runs.size(); i++) {
+                try {
+                    RunResult result = done.take().get();
+                    out.println(json ? result.toJson() : result.toCsv());
+                } catch (ExecutionException e) {
+                    LOGGER.atError().setCause(e.getCause()).setMessage("Run failed").log();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs one simulation until the required share of its tasks is complete or
+     * it reaches the tick limit.
+     *
+     * @param index  Position of the run in the sweep
+     * @param config The parameters of the run
+     * @return The outcome
+     */
+    @NonNull
+    public RunResult run(final int index, @NonNull final RunConfig config) {
+        long start = System.nanoTime();
+        SimulationGrid simGrid = new SimulationGrid(config.gridSize(), config.numTasks(), opts.bucketSize,
+                config.seed());
+        simGrid.initTaskGrid();
+        AgentAppOpts agentOpts = new AgentAppOpts();
+        agentOpts.commDist = config.commDist();
+        agentOpts.commTime = opts.commTime;
+        AgentFactory factory = new AgentFactory();
+        factory.setSimGrid(simGrid);
+        factory.setNumAgents(config.numAgents());
+        factory.setOptions(agentOpts);
+        factory.setStrategyType(config.strategyType());
+        simGrid.setAgents(factory.build());
+
+        TickEngine engine = new SequentialTickEngine();
+        float goal = config.numTasks() * (float) opts.percentFinished / 100.0f;
+        int ticks = 0;
+        boolean completed = simGrid.getNumTasksComplete() >= goal;
+        while (!completed && ticks < opts.maxTicks) {
+            SimEvents.tick(engine, simGrid, ticks);
+            ticks++;
+            completed = simGrid.getNumTasksComplete() >= goal;
+        }
+        return new RunResult(index, config, ticks, completed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @param name A strategy class name, or the simple name of a class in the
+     *             strategy package
+     * @return the strategy class
+     */
+    @NonNull
+    static Class<? extends AgentStrategy> strategyClass(@NonNull final String name) {
+        String className = name.indexOf('.') < 0 ? AgentStrategy.class.getPackageName() + "." + name : name;
+        try {
+            return Class.forName(className).asSubclass(AgentStrategy.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("Unknown strategy: " + name, e);
+        }
+    }
+}
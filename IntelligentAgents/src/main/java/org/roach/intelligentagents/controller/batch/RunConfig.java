@@ -0,0 +1,55 @@
+package org.roach.intelligentagents.controller.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+
+/**
+ * The parameters of one simulation in a batch.
+ *
+ * @param strategyType The strategy of every agent
+ * @param gridSize     The width and height of the grid
+ * @param numAgents    The number of agents
+ * @param numTasks     The number of tasks
+ * @param commDist     Communications distance
+ * @param seed         The seed of the run
+ *
+ * @author Larry S. Roach
+ */
+public record RunConfig(@NonNull Class<? extends AgentStrategy> strategyType, int gridSize, int numAgents,
+        int numTasks, int commDist, long seed) {
+
+    /**
+     * Expands a sweep into every combination of its values, varying the last
+     * dimension fastest.
+     *
+     * @param strategyTypes Strategies to run
+     * @param gridSizes     Grid sizes to run
+     * @param numAgents     Agent counts to run
+     * @param numTasks      Task counts to run
+     * @param commDists     Communications distances to run
+     * @param seeds         Seeds to run each combination with
+     * @return The runs of the sweep
+     */
+    @NonNull
+    public static List<RunConfig> sweep(@NonNull final List<Class<? extends AgentStrategy>> strategyTypes,
+            @NonNull final List<Integer> gridSizes, @NonNull final List<Integer> numAgents,
+            @NonNull final List<Integer> numTasks, @NonNull final List<Integer> commDists,
+            @NonNull final List<Long> seeds) {
+        List<RunConfig> runs = new ArrayList<>();
+        for (Class<? extends AgentStrategy> strategyType : strategyTypes)
+            for (int gridSize : gridSizes)
+                for (int agents : numAgents)
+                    for (int tasks : numTasks) {
+                        if (tasks > gridSize * gridSize)
+                            throw new IllegalArgumentException(
+                                    tasks + " tasks do not fit on a grid of size " + gridSize);
+                        for (int commDist : commDists)
+                            for (long seed : seeds)
+                                runs.add(new RunConfig(strategyType, gridSize, agents, tasks, commDist, seed));
+                    }
+        return runs;
+    }
+}
@@ -0,0 +1,43 @@
+package org.roach.intelligentagents.controller.batch;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * The outcome of one simulation in a batch.
+ *
+ * @param run       Position of the run in the sweep
+ * @param config    The parameters of the run
+ * @param ticks     Ticks until the run finished or gave up
+ * @param completed True if the required share of tasks was completed
+ * @param millis    Wall-clock time of the run
+ *
+ * @author Larry S. Roach
+ */
+public record RunResult(int run, @NonNull RunConfig config, int ticks, boolean completed, long millis) {
+
+    /** Header line matching {@link #toCsv()}. */
+    @NonNull
+    public static final String CSV_HEADER = "run,strategy,gridSize,numAgents,numTasks,commDist,seed,ticks,completed,"
+            + "millis";
+
+    /**
+     * @return the result as one CSV line, without a line terminator
+     */
+    @NonNull
+    public String toCsv() {
+        return run + "," + config.strategyType().getSimpleName() + "," + config.gridSize() + "," + config.numAgents()
+                + "," + config.numTasks() + "," + config.commDist() + "," + config.seed() + "," + ticks + ","
+                + completed + "," + millis;
+    }
+
+    /**
+     * @return the result as one JSON object, without a line terminator
+     */
+    @NonNull
+    public String toJson() {
+        return "{\"run\":" + run + ",\"strategy\":\"" + config.strategyType().getSimpleName() + "\",\"gridSize\":"
+                + config.gridSize() + ",\"numAgents\":" + config.numAgents() + ",\"numTasks\":" + config.numTasks()
+                + ",\"commDist\":" + config.commDist() + ",\"seed\":" + config.seed() + ",\"ticks\":" + ticks
+                + ",\"completed\":" + completed + ",\"millis\":" + millis + "}";
+    }
+}
@@ -0,0 +1,138 @@
+package org.roach.intelligentagents.controller.partition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.partition.PartitionedRun;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+/**
+ * Command-line options of the {@link PartitionedRunner}. Workers get the same
+ * options as the runner, plus the region they run.
+ *
+ * @author Larry S. Roach
+ */
+@Parameters
+public class PartitionOpts {
+
+    /**
+     * grid size
+     */
+    @Parameter(names = { "--gridSize" }, description = "Width and height of the whole grid")
+    public int gridSize = 1000;
+
+    /**
+     * regions along x
+     */
+    @Parameter(names = { "--columns" }, description = "Number of regions along x")
+    public int columns = 2;
+
+    /**
+     * regions along y
+     */
+    @Parameter(names = { "--rows" }, description = "Number of regions along y")
+    public int rows = 2;
+
+    /**
+     * agent count
+     */
+    @Parameter(names = { "--numAgents" }, description = "Number of agents on the whole grid")
+    public int numAgents = 10_000;
+
+    /**
+     * task count
+     */
+    @Parameter(names = { "--numTasks" }, description = "Number of tasks on the whole grid")
+    public int numTasks = 50_000;
+
+    /**
+     * communications distance
+     */
+    @Parameter(names = { "--commDist" }, description = "Communications distance")
+    public int commDist = 12;
+
+    /**
+     * communications time
+     */
+    @Parameter(names = { "--commTime" }, description = "Number of broadcasts each agent may make")
+    public int commTime = 6;
+
+    /**
+     * bucket size
+     */
+    @Parameter(names = { "--bucketSize" }, description = "Side of the coarse query buckets; 0 disables them")
+    public int bucketSize = 12;
+
+    /**
+     * seed
+     */
+    @Parameter(names = { "--seed" }, description = "Seed of every random choice in the run")
+    public long seed = 1L;
+
+    /**
+     * percentage of tasks that ends a run
+     */
+    @Parameter(names = {
+            "--percentFinished" }, description = "Percentage of tasks that must be complete to end the run")
+    public int percentFinished = 95;
+
+    /**
+     * tick limit
+     */
+    @Parameter(names = { "--maxTicks" }, description = "Ticks after which an unfinished run gives up")
+    public int maxTicks = 1_000_000;
+
+    /**
+     * socket directory
+     */
+    @Nullable
+    @Parameter(names = { "--dir" }, description = "Directory for the sockets; a new temporary one if absent")
+    public String dir;
+
+    /**
+     * workers as threads
+     */
+    @Parameter(names = {
+            "--inProcess" }, description = "Run the regions on threads of this JVM instead of one JVM each")
+    public boolean inProcess;
+
+    /**
+     * worker heap
+     */
+    @Nullable
+    @Parameter(names = { "--workerHeap" }, description = "Maximum heap of each worker JVM, as for -Xmx")
+    public String workerHeap;
+
+    /**
+     * the region a worker runs
+     */
+    @Parameter(names = {
+            "--region" }, description = "Region to run; set by the runner on the JVMs it starts", hidden = true)
+    public int region = -1;
+
+    /**
+     * @return the run these options describe
+     */
+    @NonNull
+    public PartitionedRun run() {
+        return new PartitionedRun(gridSize, columns, rows, numAgents, numTasks, commDist, commTime, bucketSize, seed);
+    }
+
+    /**
+     * @param workerRegion The region the worker is to run
+     * @param socketDir    The directory of the sockets
+     * @return the command-line arguments of a worker JVM
+     */
+    @NonNull
+    List<String> workerArgs(final int workerRegion, @NonNull final String socketDir) {
+        List<String> args = new ArrayList<>(List.of("--gridSize", "" + gridSize, "--columns", "" + columns, "--rows",
+                "" + rows, "--numAgents", "" + numAgents, "--numTasks", "" + numTasks, "--commDist", "" + commDist,
+                "--commTime", "" + commTime, "--bucketSize", "" + bucketSize, "--seed", "" + seed));
+        args.addAll(List.of("--dir", socketDir, "--region", "" + workerRegion));
+        return args;
+    }
+}
@@ -0,0 +1,33 @@
+package org.roach.intelligentagents.controller.partition;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * The outcome of a partitioned run.
+ *
+ * @param regions           The number of regions
+ * @param ticks             Ticks until the run finished or gave up
+ * @param completed         True if the required share of tasks was completed
+ * @param tasksComplete     The number of tasks complete at the end
+ * @param migrations        The number of times an agent moved to another
+ *                          region
+ * @param relayedBroadcasts The number of broadcasts passed to another region,
+ *                          once per region
+ * @param millis            Wall-clock time of the run, from starting the
+ *                          workers to the last tick
+ *
+ * @author Larry S. Roach
+ */
+public record PartitionResult(int regions, int ticks, boolean completed, int tasksComplete, long migrations,
+        long relayedBroadcasts, long millis) {
+
+    /**
+     * @return the result as one JSON object, without a line terminator
+     */
+    @NonNull
+    public String toJson() {
+        return "{\"regions\":" + regions + ",\"ticks\":" + ticks + ",\"completed\":" + completed
+                + ",\"tasksComplete\":" + tasksComplete + ",\"migrations\":" + migrations + ",\"relayedBroadcasts\":"
+                + relayedBroadcasts + ",\"millis\":" + millis + "}";
+    }
+}
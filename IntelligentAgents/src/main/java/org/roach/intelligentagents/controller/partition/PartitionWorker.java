@@ -0,0 +1,145 @@
+package org.roach.intelligentagents.controller.partition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.partition.PartitionedRun;
+import org.roach.intelligentagents.model.partition.RegionTickEngine;
+
+/**
+ * Runs one region of a partitioned run for the {@link PartitionedRunner}, in
+ * a JVM of its own or on a thread of the runner's. The worker listens on a
+ * socket of its own in the run's directory and reports to the runner's:
+ * <ol>
+ * <li>it sends its region once it listens, and waits until every worker
+ * does;</li>
+ * <li>it connects to each neighbor numbered above it and is connected to by
+ * each numbered below, places its region and sends the number of its own
+ * tasks;</li>
+ * <li>it runs a tick whenever told to and sends the number of its tasks that
+ * are complete, of its agents, of agents that left it and of broadcasts it
+ * passed on, until told to stop.</li>
+ * </ol>
+ *
+ * @author Larry S. Roach
+ */
+final class PartitionWorker {
+    /** The name of the runner's socket in the run's directory. */
+    @NonNull
+    static final String COORDINATOR = "coordinator.sock";
+    /** Tells a worker to stop. */
+    static final int STOP = 0;
+    /** Tells a worker to run a tick. */
+    static final int TICK = 1;
+    /** Tells a worker that every worker listens. */
+    static final int CONNECT = 2;
+
+    private PartitionWorker() {
+    }
+
+    /**
+     * @param dir    The directory of the run's sockets
+     * @param region A region
+     * @return The socket the region's worker listens on for its neighbors
+     */
+    @NonNull
+    static Path socket(@NonNull final Path dir, final int region) {
+        return dir.resolve("region-" + region + ".sock");
+    }
+
+    /**
+     * Runs a region until the runner says to stop.
+     *
+     * @param opts   The options of the run
+     * @param region The region to run
+     * @param dir    The directory of the run's sockets
+     * @throws IOException If the runner or a neighbor cannot be reached
+     */
+    static void run(@NonNull final PartitionOpts opts, final int region, @NonNull final Path dir)
+            throws IOException {
+        PartitionedRun run = opts.run();
+        Path own = socket(dir, region);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(own));
+            try (SocketChannel runner = SocketChannel.open(UnixDomainSocketAddress.of(dir.resolve(COORDINATOR)))) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(runner)));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(runner)));
+                out.writeInt(region);
+                out.flush();
+                if (in.readInt() != CONNECT)
+                    throw new IOException("The runner did not start region " + region);
+                SocketChannel[] links = connect(server, region, run.partition().neighbors(region), dir);
+                try (SocketTransport transport = new SocketTransport(links)) {
+                    RegionTickEngine engine = new RegionTickEngine(run, region, transport);
+                    out.writeInt(engine.getNumTasks());
+                    out.flush();
+                    while (in.readInt() == TICK) {
+                        engine.tick(engine.getSimGrid());
+                        out.writeInt(engine.getNumTasksComplete());
+                        out.writeInt(engine.getStore().size());
+                        out.writeLong(engine.getMigrations());
+                        out.writeLong(engine.getRelayedBroadcasts());
+                        out.flush();
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(own);
+        }
+    }
+
+    /**
+     * Connects to the neighbors numbered above the region and takes the
+     * connections of those below, each of which starts with the number of the
+     * region that made it.
+     *
+     * @return A socket to each neighbor, in the order of the neighbors
+     */
+    @NonNull
+    private static SocketChannel[] connect(@NonNull final ServerSocketChannel server, final int region,
+            @NonNull final int[] neighbors, @NonNull final Path dir) throws IOException {
+        SocketChannel[] links = new SocketChannel[neighbors.length];
+        ByteBuffer id = ByteBuffer.allocate(Integer.BYTES);
+        int below = 0;
+        for (int i = 0; i < neighbors.length; i++) {
+            if (neighbors[i] < region) {
+                below++;
+                continue;
+            }
+            SocketChannel link = SocketChannel.open(UnixDomainSocketAddress.of(socket(dir, neighbors[i])));
+            id.clear().putInt(region).flip();
+            while (id.hasRemaining())
+                link.write(id);
+            links[i] = link;
+        }
+        for (; below > 0; below--) {
+            SocketChannel link = server.accept();
+            id.clear();
+            while (id.hasRemaining()) {
+                if (link.read(id) < 0)
+                    throw new EOFException("A neighbor of region " + region + " closed its connection");
+            }
+            int from = id.getInt(0);
+            int slot = Arrays.binarySearch(neighbors, from);
+            if (slot < 0 || links[slot] != null)
+                throw new IOException("Region " + from + " is not a neighbor of region " + region);
+            links[slot] = link;
+        }
+        return links;
+    }
+}
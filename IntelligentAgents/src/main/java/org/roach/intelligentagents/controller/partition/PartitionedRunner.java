@@ -0,0 +1,261 @@
+package org.roach.intelligentagents.controller.partition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.partition.PartitionedRun;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.JCommander;
+
+/**
+ * Runs a simulation too large for one JVM by cutting its grid into regions,
+ * each run by a worker JVM of its own on this machine; see
+ * {@link org.roach.intelligentagents.model.partition.RegionTickEngine}. Workers
+ * trade with their neighbors over local sockets in a directory of the run and
+ * report to the runner, which keeps them in lock-step: a tick starts on every
+ * region at once, and the next starts only once every region has reported.
+ * The run ends, as a batch run does, when the required share of tasks is
+ * complete or at the tick limit.
+ * <p>
+ * Example, a 100,000-cell grid cut into 4x4 regions with a million agents:
+ *
+ * <pre>
+ * java -cp IntelligentAgents.jar org.roach.intelligentagents.controller.partition.PartitionedRunner \
+ *     --gridSize 100000 --columns 4 --rows 4 --numAgents 1000000 --numTasks 50000000 --workerHeap 4g
+ * </pre>
+ *
+ * @author Larry S. Roach
+ */
+public class PartitionedRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedRunner.class);
+    /** How long to wait between looks for workers that have not yet reported. */
+    private static final long POLL_MILLIS = 10;
+
+    @NonNull
+    private final PartitionOpts opts;
+    /** The worker JVMs, by region, or null if the workers are threads. */
+    @Nullable
+    private Process[] processes;
+    /** The worker threads, by region, or null if the workers are JVMs. */
+    @Nullable
+    private Thread[] threads;
+
+    /**
+     * @param opts The run and how to run it
+     */
+    public PartitionedRunner(@NonNull final PartitionOpts opts) {
+        this.opts = opts;
+    }
+
+    /**
+     * Runs a partitioned simulation, or with {@code --region} one region of it,
+     * and prints the result of the run as JSON.
+     *
+     * @param args command-line arguments, see {@link PartitionOpts}
+     * @throws IOException          if the workers cannot be started or reached
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        PartitionOpts opts = new PartitionOpts();
+        JCommander.newBuilder().addObject(opts).build().parse(args);
+        String dir = opts.dir;
+        if (opts.region < 0)
+            System.out.println(new PartitionedRunner(opts).run().toJson());
+        else if (dir == null)
+            throw new IllegalArgumentException("A worker needs the --dir of its run");
+        else
+            PartitionWorker.run(opts, opts.region, Path.of(dir));
+    }
+
+    /**
+     * Starts a worker per region, runs ticks until the run ends, and stops the
+     * workers.
+     *
+     * @return The outcome
+     * @throws IOException          If a worker cannot be started, fails or
+     *                              loses an agent
+     * @throws InterruptedException If interrupted while waiting for workers
+     */
+    @NonNull
+    public PartitionResult run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        PartitionedRun run = opts.run();
+        int regions = run.partition().size();
+        Path dir = opts.dir != null ? Path.of(opts.dir) : Files.createTempDirectory("partition");
+        Path socket = dir.resolve(PartitionWorker.COORDINATOR);
+        DataInputStream[] ins = new DataInputStream[regions];
+        DataOutputStream[] outs = new DataOutputStream[regions];
+        List<SocketChannel> channels = new ArrayList<>();
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            server.configureBlocking(false);
+            startWorkers(regions, dir);
+            for (int i = 0; i < regions; i++) {
+                SocketChannel channel = accept(server);
+                channels.add(channel);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                int region = in.readInt();
+                ins[region] = in;
+                outs[region] = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            }
+            tell(outs, PartitionWorker.CONNECT);
+            int numTasks = 0;
+            for (DataInputStream in : ins)
+                numTasks += in.readInt();
+            if (numTasks != run.numTasks())
+                throw new IOException("The regions hold " + numTasks + " tasks, not " + run.numTasks());
+            LOGGER.atInfo().setMessage("{} regions placed in {} ms").addArgument(regions)
+                    .addArgument((System.nanoTime() - start) / 1_000_000).log();
+
+            float goal = run.numTasks() * (float) opts.percentFinished / 100.0f;
+            int ticks = 0;
+            int complete = 0;
+            long migrations = 0;
+            long relayed = 0;
+            while (complete < goal && ticks < opts.maxTicks) {
+                tell(outs, PartitionWorker.TICK);
+                complete = 0;
+                int agents = 0;
+                migrations = 0;
+                relayed = 0;
+                for (DataInputStream in : ins) {
+                    complete += in.readInt();
+                    agents += in.readInt();
+                    migrations += in.readLong();
+                    relayed += in.readLong();
+                }
+                ticks++;
+                if (agents != run.numAgents())
+                    throw new IOException("Tick " + ticks + " ended with " + agents + " agents, not "
+                            + run.numAgents());
+            }
+            tell(outs, PartitionWorker.STOP);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            awaitWorkers();
+            return new PartitionResult(regions, ticks, complete >= goal, complete, migrations, relayed, millis);
+        } finally {
+            for (SocketChannel channel : channels)
+                channel.close();
+            stopWorkers();
+            // Workers remove their own sockets, except those that failed or were ended
+            for (int i = 0; i < regions; i++)
+                Files.deleteIfExists(PartitionWorker.socket(dir, i));
+            Files.deleteIfExists(socket);
+            if (opts.dir == null)
+                Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * Starts a JVM, or with {@code --inProcess} a thread, for each region.
+     */
+    private void startWorkers(final int regions, @NonNull final Path dir) throws IOException {
+        if (opts.inProcess) {
+            Thread[] started = new Thread[regions];
+            threads = started;
+            for (int i = 0; i < regions; i++) {
+                int region = i;
+                started[i] = new Thread(() -> {
+                    try {
+                        PartitionWorker.run(opts, region, dir);
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.atError().setCause(e).setMessage("Region {} failed").addArgument(region).log();
+                    }
+                }, "region-" + i);
+                started[i].setDaemon(true);
+                started[i].start();
+            }
+        } else {
+            Process[] started = new Process[regions];
+            processes = started;
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            for (int i = 0; i < regions; i++) {
+                List<String> command = new ArrayList<>(List.of(java));
+                String heap = opts.workerHeap;
+                if (heap != null)
+                    command.add("-Xmx" + heap);
+                command.addAll(List.of("-cp", System.getProperty("java.class.path"), getClass().getName()));
+                command.addAll(opts.workerArgs(i, dir.toString()));
+                started[i] = new ProcessBuilder(command).inheritIO().start();
+            }
+        }
+    }
+
+    /**
+     * Waits for the next worker to connect, giving up if a worker has stopped
+     * before it did.
+     */
+    @NonNull
+    private SocketChannel accept(@NonNull final ServerSocketChannel server) throws IOException,
+            InterruptedException {
+        while (true) {
+            SocketChannel channel = server.accept();
+            if (channel != null) {
+                channel.configureBlocking(true);
+                return channel;
+            }
+            if (!allAlive())
+                throw new IOException("A worker stopped before it reported");
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    private boolean allAlive() {
+        Process[] p = processes;
+        Thread[] t = threads;
+        for (int i = 0; p != null && i < p.length; i++) {
+            if (!p[i].isAlive())
+                return false;
+        }
+        for (int i = 0; t != null && i < t.length; i++) {
+            if (!t[i].isAlive())
+                return false;
+        }
+        return true;
+    }
+
+    private static void tell(@NonNull final DataOutputStream[] outs, final int command) throws IOException {
+        for (DataOutputStream out : outs) {
+            out.writeInt(command);
+            out.flush();
+        }
+    }
+
+    /**
+     * Waits for the workers to end once told to stop.
+     */
+    private void awaitWorkers() throws InterruptedException {
+        Process[] p = processes;
+        Thread[] t = threads;
+        for (int i = 0; p != null && i < p.length; i++)
+            p[i].waitFor();
+        for (int i = 0; t != null && i < t.length; i++)
+            t[i].join();
+    }
+
+    /**
+     * Ends the worker JVMs that are still running, as after a failure; worker
+     * threads end on their own once their sockets are closed.
+     */
+    private void stopWorkers() {
+        Process[] p = processes;
+        for (int i = 0; p != null && i < p.length; i++)
+            p[i].destroy();
+    }
+}
@@ -0,0 +1,133 @@
+package org.roach.intelligentagents.controller.partition;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.partition.HaloTransport;
+
+/**
+ * Trades halo messages with the neighbors of a region over one local socket
+ * each. Each message goes as its length followed by its bytes. All sockets
+ * are written and read at once through a selector on the ticking thread, so
+ * that two neighbors sending each other more than a socket holds do not wait
+ * on each other.
+ *
+ * @author Larry S. Roach
+ */
+public final class SocketTransport implements HaloTransport, Closeable {
+    @NonNull
+    private final SocketChannel[] channels;
+    @NonNull
+    private final Selector selector;
+    @NonNull
+    private final SelectionKey[] keys;
+    /** The length of the message being sent to each neighbor. */
+    @NonNull
+    private final ByteBuffer[] lengthsOut;
+    /** The length of the message being received from each neighbor. */
+    @NonNull
+    private final ByteBuffer[] lengthsIn;
+    /** The length and the message being sent to each neighbor, for gathering writes. */
+    @NonNull
+    private final ByteBuffer[][] sends;
+
+    /**
+     * @param channels A connected socket to each neighbor, in the order of
+     *                 {@link org.roach.intelligentagents.model.partition.Partition#neighbors(int)}
+     * @throws IOException If the sockets cannot be watched
+     */
+    public SocketTransport(@NonNull final SocketChannel[] channels) throws IOException {
+        this.channels = channels;
+        this.selector = Selector.open();
+        int n = channels.length;
+        keys = new SelectionKey[n];
+        lengthsOut = new ByteBuffer[n];
+        lengthsIn = new ByteBuffer[n];
+        sends = new ByteBuffer[n][];
+        for (int i = 0; i < n; i++) {
+            channels[i].configureBlocking(false);
+            keys[i] = channels[i].register(selector, 0, i);
+            lengthsOut[i] = ByteBuffer.allocateDirect(Integer.BYTES);
+            lengthsIn[i] = ByteBuffer.allocateDirect(Integer.BYTES);
+            sends[i] = new ByteBuffer[2];
+        }
+    }
+
+    @Override
+    public void exchange(@NonNull final ByteBuffer[] outgoing, @NonNull final ByteBuffer[] incoming)
+            throws IOException {
+        int pending = 0;
+        for (int i = 0; i < channels.length; i++) {
+            lengthsOut[i].clear().putInt(outgoing[i].remaining()).flip();
+            sends[i][0] = lengthsOut[i];
+            sends[i][1] = outgoing[i];
+            lengthsIn[i].clear();
+            keys[i].interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            pending += 2;
+        }
+        while (pending > 0) {
+            selector.select();
+            for (SelectionKey key : selector.selectedKeys()) {
+                int i = (Integer) key.attachment();
+                if (key.isWritable() && (key.interestOps() & SelectionKey.OP_WRITE) != 0 && send(i)) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    pending--;
+                }
+                if (key.isReadable() && (key.interestOps() & SelectionKey.OP_READ) != 0 && receive(i, incoming)) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                    pending--;
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * @return True once the whole message to neighbor i is sent
+     */
+    private boolean send(final int i) throws IOException {
+        channels[i].write(sends[i]);
+        return !sends[i][1].hasRemaining() && !lengthsOut[i].hasRemaining();
+    }
+
+    /**
+     * Reads what has come of the message from neighbor i, making room for it
+     * once its length is known; reads no further than the message, so the next
+     * one waits in the socket.
+     *
+     * @return True once the whole message is read, and flipped
+     */
+    private boolean receive(final int i, @NonNull final ByteBuffer[] incoming) throws IOException {
+        ByteBuffer length = lengthsIn[i];
+        if (length.hasRemaining()) {
+            if (channels[i].read(length) < 0)
+                throw new EOFException("A neighbor closed its connection");
+            if (length.hasRemaining())
+                return false;
+            int n = length.getInt(0);
+            if (incoming[i].capacity() < n)
+                incoming[i] = ByteBuffer.allocateDirect(Math.max(n, incoming[i].capacity() * 2));
+            incoming[i].clear().limit(n);
+        }
+        ByteBuffer in = incoming[i];
+        if (in.hasRemaining() && channels[i].read(in) < 0)
+            throw new EOFException("A neighbor closed its connection");
+        if (in.hasRemaining())
+            return false;
+        in.flip();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        selector.close();
+        for (SocketChannel channel : channels)
+            channel.close();
+    }
+}
@@ -8,12 +8,15 @@ package org.roach.intelligentagents.model;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.util.HashSet;
-import java.util.Random;
-import java.util.Set;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.SplittableRandom;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.PropertyConstants;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
 import org.roach.intelligentagents.model.strategy.AgentStrategy;
 
 /**
@@ -24,57 +27,113 @@ import org.roach.intelligentagents.model.strategy.AgentStrategy;
  * @version %I%, %G%
  */
 public class Agent implements ISimItem {
-    private static int id_root;
-
     /**
-     * A set of locations of tasks that the agent has already executed; used to
-     * prevent an agent from executing a task more than once.
+     * The ids of the tasks that the agent has already executed; used to prevent
+     * an agent from executing a task more than once. One bit per task, so an
+     * agent needs at most numTasks/8 bytes.
      */
-    protected Set<Task> executedTasks;
-    /** A unique identifier for each Agent. */
+    @NonNull
+    protected final BitSet executedTasks = new BitSet();
+    /** A unique identifier for each Agent within its grid. */
     protected int id;
 
-    /** Location of the agent within the sim-space. */
-    @NonNull
-    protected Location loc;
+    /**
+     * Location of the agent within the sim-space, packed by {@link Coords#pack}
+     * so that moving allocates nothing.
+     */
+    protected long pos;
+    /** The Location for pos, made the first time it is asked for after a move. */
+    @Nullable
+    private Location locView;
 
-    // Setup property-change support
-    @NonNull
-    private final PropertyChangeSupport mPcs = new PropertyChangeSupport(this);
+    /**
+     * Property-change support for views that want to watch this agent. Created
+     * on the first listener, so agents nobody watches never fire events.
+     */
+    @Nullable
+    private PropertyChangeSupport mPcs;
 
     protected final AgentStrategy strategy;
 
     @NonNull
     private SimulationGrid simGrid;
 
+    /** Told directly about every move and broadcast; normally the grid. */
+    @NonNull
+    private GridListener gridListener;
+
+    /** The agent's own random stream, split from the grid's. */
+    @NonNull
+    private SplittableRandom random;
+
     public void setSimGrid(final SimulationGrid simGrid) {
         this.simGrid = simGrid;
-        addPropertyChangeListener(simGrid);
-        this.loc = Location.randomLocation(simGrid.getGridSize());
+        this.gridListener = simGrid;
+        this.id = simGrid.nextAgentId();
+        this.random = simGrid.splitRandom();
+        setLoc(new Location(random.nextInt(simGrid.getGridSize()), random.nextInt(simGrid.getGridSize())));
     }
 
+    /**
+     * Gets the agent's random stream. Only the thread running the agent may draw
+     * from it.
+     * 
+     * @return the random stream
+     */
+    @NonNull
+    public SplittableRandom getRandom() { return random; }
+
     public Agent(final AgentStrategy strategy) {
         this.strategy = strategy;
-        id = id_root++;
-        executedTasks = new HashSet<>();
     }
 
     /**
      * @param listener
      */
-    public void addPropertyChangeListener(PropertyChangeListener listener) {
+    public synchronized void addPropertyChangeListener(PropertyChangeListener listener) {
+        if (mPcs == null)
+            mPcs = new PropertyChangeSupport(this);
         mPcs.addPropertyChangeListener(listener);
     }
 
     /**
      * @param listener
      */
-    public void removePropertyChangeListener(PropertyChangeListener listener) {
-        mPcs.removePropertyChangeListener(listener);
+    public synchronized void removePropertyChangeListener(PropertyChangeListener listener) {
+        if (mPcs != null)
+            mPcs.removePropertyChangeListener(listener);
     }
 
-    public void firePropertyChange(@NonNull final String propertyName, final Object oldValue, final Object newValue) {
-        mPcs.firePropertyChange(propertyName, oldValue, newValue);
+    /**
+     * Tells the grid that this agent has been created and placed.
+     */
+    public void announce() {
+        gridListener.onNewAgent(this);
+    }
+
+    /**
+     * Broadcasts the location of a task to the agents in range.
+     * 
+     * @param taskLoc The task location
+     */
+    public void broadcast(@NonNull final Location taskLoc) {
+        gridListener.onBroadcast(this, taskLoc);
+        PropertyChangeSupport pcs = mPcs;
+        if (pcs != null)
+            pcs.firePropertyChange(PropertyConstants.SEND_MESSAGE, null, taskLoc);
+    }
+
+    /**
+     * Tells the grid that this agent has finished its action.
+     * 
+     * @param from Packed location where the agent stood before acting
+     */
+    public void finishAction(final long from) {
+        gridListener.onMove(this, from, pos);
+        PropertyChangeSupport pcs = mPcs;
+        if (pcs != null && from != pos)
+            pcs.firePropertyChange(PropertyConstants.UPDATE_GRID, new Location(Coords.x(from), Coords.y(from)),
+                    getLoc());
     }
 
     /**
@@ -95,10 +154,10 @@ public class Agent implements ISimItem {
      * Executes the task at the current location.
      */
     public void executeTask() {
-        simGrid.executeTaskAt(loc);
-        Task gotTask = simGrid.getTask(loc);
+        simGrid.executeTaskFor(this);
+        Task gotTask = simGrid.getTask(getX(), getY());
         if (gotTask != null)
-            executedTasks.add(gotTask);
+            executedTasks.set(gotTask.getId());
     }
 
     /**
@@ -109,15 +168,19 @@ public class Agent implements ISimItem {
      * @return True if new task found
      */
     public boolean foundNewTask() {
-        return (simGrid.isTask(loc) && !simGrid.isTaskComplete(loc)) && !hasDoneAlready(simGrid.getTask(loc));
+        Task t = simGrid.getTask(getX(), getY());
+        return t != null && !t.isComplete() && !hasDoneAlready(t);
     }
 
     /**
-     * Getter for
+     * Records a task as done without executing it, e.g. because it is already
+     * complete.
      * 
-     * @return the executedTasks
+     * @param t The task
      */
-    public Set<Task> getExecutedTasks() { return executedTasks; }
+    public void markDone(@NonNull final Task t) {
+        executedTasks.set(t.getId());
+    }
 
     /**
      * Getter for
@@ -127,21 +190,42 @@ public class Agent implements ISimItem {
     public int getId() { return id; }
 
     /**
-     * Get the location of the agent within the sim-space.
+     * Get the location of the agent within the sim-space. The same instance is
+     * returned until the agent moves.
      * 
      * @return loc
      */
     @NonNull
-    public Location getLoc() { return loc; }
+    public Location getLoc() {
+        Location l = locView;
+        if (l == null)
+            locView = l = new Location(getX(), getY());
+        return l;
+    }
 
     /**
-     * Getter for
-     * 
-     * @return the mPcs
+     * @return the location of the agent, packed by {@link Coords#pack}
      */
-    @NonNull
-    public PropertyChangeSupport getmPcs() {
-        return mPcs;
+    public long getPos() { return pos; }
+
+    public int getX() { return Coords.x(pos); }
+
+    public int getY() { return Coords.y(pos); }
+
+    /**
+     * @param other A location
+     * @return True if the agent stands on other
+     */
+    public boolean isAt(@NonNull final Location other) {
+        return getX() == other.x() && getY() == other.y();
+    }
+
+    /**
+     * @param other A location
+     * @return the manhattan distance from the agent to other
+     */
+    public int getManDist(@NonNull final Location other) {
+        return Math.abs(getX() - other.x()) + Math.abs(getY() - other.y());
     }
 
     /**
@@ -158,7 +242,7 @@ public class Agent implements ISimItem {
      * @return True if already-executed list contains the task, False otherwise
      */
     public boolean hasDoneAlready(@Nullable final Task t) {
-        return executedTasks.contains(t);
+        return t != null && executedTasks.get(t.getId());
     }
 
     /**
@@ -178,7 +262,56 @@ public class Agent implements ISimItem {
      */
     @Override
     public String toString() {
-        return this.getClass().toString() + ", location: " + loc;
+        return this.getClass().toString() + ", location: " + getLoc();
+    }
+
+    /**
+     * Writes the agent and its strategy to a checkpoint. The agent's random
+     * stream is re-seeded from itself, so that this run and a run restored from
+     * the checkpoint go on drawing the same numbers.
+     * 
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        long seed = random.nextLong();
+        random = new SplittableRandom(seed);
+        out.putInt(id);
+        out.putLong(pos);
+        out.putLong(seed);
+        // The executed tasks as ids or as the words of the bit set, whichever is smaller
+        long[] words = executedTasks.toLongArray();
+        boolean sparse = executedTasks.cardinality() * Integer.BYTES < words.length * Long.BYTES;
+        out.putBoolean(sparse);
+        if (sparse)
+            out.putInts(executedTasks.stream().toArray());
+        else
+            out.putLongs(words);
+        strategy.writeCheckpoint(out);
+    }
+
+    /**
+     * Gives the agent and its strategy the state written by
+     * {@link #writeCheckpoint}. The agent index is not updated.
+     * 
+     * @param in Where to read
+     * @throws IOException If the state is for another agent
+     */
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        int savedId = in.getInt();
+        if (savedId != id)
+            throw new IOException("Agent " + id + " cannot take the state of agent " + savedId);
+        long p = in.getLong();
+        setLoc(new Location(Coords.x(p), Coords.y(p)));
+        random = new SplittableRandom(in.getLong());
+        executedTasks.clear();
+        if (in.getBoolean()) {
+            for (int task : in.getInts())
+                executedTasks.set(task);
+        } else {
+            executedTasks.or(BitSet.valueOf(in.getLongs()));
+        }
+        strategy.readCheckpoint(in);
     }
 
     /**
@@ -186,46 +319,68 @@ public class Agent implements ISimItem {
      * 
      * @param loc the loc to set
      */
-    public void setLoc(@NonNull final Location loc) { this.loc = loc; }
+    public void setLoc(@NonNull final Location loc) {
+        this.pos = Coords.pack(loc.x(), loc.y());
+        this.locView = loc;
+    }
+
+    /**
+     * Puts the agent at (x, y) without telling the grid, as a replay does.
+     * 
+     * @param x The new x coordinate
+     * @param y The new y coordinate
+     */
+    public void moveTo(final int x, final int y) {
+        pos = Coords.pack(x, y);
+        locView = null;
+    }
+
+    /**
+     * Moves the agent by (dx, dy). Callers check that the step stays on the grid.
+     */
+    private void step(final int dx, final int dy) {
+        pos = Coords.pack(getX() + dx, getY() + dy);
+        locView = null;
+    }
 
     public void moveNorth() {
-        if (this.loc.y() > 0)
-            this.loc = new Location(this.loc.x(), this.loc.y() - 1);
+        if (getY() > 0)
+            step(0, -1);
     }
 
     public void moveSouth() {
-        if (this.loc.y() < simGrid.getGridSize() - 1)
-            this.loc = new Location(this.loc.x(), this.loc.y() + 1);
+        if (getY() < simGrid.getGridSize() - 1)
+            step(0, 1);
     }
 
     public void moveWest() {
-        if (this.loc.x() > 0)
-            this.loc = new Location(this.loc.x() - 1, this.loc.y());
+        if (getX() > 0)
+            step(-1, 0);
     }
 
     public void moveEast() {
-        if (this.loc.x() < simGrid.getGridSize() - 1)
-            this.loc = new Location(this.loc.x() + 1, this.loc.y());
+        if (getX() < simGrid.getGridSize() - 1)
+            step(1, 0);
     }
 
     public void moveNorthEast() {
-        if (loc.x() < simGrid.getGridSize() - 1 && loc.y() > 0)
-            this.loc = new Location(this.loc.x() + 1, this.loc.y() - 1);
+        if (getX() < simGrid.getGridSize() - 1 && getY() > 0)
+            step(1, -1);
     }
 
     public void moveSouthEast() {
-        if (loc.x() < simGrid.getGridSize() - 1 && loc.y() < simGrid.getGridSize() - 1)
-            this.loc = new Location(this.loc.x() + 1, this.loc.y() + 1);
+        if (getX() < simGrid.getGridSize() - 1 && getY() < simGrid.getGridSize() - 1)
+            step(1, 1);
     }
 
     public void moveNorthWest() {
-        if (loc.x() > 0 && loc.y() > 0)
-            this.loc = new Location(this.loc.x() - 1, this.loc.y() - 1);
+        if (getX() > 0 && getY() > 0)
+            step(-1, -1);
     }
 
     public void moveSouthWest() {
-        if (loc.x() > 0 && loc.y() < simGrid.getGridSize() - 1)
-            this.loc = new Location(this.loc.x() - 1, this.loc.y() + 1);
+        if (getX() > 0 && getY() < simGrid.getGridSize() - 1)
+            step(-1, 1);
     }
 
     /**
@@ -233,9 +388,8 @@ public class Agent implements ISimItem {
      * and moves the agent.
      */
     public void randomMove() {
-        Random rand = new Random();
         // Get a random number between 1 and 8
-        int dir = rand.nextInt(8);
+        int dir = random.nextInt(8);
         switch (dir) { // Move the selected direction
         case 0:
             // move north
@@ -278,8 +432,8 @@ public class Agent implements ISimItem {
      */
     public void moveTowards(@NonNull final Location other) {
         // Calculate how far the agent is from the task along the X and Y axes
-        int diffx = loc.getXDistance(other);
-        int diffy = loc.getYDistance(other);
+        int diffx = getX() - other.x();
+        int diffy = getY() - other.y();
 
         // Move one step along whichever axis the agent is further from the task
         if (diffx > 0) {
@@ -7,7 +7,6 @@ import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.roach.intelligentagents.AgentAppOpts;
-import org.roach.intelligentagents.PropertyConstants;
 import org.roach.intelligentagents.model.strategy.AgentStrategy;
 
 public class AgentFactory {
@@ -34,7 +33,7 @@ public class AgentFactory {
                     agents.add(a);
                     strategy.setAgent(a);
                     strategy.setOptions(options);
-                    a.firePropertyChange(PropertyConstants.NEW_AGENT, null, null);
+                    a.announce();
                 }
             } catch (InstantiationException ex) {
                 System.err.println("Unable to instantiate class.");
@@ -0,0 +1,15 @@
+package org.roach.intelligentagents.model;
+
+/**
+ * Callback used by {@link SimulationGrid#forEachAgentIdWithin} to hand each
+ * matching agent id to the caller.
+ * 
+ * @author Larry S. Roach
+ */
+@FunctionalInterface
+public interface AgentIdVisitor {
+    /**
+     * @param id The id of an agent within the queried area
+     */
+    void visit(int id);
+}
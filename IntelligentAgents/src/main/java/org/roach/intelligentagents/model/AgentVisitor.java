@@ -0,0 +1,15 @@
+package org.roach.intelligentagents.model;
+
+/**
+ * Callback used by {@link SimulationGrid#forEachAgentWithin} to hand each
+ * matching agent to the caller without collecting them first.
+ * 
+ * @author Larry S. Roach
+ */
+@FunctionalInterface
+public interface AgentVisitor {
+    /**
+     * @param agent An agent within the queried area
+     */
+    void visit(Agent agent);
+}
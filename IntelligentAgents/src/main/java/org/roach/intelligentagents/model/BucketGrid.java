@@ -0,0 +1,257 @@
+package org.roach.intelligentagents.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
+
+/**
+ * A uniform grid of coarse buckets over the sim-space, each bucketSize cells on
+ * a side. Agents are chained through int arrays indexed by agent id, exactly as
+ * in {@link CellIndex}, but per bucket rather than per cell. With bucketSize
+ * close to the communication distance, a radius query only has to look at the
+ * 3x3 (or at worst 5x5) buckets that overlap the circle, however many agents
+ * share its rows.
+ * <p>
+ * Adding, removing and moving an agent are O(1) and allocate nothing once the
+ * grid has room for the agent's id. The grid is not thread-safe.
+ *
+ * @author Larry S. Roach
+ */
+public final class BucketGrid {
+    /** Marks the end of a chain, or the absence of an agent. */
+    public static final int NONE = CellIndex.NONE;
+    /** Initial number of agent slots. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int bucketSize;
+    private final int bucketsPerSide;
+    /** First agent id of each bucket, indexed by bx * bucketsPerSide + by. */
+    private final int[] heads;
+    /** Next agent id in the same bucket, indexed by agent id. */
+    private int[] next = new int[0];
+    /** Previous agent id in the same bucket, indexed by agent id. */
+    private int[] prev = new int[0];
+    /** X coordinate of each agent, or NONE if the agent is not in the grid. */
+    private int[] xs = new int[0];
+    /** Y coordinate of each agent. */
+    private int[] ys = new int[0];
+    /** Number of agents in the grid. */
+    private int size;
+
+    /**
+     * @param gridSize       The width and height of the sim-space
+     * @param bucketSize     The width and height of a bucket, in cells
+     * @param expectedAgents The number of agents the grid should be sized for
+     */
+    public BucketGrid(final int gridSize, final int bucketSize, final int expectedAgents) {
+        if (bucketSize < 1)
+            throw new IllegalArgumentException("bucketSize must be positive: " + bucketSize);
+        this.bucketSize = bucketSize;
+        this.bucketsPerSide = (gridSize + bucketSize - 1) / bucketSize;
+        this.heads = new int[bucketsPerSide * bucketsPerSide];
+        Arrays.fill(heads, NONE);
+        ensureCapacity(Math.max(expectedAgents, INITIAL_CAPACITY) - 1);
+    }
+
+    /**
+     * Adds an agent at (x, y). If the agent is already in the grid it is moved
+     * instead.
+     *
+     * @param id The agent id
+     * @param x  X coordinate of the agent
+     * @param y  Y coordinate of the agent
+     */
+    public void add(final int id, final int x, final int y) {
+        ensureCapacity(id);
+        if (xs[id] != NONE) {
+            move(id, x, y);
+            return;
+        }
+        xs[id] = x;
+        ys[id] = y;
+        link(id);
+        size++;
+    }
+
+    /**
+     * Removes an agent from the grid.
+     *
+     * @param id The agent id
+     * @return True if the agent was in the grid
+     */
+    public boolean remove(final int id) {
+        if (!contains(id))
+            return false;
+        unlink(id);
+        xs[id] = NONE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves an agent to (x, y). The agent is only relinked if it changes bucket.
+     * An agent that is not in the grid yet is added.
+     *
+     * @param id The agent id
+     * @param x  X coordinate of the agent
+     * @param y  Y coordinate of the agent
+     */
+    public void move(final int id, final int x, final int y) {
+        if (!contains(id)) {
+            add(id, x, y);
+            return;
+        }
+        if (bucketOf(x, y) == bucketOf(xs[id], ys[id])) {
+            xs[id] = x;
+            ys[id] = y;
+            return;
+        }
+        unlink(id);
+        xs[id] = x;
+        ys[id] = y;
+        link(id);
+    }
+
+    /**
+     * @param id The agent id
+     * @return True if the agent is in the grid
+     */
+    public boolean contains(final int id) {
+        return id >= 0 && id < xs.length && xs[id] != NONE;
+    }
+
+    /**
+     * Gets the first agent in bucket (bx, by). Together with {@link #next(int)}
+     * this walks a bucket without allocating.
+     *
+     * @param bx Bucket column
+     * @param by Bucket row
+     * @return An agent id, or NONE if the bucket is empty
+     */
+    public int first(final int bx, final int by) {
+        return heads[bx * bucketsPerSide + by];
+    }
+
+    /**
+     * @param id An agent id returned by {@link #first(int, int)} or by this method
+     * @return The next agent id in the same bucket, or NONE
+     */
+    public int next(final int id) {
+        return next[id];
+    }
+
+    /**
+     * @param id An agent id in the grid
+     * @return The x coordinate of the agent
+     */
+    public int x(final int id) {
+        return xs[id];
+    }
+
+    /**
+     * @param id An agent id in the grid
+     * @return The y coordinate of the agent
+     */
+    public int y(final int id) {
+        return ys[id];
+    }
+
+    /**
+     * Converts a cell coordinate to the bucket coordinate that contains it.
+     *
+     * @param coord A cell coordinate
+     * @return The bucket coordinate
+     */
+    public int toBucket(final int coord) {
+        return coord / bucketSize;
+    }
+
+    /**
+     * @return The number of buckets along each side of the grid
+     */
+    public int getBucketsPerSide() { return bucketsPerSide; }
+
+    /**
+     * @return The width and height of a bucket, in cells
+     */
+    public int getBucketSize() { return bucketSize; }
+
+    /**
+     * @return The number of agents in the grid
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the grid as it is laid out, chains included, so that a restored
+     * grid visits agents in the same order.
+     *
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        out.putInt(size);
+        out.putInts(heads);
+        out.putInts(next);
+        out.putInts(prev);
+        out.putInts(xs);
+        out.putInts(ys);
+    }
+
+    /**
+     * Replaces the contents of the grid with those written by
+     * {@link #writeCheckpoint}.
+     *
+     * @param in Where to read
+     * @throws IOException If the grid written had another number of buckets
+     */
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        size = in.getInt();
+        in.getInts(heads);
+        next = in.getInts();
+        prev = in.getInts();
+        xs = in.getInts();
+        ys = in.getInts();
+    }
+
+    private int bucketOf(final int x, final int y) {
+        return (x / bucketSize) * bucketsPerSide + y / bucketSize;
+    }
+
+    private void link(final int id) {
+        int b = bucketOf(xs[id], ys[id]);
+        int h = heads[b];
+        next[id] = h;
+        prev[id] = NONE;
+        if (h != NONE)
+            prev[h] = id;
+        heads[b] = id;
+    }
+
+    private void unlink(final int id) {
+        int n = next[id];
+        int p = prev[id];
+        if (p != NONE)
+            next[p] = n;
+        else
+            heads[bucketOf(xs[id], ys[id])] = n;
+        if (n != NONE)
+            prev[n] = p;
+    }
+
+    private void ensureCapacity(final int id) {
+        if (id < xs.length)
+            return;
+        int oldLength = xs.length;
+        int newLength = Math.max(id + 1, Math.max(INITIAL_CAPACITY, oldLength + (oldLength >>> 1)));
+        next = Arrays.copyOf(next, newLength);
+        prev = Arrays.copyOf(prev, newLength);
+        ys = Arrays.copyOf(ys, newLength);
+        xs = Arrays.copyOf(xs, newLength);
+        Arrays.fill(xs, oldLength, newLength, NONE);
+    }
+}
@@ -0,0 +1,344 @@
+package org.roach.intelligentagents.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
+
+/**
+ * A flat, primitive spatial hash from grid cells to the ids of the agents
+ * standing in them. Each cell is keyed by {@code x * gridSize + y}; the key is
+ * hashed into a table of bucket heads, and the agents of a bucket are chained
+ * through int arrays indexed by agent id. Agents are also chained per row so
+ * that sparse rows can be walked directly instead of probing every cell.
+ * <p>
+ * Adding, removing and moving an agent are O(1) and allocate nothing once the
+ * index has room for the agent's id. The index is not thread-safe.
+ *
+ * @author Larry S. Roach
+ */
+public final class CellIndex {
+    /** Marks the end of a chain, or the absence of an agent. */
+    public static final int NONE = -1;
+    /** Initial number of agent slots. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int gridSize;
+    /** Bucket heads of the cell hash; the length is always a power of two. */
+    private int[] heads;
+    /** Next agent id in the same bucket, indexed by agent id. */
+    private int[] next = new int[0];
+    /** Previous agent id in the same bucket, indexed by agent id. */
+    private int[] prev = new int[0];
+    /** Next agent id in the same row, indexed by agent id. */
+    private int[] rowNext = new int[0];
+    /** Previous agent id in the same row, indexed by agent id. */
+    private int[] rowPrev = new int[0];
+    /** X coordinate of each agent, or NONE if the agent is not indexed. */
+    private int[] xs = new int[0];
+    /** Y coordinate of each agent. */
+    private int[] ys = new int[0];
+    /** First agent id of each row. */
+    private final int[] rowHeads;
+    /** Number of agents in each row. */
+    private final int[] rowCounts;
+    /** Number of indexed agents. */
+    private int size;
+
+    /**
+     * @param gridSize       The width and height of the grid
+     * @param expectedAgents The number of agents the index should be sized for
+     */
+    public CellIndex(final int gridSize, final int expectedAgents) {
+        this.gridSize = gridSize;
+        this.heads = newHeads(tableSizeFor(expectedAgents));
+        this.rowHeads = new int[gridSize];
+        Arrays.fill(rowHeads, NONE);
+        this.rowCounts = new int[gridSize];
+        ensureCapacity(Math.max(expectedAgents, INITIAL_CAPACITY) - 1);
+    }
+
+    /**
+     * Adds an agent to the cell (x, y). If the agent is already indexed it is
+     * moved instead.
+     *
+     * @param id The agent id
+     * @param x  X coordinate of the cell
+     * @param y  Y coordinate of the cell
+     */
+    public void add(final int id, final int x, final int y) {
+        ensureCapacity(id);
+        if (xs[id] != NONE) {
+            move(id, x, y);
+            return;
+        }
+        if (size >= heads.length - (heads.length >>> 2)) {
+            rehash(heads.length << 1);
+        }
+        xs[id] = x;
+        ys[id] = y;
+        linkCell(id);
+        linkRow(id);
+        size++;
+    }
+
+    /**
+     * Removes an agent from the index.
+     *
+     * @param id The agent id
+     * @return True if the agent was indexed
+     */
+    public boolean remove(final int id) {
+        if (!contains(id))
+            return false;
+        unlinkCell(id);
+        unlinkRow(id);
+        xs[id] = NONE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves an agent to the cell (x, y). An agent that is not indexed yet is
+     * added.
+     *
+     * @param id The agent id
+     * @param x  X coordinate of the new cell
+     * @param y  Y coordinate of the new cell
+     */
+    public void move(final int id, final int x, final int y) {
+        if (!contains(id)) {
+            add(id, x, y);
+            return;
+        }
+        if (xs[id] == x && ys[id] == y)
+            return;
+        unlinkCell(id);
+        if (xs[id] != x) {
+            unlinkRow(id);
+            xs[id] = x;
+            linkRow(id);
+        }
+        ys[id] = y;
+        linkCell(id);
+    }
+
+    /**
+     * @param id The agent id
+     * @return True if the agent is in the index
+     */
+    public boolean contains(final int id) {
+        return id >= 0 && id < xs.length && xs[id] != NONE;
+    }
+
+    /**
+     * Gets the first agent in the cell (x, y). Together with
+     * {@link #nextInCell(int)} this walks a cell without allocating.
+     *
+     * @param x X coordinate of the cell
+     * @param y Y coordinate of the cell
+     * @return An agent id, or NONE if the cell is empty
+     */
+    public int firstInCell(final int x, final int y) {
+        return skipToCell(heads[bucket(x, y)], x, y);
+    }
+
+    /**
+     * @param id An agent id returned by {@link #firstInCell(int, int)} or by this
+     *           method
+     * @return The next agent id in the same cell, or NONE
+     */
+    public int nextInCell(final int id) {
+        return skipToCell(next[id], xs[id], ys[id]);
+    }
+
+    /**
+     * @param x The row
+     * @return The first agent id in the row, or NONE if the row is empty
+     */
+    public int firstInRow(final int x) {
+        return rowHeads[x];
+    }
+
+    /**
+     * @param id An agent id returned by {@link #firstInRow(int)} or by this method
+     * @return The next agent id in the same row, or NONE
+     */
+    public int nextInRow(final int id) {
+        return rowNext[id];
+    }
+
+    /**
+     * @param x The row
+     * @return The number of agents in the row
+     */
+    public int rowCount(final int x) {
+        return rowCounts[x];
+    }
+
+    /**
+     * @param id An indexed agent id
+     * @return The x coordinate the agent is indexed under
+     */
+    public int x(final int id) {
+        return xs[id];
+    }
+
+    /**
+     * @param id An indexed agent id
+     * @return The y coordinate the agent is indexed under
+     */
+    public int y(final int id) {
+        return ys[id];
+    }
+
+    /**
+     * @return The number of indexed agents
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The width and height of the indexed grid
+     */
+    public int getGridSize() { return gridSize; }
+
+    /**
+     * Writes the index as it is laid out, chains included, so that a restored
+     * index visits agents in the same order.
+     *
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        out.putInt(size);
+        out.putInts(heads);
+        out.putInts(next);
+        out.putInts(prev);
+        out.putInts(rowNext);
+        out.putInts(rowPrev);
+        out.putInts(xs);
+        out.putInts(ys);
+        out.putInts(rowHeads);
+        out.putInts(rowCounts);
+    }
+
+    /**
+     * Replaces the contents of the index with those written by
+     * {@link #writeCheckpoint}.
+     *
+     * @param in Where to read
+     * @throws IOException If the index written was for another grid size
+     */
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        size = in.getInt();
+        heads = in.getInts();
+        next = in.getInts();
+        prev = in.getInts();
+        rowNext = in.getInts();
+        rowPrev = in.getInts();
+        xs = in.getInts();
+        ys = in.getInts();
+        in.getInts(rowHeads);
+        in.getInts(rowCounts);
+    }
+
+    private int skipToCell(int id, final int x, final int y) {
+        while (id != NONE && (xs[id] != x || ys[id] != y)) {
+            id = next[id];
+        }
+        return id;
+    }
+
+    private int bucket(final int x, final int y) {
+        long key = (long) x * gridSize + y;
+        // Fibonacci hashing spreads neighbouring cells across the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (heads.length - 1);
+    }
+
+    private void linkCell(final int id) {
+        int b = bucket(xs[id], ys[id]);
+        int h = heads[b];
+        next[id] = h;
+        prev[id] = NONE;
+        if (h != NONE)
+            prev[h] = id;
+        heads[b] = id;
+    }
+
+    private void unlinkCell(final int id) {
+        int n = next[id];
+        int p = prev[id];
+        if (p != NONE)
+            next[p] = n;
+        else
+            heads[bucket(xs[id], ys[id])] = n;
+        if (n != NONE)
+            prev[n] = p;
+    }
+
+    private void linkRow(final int id) {
+        int x = xs[id];
+        int h = rowHeads[x];
+        rowNext[id] = h;
+        rowPrev[id] = NONE;
+        if (h != NONE)
+            rowPrev[h] = id;
+        rowHeads[x] = id;
+        rowCounts[x]++;
+    }
+
+    private void unlinkRow(final int id) {
+        int x = xs[id];
+        int n = rowNext[id];
+        int p = rowPrev[id];
+        if (p != NONE)
+            rowNext[p] = n;
+        else
+            rowHeads[x] = n;
+        if (n != NONE)
+            rowPrev[n] = p;
+        rowCounts[x]--;
+    }
+
+    /**
+     * Grows the per-agent arrays so that id fits. Only allocates when an id beyond
+     * the current capacity is first seen.
+     */
+    private void ensureCapacity(final int id) {
+        if (id < xs.length)
+            return;
+        int oldLength = xs.length;
+        int newLength = Math.max(id + 1, Math.max(INITIAL_CAPACITY, oldLength + (oldLength >>> 1)));
+        next = Arrays.copyOf(next, newLength);
+        prev = Arrays.copyOf(prev, newLength);
+        rowNext = Arrays.copyOf(rowNext, newLength);
+        rowPrev = Arrays.copyOf(rowPrev, newLength);
+        ys = Arrays.copyOf(ys, newLength);
+        xs = Arrays.copyOf(xs, newLength);
+        Arrays.fill(xs, oldLength, newLength, NONE);
+    }
+
+    private void rehash(final int tableSize) {
+        heads = newHeads(tableSize);
+        for (int id = 0; id < xs.length; id++) {
+            if (xs[id] != NONE)
+                linkCell(id);
+        }
+    }
+
+    private static int[] newHeads(final int tableSize) {
+        int[] table = new int[tableSize];
+        Arrays.fill(table, NONE);
+        return table;
+    }
+
+    private static int tableSizeFor(final int expectedAgents) {
+        int wanted = Math.max(16, expectedAgents * 2);
+        return Integer.highestOneBit(wanted - 1) << 1;
+    }
+}
@@ -0,0 +1,63 @@
+package org.roach.intelligentagents.model;
+
+/**
+ * Grid coordinates packed into a single long, x in the high word and y in the
+ * low word. The hot path passes packed coordinates around instead of
+ * {@link Location} records so that moving and measuring allocate nothing;
+ * Location remains the type used at API boundaries.
+ *
+ * @author Larry S. Roach
+ */
+public final class Coords {
+    /** Marks the absence of coordinates; no pair of grid coordinates packs to it. */
+    public static final long NONE = -1L;
+
+    private Coords() {
+    }
+
+    /**
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return the packed coordinates
+     */
+    public static long pack(final int x, final int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param p Packed coordinates
+     * @return the x coordinate
+     */
+    public static int x(final long p) {
+        return (int) (p >> 32);
+    }
+
+    /**
+     * @param p Packed coordinates
+     * @return the y coordinate
+     */
+    public static int y(final long p) {
+        return (int) p;
+    }
+
+    /**
+     * @param a Packed coordinates
+     * @param b Packed coordinates
+     * @return the manhattan distance between a and b
+     */
+    public static int manDist(final long a, final long b) {
+        return Math.abs(x(a) - x(b)) + Math.abs(y(a) - y(b));
+    }
+
+    /**
+     * @param center Packed coordinates of the center of the circle
+     * @param p      Packed coordinates to test
+     * @param radius The radius of the circle
+     * @return True if p lies within radius of center
+     */
+    public static boolean isInCircle(final long center, final long p, final int radius) {
+        int dx = x(p) - x(center);
+        int dy = y(p) - y(center);
+        return dx * dx + dy * dy <= radius * radius;
+    }
+}
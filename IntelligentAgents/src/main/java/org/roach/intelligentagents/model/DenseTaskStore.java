@@ -0,0 +1,36 @@
+package org.roach.intelligentagents.model;
+
+import java.util.stream.IntStream;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A grid of tasks in x-y coordinates, one reference per cell.
+ *
+ * @author Larry S. Roach
+ */
+public final class DenseTaskStore implements TaskStore {
+    @NonNull
+    private final Task[][] taskGrid;
+
+    /**
+     * @param gridSize The width and height of the grid
+     * @param tasks    Tasks on distinct cells
+     */
+    public DenseTaskStore(final int gridSize, @NonNull final Task[] tasks) {
+        Task[][] grid = new Task[gridSize][gridSize];
+        // Distinct cells, so the tasks can be filed in parallel
+        IntStream.range(0, tasks.length).parallel().forEach(i -> {
+            Location l = tasks[i].getLocation();
+            grid[l.x()][l.y()] = tasks[i];
+        });
+        this.taskGrid = grid;
+    }
+
+    @Override
+    @Nullable
+    public Task get(final int x, final int y) {
+        return taskGrid[x][y];
+    }
+}
@@ -0,0 +1,36 @@
+package org.roach.intelligentagents.model;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Receives what an agent does that the grid must know about. Agents call these
+ * methods directly on every tick, so implementations should not allocate.
+ *
+ * @author Larry S. Roach
+ */
+public interface GridListener {
+    /**
+     * An agent has been created and placed.
+     *
+     * @param agent The new agent
+     */
+    void onNewAgent(@NonNull Agent agent);
+
+    /**
+     * An agent has finished its action. Called even if the agent did not move.
+     *
+     * @param agent The agent
+     * @param from  Where the agent stood before acting, packed by
+     *              {@link Coords#pack}
+     * @param to    Where the agent stands now, packed by {@link Coords#pack}
+     */
+    void onMove(@NonNull Agent agent, long from, long to);
+
+    /**
+     * An agent broadcasts the location of a task.
+     *
+     * @param agent The broadcasting agent
+     * @param loc   The task location
+     */
+    void onBroadcast(@NonNull Agent agent, @NonNull Location loc);
+}
@@ -0,0 +1,48 @@
+package org.roach.intelligentagents.model;
+
+/**
+ * The rest of a simulation that runs on other grids, as seen by a grid that
+ * holds one region of it. Besides its own tasks such a grid keeps copies of
+ * the tasks in a margin around its region, its halo, which other grids own:
+ * agents see the copies, but executing one, completing a task and
+ * broadcasting are passed on, to be sent to the grids concerned between
+ * ticks.
+ *
+ * @author Larry S. Roach
+ * @see SimulationGrid#setHalo(HaloListener)
+ */
+public interface HaloListener {
+    /**
+     * @param x The x coordinate of a task on the grid
+     * @param y The y coordinate of the task
+     * @return True if the task is a copy of one that another grid owns
+     */
+    boolean isHalo(int x, int y);
+
+    /**
+     * An agent executed the copy of a task that another grid owns. The copy is
+     * left as it was.
+     *
+     * @param x The x coordinate of the task
+     * @param y The y coordinate of the task
+     */
+    void haloExecution(int x, int y);
+
+    /**
+     * A task on the grid, or a copy of one, became complete.
+     *
+     * @param x The x coordinate of the task
+     * @param y The y coordinate of the task
+     */
+    void taskCompleted(int x, int y);
+
+    /**
+     * An agent broadcast a task location.
+     *
+     * @param x     The x coordinate the agent broadcast from
+     * @param y     The y coordinate the agent broadcast from
+     * @param taskX The x coordinate of the task broadcast
+     * @param taskY The y coordinate of the task broadcast
+     */
+    void broadcast(int x, int y, int taskX, int taskY);
+}
@@ -8,7 +8,6 @@
 package org.roach.intelligentagents.model;
 
 import java.awt.Dimension;
-import java.security.SecureRandom;
 
 import org.eclipse.jdt.annotation.NonNull;
 
@@ -19,8 +18,6 @@ import org.eclipse.jdt.annotation.NonNull;
  * @author L. Stephen Roach
  */
 public record Location(int x, int y) {
-    private final static SecureRandom RAND = new SecureRandom();
-
     /**
      * Converts a Location to a java.awt.Dimension.
      * 
@@ -101,11 +98,4 @@ public record Location(int x, int y) {
     public String toString() {
         return "(" + x + "," + y + ")";
     }
-
-    @NonNull
-    public static Location randomLocation(final int size) {
-        int x = RAND.nextInt(size); // pick a random x
-        int y = RAND.nextInt(size); // pick a random y
-        return new Location(x, y);
-    }
 }
@@ -0,0 +1,24 @@
+package org.roach.intelligentagents.model;
+
+/**
+ * Shared state outside the grid that agents read and write during a tick, such
+ * as a mailbox. During the sense phase of a two-phase tick it must show every
+ * agent the same frozen view and only record changes; the recorded changes are
+ * applied in {@link #applyIntents()}, in an order that does not depend on which
+ * thread ran which agent.
+ *
+ * @author Larry S. Roach
+ * @see SimulationGrid#beginSensePhase()
+ */
+public interface PhaseListener {
+    /**
+     * Called before any agent acts: freeze the state agents will read.
+     */
+    void beginSensePhase();
+
+    /**
+     * Called on a single thread once every agent has acted: apply the recorded
+     * changes.
+     */
+    void applyIntents();
+}
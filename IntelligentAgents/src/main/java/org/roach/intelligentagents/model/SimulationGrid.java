@@ -1,137 +1,361 @@
 package org.roach.intelligentagents.model;
 
-import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.roach.intelligentagents.PropertyConstants;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
+import org.roach.intelligentagents.model.jfr.BroadcastEvent;
+import org.roach.intelligentagents.model.jfr.TaskCompletedEvent;
+import org.roach.intelligentagents.model.metrics.SimMetrics;
 import org.roach.intelligentagents.model.strategy.CommunicatingAgentStrategy;
+import org.roach.intelligentagents.model.trace.TraceRecorder;
 
 /**
  * @author Larry S. Roach
  *
  */
-public class SimulationGrid implements PropertyChangeListener {
-    private List<List<Set<Agent>>> grid;
+public class SimulationGrid implements GridListener {
+    /** Most task executions an agent makes in one action (SearchStrategy makes two). */
+    private static final int EXECUTIONS_PER_ACTION = 2;
+    /** Words of the placement bitmap handled by one parallel chunk, 256K cells. */
+    private static final int PLACEMENT_CHUNK = 4096;
+    /** Average number of tasks per bucket of the open-task index when it is built. */
+    private static final int TASKS_PER_BUCKET = 4;
     private final int gridSize;
-    /** A grid of tasks in x-y coordinates */
-    private Task[][] taskGrid = new Task[0][0];
+    /** The tasks by cell, dense or sparse depending on how many there are */
+    @NonNull
+    private TaskStore taskStore = new DenseTaskStore(0, new Task[0]);
     /** List of all tasks */
     @NonNull
     private List<Task> taskList = new ArrayList<>();
+    /**
+     * Ids of the tasks that are not yet complete, bucketed by location. Built by
+     * {@link #initTaskGrid()}; a task leaves it when an execution completes it.
+     */
+    @Nullable
+    private BucketGrid openTasks;
     /** Number of tasks */
     private final int numTasks;
     /** Number of "complete" tasks */
-    private volatile int numTasksComplete; // NOPMD by Family on 11/26/19, 2:28 PM
+    @NonNull
+    private final AtomicInteger numTasksComplete = new AtomicInteger();
     private PropertyChangeSupport mPcs = new PropertyChangeSupport(this);
     /** The list of all agents */
     @NonNull
     private List<Agent> agents = new ArrayList<>();
 
     /**
-     * A table of sets of agents. This data structure is used to greatly speed up
-     * the "communications" between agents. Each table entry represents a row of the
-     * grid-space. Each entry in a set represents a column value. This allows an
-     * agent to search the space "nearby" in less than O(n^2) time, by essentially
-     * allowing the algorithm to skip blank rows and columns.
+     * A spatial hash of agent ids by cell. This data structure is used to greatly
+     * speed up the "communications" between agents: it allows an agent to search
+     * the space "nearby" without looking at every agent, by skipping blank rows
+     * and probing only the cells within range.
      */
-    private Map<Integer, HashSet<Integer>> xRef;
+    @NonNull
+    private final CellIndex agentIndex;
+    /**
+     * Optional coarse buckets over the same agents. When present, radius queries
+     * only visit the buckets overlapping the circle instead of every row in range.
+     */
+    @Nullable
+    private final BucketGrid buckets;
+    /** Agents registered with this grid, indexed by agent id. */
+    @NonNull
+    private Agent[] agentTable = new Agent[0];
+    /** The id to give the next agent placed on this grid. */
+    private int nextAgentId;
+    /**
+     * True during the sense phase of a two-phase tick: the agent index and task
+     * state are frozen, and agents' effects are recorded as intents until
+     * {@link #applyIntents()}.
+     */
+    private volatile boolean sensing;
+    /** Broadcast recorded by each agent during the sense phase, by agent id. */
+    @NonNull
+    private Location[] pendingBroadcasts = new Location[0];
+    /** Packed location where each agent stood when it recorded its broadcast. */
+    @NonNull
+    private long[] pendingSenders = new long[0];
+    /**
+     * Packed locations of the task executions recorded during the sense phase,
+     * {@link #EXECUTIONS_PER_ACTION} slots per agent id; empty slots hold
+     * {@link Coords#NONE}.
+     */
+    @NonNull
+    private long[] pendingExecutions = new long[0];
+    /** Shared state outside the grid that takes part in two-phase ticks. */
+    @NonNull
+    private final List<PhaseListener> phaseListeners = new ArrayList<>();
+    /** Reused to deliver broadcasts without allocating a visitor per message. */
+    @NonNull
+    private final MessageDelivery delivery = new MessageDelivery();
+    /** The root of every random stream in the simulation; see {@link #splitRandom()}. */
+    @NonNull
+    private SplittableRandom random;
+    /** Where events are counted, or null if metrics are off. */
+    @Nullable
+    private SimMetrics metrics;
+    /** Where task executions and broadcasts are recorded, or null if the run is not traced. */
+    @Nullable
+    private TraceRecorder trace;
+    /** The grids holding the rest of a partitioned run, or null if this grid holds all of it. */
+    @Nullable
+    private HaloListener halo;
 
     public SimulationGrid(final int gridSize, final int numTasks) {
+        this(gridSize, numTasks, 0);
+    }
+
+    /**
+     * @param gridSize   The width and height of the grid
+     * @param numTasks   The number of tasks to place
+     * @param bucketSize The side of a coarse query bucket, ideally close to the
+     *                   communication distance; 0 disables the bucket layer
+     */
+    public SimulationGrid(final int gridSize, final int numTasks, final int bucketSize) {
+        this(gridSize, numTasks, bucketSize, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * @param gridSize   The width and height of the grid
+     * @param numTasks   The number of tasks to place
+     * @param bucketSize The side of a coarse query bucket, ideally close to the
+     *                   communication distance; 0 disables the bucket layer
+     * @param seed       The seed of every random choice made in the simulation
+     */
+    public SimulationGrid(final int gridSize, final int numTasks, final int bucketSize, final long seed) {
+        this.random = new SplittableRandom(seed);
         this.gridSize = gridSize;
         this.numTasks = numTasks;
-        this.grid = Collections.nCopies(gridSize, Collections.nCopies(gridSize, new HashSet<Agent>()));
-        this.xRef = new HashMap<>();
+        this.agentIndex = new CellIndex(gridSize, 0);
+        this.buckets = bucketSize > 0 ? new BucketGrid(gridSize, bucketSize, 0) : null;
     }
 
     @Override
-    public void propertyChange(@Nullable final PropertyChangeEvent evt) {
-        if (evt == null)
-            return;
-        final String message = evt.getPropertyName(); // NOPMD by Family on 11/26/19, 2:44 PM
-        final Agent sender = (Agent) evt.getSource();
-        if (sender == null)
-            return;
-        final Location newLocation = (Location) evt.getNewValue();
-        if (newLocation == null)
-            return;
-        if (message.equals(PropertyConstants.NEW_AGENT)) {
-            addAgentToCell(sender);
-            addAgentToXref(sender);
-        } else if (message.equals(PropertyConstants.SEND_MESSAGE)) {
-            Set<Agent> list = getNearbyAgents(sender.getLoc(),
-                    ((CommunicatingAgentStrategy) sender.getStrategy()).getCommDist());
-            for (Agent receiver : list) { // For each agent in the list
-                // Send the agent the message
-                ((CommunicatingAgentStrategy) receiver.getStrategy()).receiveMessage(newLocation);
-            }
-        } else if (message.equals(PropertyConstants.PREPARE_TO_ACT)) {
-            removeAgentFromCell(sender);
-            removeAgentFromXref(sender);
-        } else if (message.equals(PropertyConstants.UPDATE_GRID)) {
-            addAgentToCell(sender);
-            addAgentToXref(sender);
+    public void onNewAgent(@NonNull final Agent agent) {
+        registerAgent(agent);
+        addAgentToCell(agent);
+    }
+
+    @Override
+    public void onMove(@NonNull final Agent agent, final long from, final long to) {
+        // During the sense phase the whole index is rebuilt in applyIntents()
+        if (!sensing && from != to)
+            indexAgent(agent.getId(), Coords.x(to), Coords.y(to));
+    }
+
+    @Override
+    public void onBroadcast(@NonNull final Agent agent, @NonNull final Location loc) {
+        SimMetrics m = metrics;
+        if (m != null)
+            m.count(SimMetrics.Counter.MESSAGES_SENT);
+        if (sensing) {
+            // Each agent broadcasts at most once per action, so its own slot suffices
+            pendingBroadcasts[agent.getId()] = loc;
+            pendingSenders[agent.getId()] = agent.getPos();
         } else {
-            System.err.println("Unsupported message type: " + evt.getPropertyName()); // NOPMD by Family on 11/26/19,
-            // 2:19 PM
+            broadcast(agent, agent.getPos(), loc);
         }
     }
 
     /**
-     * Used for record-keeping; adds the agent to the list of agents in the xRef
-     * data structure.
+     * Hands out the next agent id. Ids are dense per grid so that they can index
+     * the primitive arrays used by the agent index.
      * 
-     * @param a The agent to be added
+     * @return A new agent id
      */
-    private void addAgentToXref(@NonNull final Agent a) {
-        Integer X = a.getLoc().x();
-        // If the HashSet entry doesn't exist, create it
-        if (!xRef.containsKey(X)) {
-            xRef.put(X, new HashSet<Integer>());
+    public int nextAgentId() {
+        return nextAgentId++;
+    }
+
+    /**
+     * Splits off an independent random stream. Agents, tasks and strategies each
+     * take their own stream when they are created, so drawing from it needs no
+     * locking, and a run is repeated exactly by its seed as long as they are
+     * created in the same order. Not thread-safe.
+     * 
+     * @return A new random stream
+     */
+    @NonNull
+    public SplittableRandom splitRandom() {
+        return random.split();
+    }
+
+    /**
+     * Turns metrics on for this grid. Set before agents are created, so that
+     * shared state they make, such as a mailbox, can register its gauges.
+     * 
+     * @param metrics Where to count events, or null to turn metrics off
+     */
+    public void setMetrics(@Nullable final SimMetrics metrics) { this.metrics = metrics; }
+
+    /**
+     * @return Where events on this grid are counted, or null if metrics are off
+     */
+    @Nullable
+    public SimMetrics getMetrics() { return metrics; }
+
+    /**
+     * Records the task executions and broadcasts of this grid in a trace. Set
+     * between ticks.
+     * 
+     * @param trace Where to record, or null to stop recording
+     */
+    public void setTrace(@Nullable final TraceRecorder trace) { this.trace = trace; }
+
+    /**
+     * Makes this grid one region of a partitioned run: executions of the tasks
+     * the listener calls halo copies are passed to it instead of being made, and
+     * it hears of every completion. Set before agents act.
+     * 
+     * @param halo The grids holding the rest of the run, or null if this grid
+     *             holds all of it
+     */
+    public void setHalo(@Nullable final HaloListener halo) { this.halo = halo; }
+
+    /**
+     * @return The grids holding the rest of a partitioned run, or null if this
+     *         grid holds all of it
+     */
+    @Nullable
+    public HaloListener getHalo() { return halo; }
+
+    /**
+     * Used for record-keeping; makes the agent reachable from its id.
+     * 
+     * @param a The agent to be registered
+     */
+    private void registerAgent(@NonNull final Agent a) {
+        int id = a.getId();
+        if (id >= agentTable.length) {
+            int length = Math.max(id + 1, agentTable.length * 2);
+            agentTable = Arrays.copyOf(agentTable, length);
+            pendingBroadcasts = Arrays.copyOf(pendingBroadcasts, length);
+            pendingSenders = Arrays.copyOf(pendingSenders, length);
+            int oldSlots = pendingExecutions.length;
+            pendingExecutions = Arrays.copyOf(pendingExecutions, length * EXECUTIONS_PER_ACTION);
+            Arrays.fill(pendingExecutions, oldSlots, pendingExecutions.length, Coords.NONE);
         }
-        // Add the y-coordinate to the set
-        xRef.get(X).add(a.getLoc().y());
+        agentTable[id] = a;
     }
 
     /**
-     * Used for record-keeping; removes the agent from the list of agents in the
-     * xRef data structure.
+     * Registers shared state that must also freeze during the sense phase of a
+     * two-phase tick. Registering the same listener twice has no effect.
      * 
-     * @param a The agent to be removed
+     * @param listener The listener to add
      */
-    private void removeAgentFromXref(@NonNull final Agent a) {
-        // Remove value from set
-        xRef.get(a.getLoc().x()).remove(a.getLoc().y());
+    public void addPhaseListener(@NonNull final PhaseListener listener) {
+        if (!phaseListeners.contains(listener))
+            phaseListeners.add(listener);
     }
 
     /**
-     * @param a The agent to be added
+     * Starts the sense phase of a two-phase tick. Until {@link #applyIntents()},
+     * agents see the grid, the tasks and the phase listeners as they were when
+     * the phase began, and their moves, broadcasts and task executions are only
+     * recorded. Agents may therefore act in any order, on any number of threads,
+     * with the same result.
      */
-    private void addAgentToCell(@NonNull final Agent a) {
-        grid.get(a.getLoc().x()).get(a.getLoc().y()).add(a);
+    public void beginSensePhase() {
+        for (PhaseListener l : phaseListeners)
+            l.beginSensePhase();
+        sensing = true;
     }
 
     /**
-     * Used for record-keeping; removes the agent from the list of agents in the
-     * agentGrid data structure.
+     * Ends the sense phase and applies what the agents recorded: task executions
+     * in agent-id order, then every agent is reindexed at its new location, then
+     * broadcasts are delivered in agent-id order, and finally the phase listeners
+     * apply their own intents. Must be called from a single thread once all
+     * agents have acted.
+     */
+    public void applyIntents() {
+        sensing = false;
+        for (int slot = 0; slot < nextAgentId * EXECUTIONS_PER_ACTION; slot++) {
+            long p = pendingExecutions[slot];
+            if (p != Coords.NONE) {
+                executeTaskAt(Coords.x(p), Coords.y(p));
+                pendingExecutions[slot] = Coords.NONE;
+            }
+        }
+        for (int id = 0; id < nextAgentId; id++) {
+            Agent a = agentTable[id];
+            if (a != null)
+                addAgentToCell(a);
+        }
+        for (int id = 0; id < nextAgentId; id++) {
+            Location message = pendingBroadcasts[id];
+            if (message != null) {
+                broadcast(agentTable[id], pendingSenders[id], message);
+                pendingBroadcasts[id] = null;
+            }
+        }
+        for (PhaseListener l : phaseListeners)
+            l.applyIntents();
+    }
+
+    /**
+     * @return True during the sense phase of a two-phase tick
+     */
+    public boolean isSensing() { return sensing; }
+
+    /**
+     * Sends a task location to every agent within the sender's communication
+     * distance.
+     * 
+     * @param sender  The broadcasting agent
+     * @param from    Packed location where the sender stood when it broadcast
+     * @param message The task location being broadcast
+     */
+    private void broadcast(@NonNull final Agent sender, final long from, @NonNull final Location message) {
+        BroadcastEvent event = new BroadcastEvent();
+        event.begin();
+        int radius = ((CommunicatingAgentStrategy) sender.getStrategy()).getCommDist();
+        delivery.message = message;
+        int delivered = visitAgentIdsWithin(Coords.x(from), Coords.y(from), radius, delivery);
+        delivery.message = null;
+        event.end();
+        TraceRecorder t = trace;
+        if (t != null)
+            t.broadcast(sender.getId(), from, radius, message, delivered);
+        if (event.shouldCommit()) {
+            event.sender = sender.getId();
+            event.x = Coords.x(from);
+            event.y = Coords.y(from);
+            event.radius = radius;
+            event.receivers = delivered;
+            event.commit();
+        }
+        SimMetrics m = metrics;
+        if (m != null)
+            m.add(SimMetrics.Counter.MESSAGES_RECEIVED, delivered);
+    }
+
+    /**
+     * Indexes an agent at its current location, moving it if already indexed.
      * 
-     * @param a The agent to be removed
+     * @param a The agent to be added
      */
-    private void removeAgentFromCell(@NonNull final Agent a) {
-        grid.get(a.getLoc().x()).get(a.getLoc().y()).remove(a);
+    private void addAgentToCell(@NonNull final Agent a) {
+        indexAgent(a.getId(), a.getX(), a.getY());
     }
 
     /**
-     * Get a list of agents in broadcast range.
+     * Get a list of agents in broadcast range. Agents standing on loc itself are
+     * not included.
      * 
      * @return List of agents
      * @param loc      The location at the center of the search area
@@ -139,31 +363,155 @@ public class SimulationGrid implements PropertyChangeListener {
      */
     @NonNull
     public Set<Agent> getNearbyAgents(@NonNull final Location loc, final int distance) {
-        int commDistSq = distance * distance;
-        // Initialize the list to return
         Set<Agent> list = new HashSet<>();
+        forEachAgentWithin(loc, distance, list::add);
+        return list;
+    }
+
+    /**
+     * Hands every agent within distance of loc to the visitor. Agents standing on
+     * loc itself are skipped, so an agent never hears its own broadcast. Nothing is
+     * allocated per call.
+     * 
+     * @param loc      The location at the center of the search area
+     * @param distance The radius to search around the location
+     * @param visitor  Receives each agent in range
+     */
+    public void forEachAgentWithin(@NonNull final Location loc, final int distance,
+            @NonNull final AgentVisitor visitor) {
+        forEachAgentIdWithin(loc.x(), loc.y(), distance, id -> visitor.visit(agentTable[id]));
+    }
+
+    /**
+     * Hands the id of every agent within distance of (x, y) to the visitor, as
+     * {@link #forEachAgentWithin} does for agent objects. Works for agents that
+     * only exist as ids, such as those of an array-backed store.
+     * 
+     * @param x        The x coordinate at the center of the search area
+     * @param y        The y coordinate at the center of the search area
+     * @param distance The radius to search around the location
+     * @param visitor  Receives the id of each agent in range
+     */
+    public void forEachAgentIdWithin(final int x, final int y, final int distance,
+            @NonNull final AgentIdVisitor visitor) {
+        visitAgentIdsWithin(x, y, distance, visitor);
+    }
+
+    /**
+     * Does {@link #forEachAgentIdWithin} and counts the query.
+     * 
+     * @return The number of agents visited
+     */
+    private int visitAgentIdsWithin(final int x, final int y, final int distance,
+            @NonNull final AgentIdVisitor visitor) {
+        int visited = buckets != null ? forEachAgentInBuckets(buckets, x, y, distance, visitor)
+                : forEachAgentInRows(x, y, distance, visitor);
+        SimMetrics m = metrics;
+        if (m != null) {
+            m.count(SimMetrics.Counter.NEIGHBOR_QUERIES);
+            m.add(SimMetrics.Counter.NEIGHBORS_VISITED, visited);
+        }
+        return visited;
+    }
+
+    /**
+     * Indexes an agent that only exists as an id, or moves it if already indexed.
+     * 
+     * @param id The agent id, from {@link #nextAgentId()}
+     * @param x  The agent's x coordinate
+     * @param y  The agent's y coordinate
+     */
+    public void indexAgent(final int id, final int x, final int y) {
+        agentIndex.add(id, x, y);
+        if (buckets != null)
+            buckets.add(id, x, y);
+    }
+
+    /**
+     * Takes an agent that only exists as an id out of the index, as when it
+     * leaves for another region.
+     * 
+     * @param id The agent id
+     */
+    public void unindexAgent(final int id) {
+        agentIndex.remove(id);
+        if (buckets != null)
+            buckets.remove(id);
+    }
+
+    /**
+     * Radius query over the coarse buckets: visits only the buckets overlapping
+     * the bounding square of the circle and tests each agent in them exactly. Returns the number of
+     * agents visited.
+     */
+    private int forEachAgentInBuckets(@NonNull final BucketGrid grid, final int cx, final int cy,
+            final int distance, @NonNull final AgentIdVisitor visitor) {
+        int visited = 0;
+        final int distSq = distance * distance;
+        final int startBx = grid.toBucket(Math.max(cx - distance, 0));
+        final int endBx = grid.toBucket(Math.min(cx + distance, gridSize - 1));
+        final int startBy = grid.toBucket(Math.max(cy - distance, 0));
+        final int endBy = grid.toBucket(Math.min(cy + distance, gridSize - 1));
+        for (int bx = startBx; bx <= endBx; bx++) {
+            for (int by = startBy; by <= endBy; by++) {
+                for (int id = grid.first(bx, by); id != BucketGrid.NONE; id = grid.next(id)) {
+                    int dx = grid.x(id) - cx;
+                    int dy = grid.y(id) - cy;
+                    if ((dx != 0 || dy != 0) && dx * dx + dy * dy <= distSq) {
+                        visitor.visit(id);
+                        visited++;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Radius query over the cell index: walks each row in range, either agent by
+     * agent or cell by cell, whichever is shorter. Returns the number of
+     * agents visited.
+     */
+    private int forEachAgentInRows(final int cx, final int cy, final int distance,
+            @NonNull final AgentIdVisitor visitor) {
+        int visited = 0;
+        final int distSq = distance * distance;
         // Calculate the rows to check
-        Integer startCheckX = (loc.x() > distance) ? (loc.x() - distance) : 0;
-        Integer endCheckX = ((loc.x() + distance) < (gridSize - 1)) ? (loc.x() + distance) : (gridSize - 1);
+        final int startCheckX = Math.max(cx - distance, 0);
+        final int endCheckX = Math.min(cx + distance, gridSize - 1);
 
         // Go through each X value within the boundaries
-        for (Integer X = startCheckX; X <= endCheckX; X++) {
-            if (xRef.containsKey(X)) {
-                // If there are any agents on this row...
-                for (Integer Y : xRef.get(X)) {
-                    // For each Y-coordinate on the row
-                    Location checkLoc = new Location(X, Y); // NOPMD by Family on 11/26/19, 2:24 PM
-                    if (!loc.equals(checkLoc)) {
-                        // Make sure loc != checkLoc (i.e., agent doesn't
-                        // communicate with itself)
-                        if (loc.isInCircle(checkLoc, commDistSq)) // If the location is within broadcast range, add
-                            // all agents in that location to the list
-                            list.addAll(grid.get(checkLoc.x()).get(checkLoc.y()));
+        for (int x = startCheckX; x <= endCheckX; x++) {
+            int rowCount = agentIndex.rowCount(x);
+            if (rowCount == 0)
+                continue; // No agents on this row
+            int dx = x - cx;
+            int reach = (int) Math.sqrt(distSq - dx * dx);
+            int startCheckY = Math.max(cy - reach, 0);
+            int endCheckY = Math.min(cy + reach, gridSize - 1);
+            if (rowCount <= endCheckY - startCheckY) {
+                // Sparse row: look at each agent on it
+                for (int id = agentIndex.firstInRow(x); id != CellIndex.NONE; id = agentIndex.nextInRow(id)) {
+                    int y = agentIndex.y(id);
+                    if (y >= startCheckY && y <= endCheckY && (dx != 0 || y != cy)) {
+                        visitor.visit(id);
+                        visited++;
+                    }
+                }
+            } else {
+                // Crowded row: probe each cell within range
+                for (int y = startCheckY; y <= endCheckY; y++) {
+                    if (dx == 0 && y == cy)
+                        continue; // Agents don't communicate with themselves
+                    for (int id = agentIndex.firstInCell(x, y); id != CellIndex.NONE; id = agentIndex
+                            .nextInCell(id)) {
+                        visitor.visit(id);
+                        visited++;
                     }
                 }
             }
         }
-        return list;
+        return visited;
     }
 
     /**
@@ -173,44 +521,300 @@ public class SimulationGrid implements PropertyChangeListener {
      */
     public int getGridSize() { return gridSize; }
 
+    /**
+     * Places numTasks tasks on distinct cells chosen uniformly at random from the
+     * grid's seed. The cells are drawn with Floyd's sampling, which takes exactly
+     * numTasks draws however dense the grid is, into a bitmap over cell indices;
+     * the tasks are then made in parallel chunks of the bitmap. Task ids follow
+     * cell order, x-major. Grids that tasks cover sparsely keep them in a hash
+     * map instead of a reference per cell; see {@link TaskStore}.
+     */
     public void initTaskGrid() {
-        taskGrid = new Task[this.gridSize][this.gridSize];
-        if (!taskList.isEmpty()) {
-            taskList.clear();
-
+        long cells = (long) gridSize * gridSize;
+        if (numTasks > cells)
+            throw new IllegalArgumentException(numTasks + " tasks do not fit on a grid of size " + gridSize);
+        SplittableRandom placement = random.split();
+        long[] chosen = new long[(int) ((cells + 63) >>> 6)];
+        for (long j = cells - numTasks; j < cells; j++) {
+            long c = placement.nextLong(j + 1);
+            if ((chosen[(int) (c >>> 6)] & (1L << c)) != 0)
+                c = j; // Already chosen; j cannot have been, as every draw so far was below it
+            chosen[(int) (c >>> 6)] |= 1L << c;
         }
-        for (int whichTask = 0; whichTask < numTasks; whichTask++) {
-            boolean taskPlaced = false;
-            while (!taskPlaced) { // Keep picking random locations until an unused
-                // square is found.
-                Location tempLoc = Location.randomLocation(this.gridSize);
-                if (!isTask(tempLoc)) { // If no task exists there
-                    taskPlaced = true; // Set to exit the while-loop
-                    Task newTask = new Task(tempLoc); // NOPMD by Family on 11/26/19, 2:43 PM
-                    taskList.add(newTask);
-                    taskGrid[tempLoc.x()][tempLoc.y()] = newTask;
+        // The id of the first task in each chunk is the number of cells chosen before it
+        int chunks = (chosen.length + PLACEMENT_CHUNK - 1) / PLACEMENT_CHUNK;
+        int[] firstIds = new int[chunks];
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            int count = firstIds[chunk - 1];
+            for (int w = (chunk - 1) * PLACEMENT_CHUNK; w < chunk * PLACEMENT_CHUNK; w++)
+                count += Long.bitCount(chosen[w]);
+            firstIds[chunk] = count;
+        }
+        long taskSeed = placement.nextLong();
+        Task[] tasks = new Task[numTasks];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int id = firstIds[chunk];
+            for (int w = chunk * PLACEMENT_CHUNK, last = Math.min(w + PLACEMENT_CHUNK, chosen.length); w < last; w++) {
+                for (long bits = chosen[w]; bits != 0; bits &= bits - 1) {
+                    long c = ((long) w << 6) + Long.numberOfTrailingZeros(bits);
+                    int x = (int) (c / gridSize);
+                    int y = (int) (c % gridSize);
+                    tasks[id] = new Task(new Location(x, y), id, taskSeed + id); // NOPMD by Family on 11/26/19, 2:43 PM
+                    id++;
                 }
             }
+        });
+        setTasks(tasks);
+    }
+
+    /**
+     * Makes the given tasks the grid's, indexing those that are not complete.
+     * 
+     * @param tasks The tasks, by id
+     */
+    private void setTasks(@NonNull final Task[] tasks) {
+        taskStore = TaskStore.of(gridSize, tasks);
+        taskList = Arrays.asList(tasks);
+        BucketGrid open = indexOpenTasks(tasks, (long) gridSize * gridSize);
+        openTasks = open;
+        numTasksComplete.set(tasks.length - open.size());
+    }
+
+    /**
+     * Buckets the given tasks that are not complete by location, with buckets
+     * sized so that each holds about {@link #TASKS_PER_BUCKET} tasks.
+     */
+    @NonNull
+    private BucketGrid indexOpenTasks(@NonNull final Task[] tasks, final long cells) {
+        int bucketSize = (int) Math.sqrt((double) cells * TASKS_PER_BUCKET / Math.max(tasks.length, 1));
+        BucketGrid open = new BucketGrid(gridSize, Math.max(1, Math.min(bucketSize, gridSize)), tasks.length);
+        for (Task t : tasks)
+            if (t.getPrio() < Task.getTaskComplete())
+                open.add(t.getId(), t.getLocation().x(), t.getLocation().y());
+        return open;
+    }
+
+    /**
+     * Writes the grid and the progress of its tasks to a checkpoint. The root
+     * random stream, and that of every task, is re-seeded from itself, so that
+     * this run and a run restored from the checkpoint go on drawing the same
+     * numbers. Called between ticks.
+     * 
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        if (agentIndex.size() != agents.size())
+            throw new IllegalStateException("Only agents kept as objects can be checkpointed");
+        long seed = random.nextLong();
+        random = new SplittableRandom(seed);
+        int n = taskList.size();
+        long[] locations = new long[n];
+        long[] seeds = new long[n];
+        byte[] prios = new byte[n];
+        for (int i = 0; i < n; i++) {
+            Task t = taskList.get(i);
+            locations[i] = Coords.pack(t.getLocation().x(), t.getLocation().y());
+            seeds[i] = t.reseed();
+            prios[i] = (byte) t.getPrio();
         }
-        numTasksComplete = 0;
+        out.putInt(gridSize);
+        out.putInt(numTasks);
+        out.putInt(buckets != null ? buckets.getBucketSize() : 0);
+        out.putLong(seed);
+        out.putLongs(locations);
+        out.putLongs(seeds);
+        out.putBytes(prios);
+    }
+
+    /**
+     * Makes a grid from a checkpoint, with its tasks as they were and no agents.
+     * 
+     * @param in Where to read
+     * @return The grid
+     * @throws IOException If the checkpoint is inconsistent
+     */
+    @NonNull
+    public static SimulationGrid readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        int gridSize = in.getInt();
+        int numTasks = in.getInt();
+        int bucketSize = in.getInt();
+        SimulationGrid simGrid = new SimulationGrid(gridSize, numTasks, bucketSize, in.getLong());
+        long[] locations = in.getLongs();
+        long[] seeds = in.getLongs();
+        byte[] prios = in.getBytes();
+        if (seeds.length != locations.length || prios.length != locations.length)
+            throw new IOException("Checkpoint has " + locations.length + " task locations, " + seeds.length
+                    + " seeds and " + prios.length + " priorities");
+        simGrid.placeTasks(locations, seeds, prios);
+        return simGrid;
+    }
+
+    /**
+     * Makes a grid with tasks at the given locations and priorities and no
+     * agents, to replay a recorded run on. Its tasks only change through
+     * {@link #replayExecution(int)}.
+     * 
+     * @param gridSize  The width and height of the grid
+     * @param locations The location of each task, packed by {@link Coords#pack}
+     * @param prios     The priority of each task
+     * @return The grid
+     */
+    @NonNull
+    public static SimulationGrid replayGrid(final int gridSize, @NonNull final long[] locations,
+            @NonNull final byte[] prios) {
+        SimulationGrid simGrid = new SimulationGrid(gridSize, locations.length, 0, 0L);
+        simGrid.placeTasks(locations, new long[locations.length], prios);
+        return simGrid;
+    }
+
+    /**
+     * Makes a grid with new tasks at the given locations and no agents, to hold
+     * one region of a partitioned run and the halo around it.
+     * 
+     * @param gridSize   The width and height of the grid
+     * @param bucketSize The side of a coarse query bucket; 0 disables the bucket
+     *                   layer
+     * @param seed       The seed of every random choice made on the grid
+     * @param locations  The location of each task, packed by {@link Coords#pack}
+     * @param seeds      The seed of each task
+     * @return The grid
+     */
+    @NonNull
+    public static SimulationGrid regionGrid(final int gridSize, final int bucketSize, final long seed,
+            @NonNull final long[] locations, @NonNull final long[] seeds) {
+        SimulationGrid simGrid = new SimulationGrid(gridSize, locations.length, bucketSize, seed);
+        simGrid.placeTasks(locations, seeds, new byte[locations.length]);
+        return simGrid;
+    }
+
+    /**
+     * Gives the grid tasks at the given locations, with the given seeds and
+     * priorities, in place of initTaskGrid().
+     */
+    private void placeTasks(@NonNull final long[] locations, @NonNull final long[] seeds,
+            @NonNull final byte[] prios) {
+        if (locations.length == 0)
+            return;
+        Task[] tasks = new Task[locations.length];
+        for (int i = 0; i < tasks.length; i++)
+            tasks[i] = new Task(new Location(Coords.x(locations[i]), Coords.y(locations[i])), i, seeds[i], prios[i]);
+        setTasks(tasks);
+    }
+
+    /**
+     * Writes the agent index, whose order decides the order in which broadcasts
+     * are heard.
+     * 
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void writeAgentIndex(@NonNull final CheckpointWriter out) throws IOException {
+        agentIndex.writeCheckpoint(out);
+        if (buckets != null)
+            buckets.writeCheckpoint(out);
+    }
+
+    /**
+     * Replaces the agent index with the one written by
+     * {@link #writeAgentIndex}. Called once the agents are restored.
+     * 
+     * @param in Where to read
+     * @throws IOException If the index does not fit this grid
+     */
+    public void readAgentIndex(@NonNull final CheckpointReader in) throws IOException {
+        agentIndex.readCheckpoint(in);
+        if (buckets != null)
+            buckets.readCheckpoint(in);
     }
 
     public void setAgents(List<Agent> agents) { this.agents = agents; }
 
     /**
-     * Executes the task at the given location.
+     * Executes the task at the given location. Safe to call from several threads.
      * 
      * @param loc The location of the task to execute
      */
     public void executeTaskAt(@NonNull final Location loc) {
-        if (isTask(loc)) {
-            Task task = taskGrid[loc.x()][loc.y()];
-            task.execute();
-            if (task.isComplete()) { // If task is now complete, let listeners know
-                numTasksComplete++;
-                mPcs.firePropertyChange(PropertyConstants.TASK_COMPLETE, numTasksComplete - 1, numTasksComplete);
+        executeTaskAt(loc.x(), loc.y());
+    }
+
+    /**
+     * Executes the task at the given coordinates, if there is one.
+     * 
+     * @param x The x coordinate of the task
+     * @param y The y coordinate of the task
+     */
+    public void executeTaskAt(final int x, final int y) {
+        Task task = taskStore.get(x, y);
+        if (task == null)
+            return;
+        HaloListener h = halo;
+        if (h != null && h.isHalo(x, y)) {
+            h.haloExecution(x, y);
+            return;
+        }
+        TraceRecorder t = trace;
+        int prio = t != null ? task.getPrio() : 0;
+        boolean completed = task.execute();
+        if (t != null && task.getPrio() != prio)
+            t.taskExecuted(task.getId());
+        if (completed) // If this execution completed the task, let listeners know
+            taskCompleted(task, x, y);
+    }
+
+    /**
+     * Raises the priority of a task as a recorded execution did, without drawing
+     * from its random stream.
+     * 
+     * @param id The task id
+     */
+    public void replayExecution(final int id) {
+        Task task = taskList.get(id);
+        if (task.advance())
+            taskCompleted(task, task.getLocation().x(), task.getLocation().y());
+    }
+
+    /**
+     * Takes a task that has just been completed out of the open tasks and lets
+     * listeners know.
+     */
+    private void taskCompleted(@NonNull final Task task, final int x, final int y) {
+        BucketGrid open = openTasks;
+        if (open != null) {
+            synchronized (open) {
+                open.remove(task.getId());
             }
+        }
+        int complete = numTasksComplete.incrementAndGet();
+        TaskCompletedEvent event = new TaskCompletedEvent();
+        if (event.shouldCommit()) {
+            event.task = task.getId();
+            event.x = x;
+            event.y = y;
+            event.completed = complete;
+            event.commit();
+        }
+        mPcs.firePropertyChange(PropertyConstants.TASK_COMPLETE, complete - 1, complete);
+        HaloListener h = halo;
+        if (h != null)
+            h.taskCompleted(x, y);
+    }
 
+    /**
+     * Executes the task under an agent. During the sense phase the execution is
+     * only recorded, and takes effect in {@link #applyIntents()}.
+     * 
+     * @param a The agent executing the task at its location
+     */
+    public void executeTaskFor(@NonNull final Agent a) {
+        if (sensing) {
+            int slot = a.getId() * EXECUTIONS_PER_ACTION;
+            while (pendingExecutions[slot] != Coords.NONE)
+                slot++;
+            pendingExecutions[slot] = a.getPos();
+        } else {
+            executeTaskAt(a.getX(), a.getY());
         }
     }
 
@@ -221,7 +825,7 @@ public class SimulationGrid implements PropertyChangeListener {
      * @return True if a task exists at loc
      */
     public boolean isTask(@NonNull final Location loc) {
-        return (taskGrid[loc.x()][loc.y()] != null);
+        return (taskStore.get(loc.x(), loc.y()) != null);
     }
 
     /**
@@ -232,7 +836,19 @@ public class SimulationGrid implements PropertyChangeListener {
      */
     @Nullable
     public Task getTask(@NonNull final Location loc) {
-        return taskGrid[loc.x()][loc.y()];
+        return taskStore.get(loc.x(), loc.y());
+    }
+
+    /**
+     * Returns the task at the given coordinates, or null if no task exists.
+     * 
+     * @param x The x coordinate of the task
+     * @param y The y coordinate of the task
+     * @return The task at the given coordinates, or null
+     */
+    @Nullable
+    public Task getTask(final int x, final int y) {
+        return taskStore.get(x, y);
     }
 
     /**
@@ -248,6 +864,82 @@ public class SimulationGrid implements PropertyChangeListener {
         return false;
     }
 
+    /**
+     * Finds the incomplete task nearest to a location, by straight-line distance;
+     * ties go to the task with the lower id. Searches the open-task index ring by
+     * ring outward from the location's bucket, and stops once no farther ring can
+     * hold a closer task. Must not run at the same time as task executions, which
+     * a two-phase tick defers to {@link #applyIntents()}.
+     * 
+     * @param loc The location to search from
+     * @return The nearest incomplete task, possibly the one at loc itself, or null
+     *         if every task is complete
+     */
+    @Nullable
+    public Task nearestOpenTask(@NonNull final Location loc) {
+        BucketGrid open = openTasks;
+        if (open == null || open.size() == 0)
+            return null;
+        final int cx = loc.x();
+        final int cy = loc.y();
+        final int bx0 = open.toBucket(cx);
+        final int by0 = open.toBucket(cy);
+        final int last = open.getBucketsPerSide() - 1;
+        final int maxRing = Math.max(Math.max(bx0, last - bx0), Math.max(by0, last - by0));
+        NearestTask nearest = new NearestTask(open, cx, cy);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            long gap = (long) (ring - 1) * open.getBucketSize() + 1; // Closest a cell of this ring can be
+            if (ring > 0 && gap * gap > nearest.distSq)
+                break;
+            for (int bx = Math.max(bx0 - ring, 0); bx <= Math.min(bx0 + ring, last); bx++) {
+                if (bx == bx0 - ring || bx == bx0 + ring) {
+                    for (int by = Math.max(by0 - ring, 0); by <= Math.min(by0 + ring, last); by++)
+                        nearest.scan(bx, by);
+                } else {
+                    if (by0 - ring >= 0)
+                        nearest.scan(bx, by0 - ring);
+                    if (by0 + ring <= last)
+                        nearest.scan(bx, by0 + ring);
+                }
+            }
+        }
+        return nearest.id == BucketGrid.NONE ? null : taskList.get(nearest.id);
+    }
+
+    /**
+     * Lists the incomplete tasks within a distance of a location, including one
+     * at the location itself, in no particular order. Only the buckets of the
+     * open-task index that overlap the circle are visited. Must not run at the
+     * same time as task executions.
+     * 
+     * @param loc      The location at the center of the search area
+     * @param distance The radius to search around the location
+     * @return The incomplete tasks in range
+     */
+    @NonNull
+    public List<Task> openTasksWithin(@NonNull final Location loc, final int distance) {
+        List<Task> found = new ArrayList<>();
+        BucketGrid open = openTasks;
+        if (open == null)
+            return found;
+        final int cx = loc.x();
+        final int cy = loc.y();
+        final long distSq = (long) distance * distance;
+        final int endBx = open.toBucket(Math.min(cx + distance, gridSize - 1));
+        final int endBy = open.toBucket(Math.min(cy + distance, gridSize - 1));
+        for (int bx = open.toBucket(Math.max(cx - distance, 0)); bx <= endBx; bx++) {
+            for (int by = open.toBucket(Math.max(cy - distance, 0)); by <= endBy; by++) {
+                for (int id = open.first(bx, by); id != BucketGrid.NONE; id = open.next(id)) {
+                    long dx = open.x(id) - cx;
+                    long dy = open.y(id) - cy;
+                    if (dx * dx + dy * dy <= distSq)
+                        found.add(taskList.get(id));
+                }
+            }
+        }
+        return found;
+    }
+
     /**
      * @return task list
      */
@@ -265,6 +957,11 @@ public class SimulationGrid implements PropertyChangeListener {
      */
     public int getNumTasks() { return numTasks; }
 
+    /**
+     * @return the number of tasks completed so far
+     */
+    public int getNumTasksComplete() { return numTasksComplete.get(); }
+
     /**
      * Get the list of all agents
      * 
@@ -274,4 +971,48 @@ public class SimulationGrid implements PropertyChangeListener {
 
     public int getNumAgents() { return agents.size(); }
 
+    /**
+     * The best candidate of a {@link SimulationGrid#nearestOpenTask} search.
+     */
+    private static final class NearestTask {
+        private final BucketGrid open;
+        private final int cx;
+        private final int cy;
+        int id = BucketGrid.NONE;
+        long distSq = Long.MAX_VALUE;
+
+        NearestTask(@NonNull final BucketGrid open, final int cx, final int cy) {
+            this.open = open;
+            this.cx = cx;
+            this.cy = cy;
+        }
+
+        void scan(final int bx, final int by) {
+            for (int t = open.first(bx, by); t != BucketGrid.NONE; t = open.next(t)) {
+                long dx = open.x(t) - cx;
+                long dy = open.y(t) - cy;
+                long d = dx * dx + dy * dy;
+                if (d < distSq || (d == distSq && t < id)) {
+                    id = t;
+                    distSq = d;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivers one broadcast location to every agent it visits.
+     */
+    private final class MessageDelivery implements AgentIdVisitor {
+        @Nullable
+        Location message;
+
+        @Override
+        public void visit(final int id) {
+            Location m = message;
+            if (m != null)
+                ((CommunicatingAgentStrategy) agentTable[id].getStrategy()).receiveMessage(m);
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package org.roach.intelligentagents.model;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * An open-addressing hash map from packed cell coordinates to tasks, for grids
+ * where most cells are empty. The table is at most half full, so a lookup
+ * probes about two slots, and memory grows with the number of tasks rather
+ * than with the area of the grid: 12 bytes per slot, two slots per task.
+ * <p>
+ * The store is filled once and then only read, so any number of threads may
+ * look tasks up at once.
+ *
+ * @author Larry S. Roach
+ */
+public final class SparseTaskStore implements TaskStore {
+    /** Marks an empty slot; no cell packs to it. */
+    private static final long EMPTY = Coords.NONE;
+
+    @NonNull
+    private final Task[] tasks;
+    /** Packed coordinates of the task in each slot, or EMPTY. */
+    @NonNull
+    private final long[] keys;
+    /** Index into tasks of the task in each slot. */
+    @NonNull
+    private final int[] values;
+    /** Shift that turns a 64-bit hash into a slot index. */
+    private final int shift;
+
+    /**
+     * @param tasks Tasks on distinct cells
+     */
+    public SparseTaskStore(@NonNull final Task[] tasks) {
+        this.tasks = tasks;
+        int capacity = Math.max(2, Integer.highestOneBit(Math.max(tasks.length, 1) * 2 - 1) << 1);
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < tasks.length; i++) {
+            Location l = tasks[i].getLocation();
+            long key = Coords.pack(l.x(), l.y());
+            int slot = slot(key);
+            while (keys[slot] != EMPTY)
+                slot = (slot + 1) & (capacity - 1);
+            keys[slot] = key;
+            values[slot] = i;
+        }
+    }
+
+    @Override
+    @Nullable
+    public Task get(final int x, final int y) {
+        long key = Coords.pack(x, y);
+        int mask = keys.length - 1;
+        for (int slot = slot(key);; slot = (slot + 1) & mask) {
+            long k = keys[slot];
+            if (k == key)
+                return tasks[values[slot]];
+            if (k == EMPTY)
+                return null;
+        }
+    }
+
+    private int slot(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
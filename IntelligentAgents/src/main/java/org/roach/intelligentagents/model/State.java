@@ -2,6 +2,7 @@ package org.roach.intelligentagents.model;
 
 import java.awt.Color;
 
+import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
@@ -10,6 +11,9 @@ import org.eclipse.jdt.annotation.Nullable;
  */
 public class State {
     private Agent agent;
+    /** The name of the state, as agents are counted by it; empty if unnamed. */
+    @NonNull
+    private String name = "";
     /** The algorithm that is performed in the State */
     private StateAlgorithm algorithm;
 
@@ -21,6 +25,13 @@ public class State {
     public State() {
     }
 
+    /**
+     * @param name The name of the state
+     */
+    public State(@NonNull final String name) {
+        this.name = name;
+    }
+
     /**
      * @param c     The color that the Agent in this State will be displayed in.
      * @param alg   The algorithm called by this state.
@@ -32,6 +43,23 @@ public class State {
         this.agent = agent;
     }
 
+    /**
+     * @param name  The name of the state
+     * @param c     The color that the Agent in this State will be displayed in.
+     * @param alg   The algorithm called by this state.
+     * @param agent
+     */
+    public State(@NonNull final String name, @Nullable final Color c, StateAlgorithm alg, Agent agent) {
+        this(c, alg, agent);
+        this.name = name;
+    }
+
+    /**
+     * @return The name of the state, or an empty string if it has none
+     */
+    @NonNull
+    public String getName() { return name; }
+
     /**
      * Calls the Agent's public method.
      */
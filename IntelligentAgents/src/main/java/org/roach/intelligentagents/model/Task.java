@@ -12,7 +12,7 @@ package org.roach.intelligentagents.model;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -34,32 +34,99 @@ public final class Task implements ISimItem {
     /** Location of the task within the sim-space. */
     @NonNull
     private final Location location;
+    /** Position of the task in its grid's task list. */
+    private final int id;
     /** Current priority of the task. */
     private int prio;
+    /** Seed of the task's own random stream. */
+    private long seed;
+    /**
+     * The task's own random stream, made on the first execution; only used while
+     * holding the task's lock.
+     */
+    @Nullable
+    private SplittableRandom random;
 
-    private PropertyChangeSupport mPcs = new PropertyChangeSupport(this);
+    /**
+     * Property-change support for views that want to watch this task. Created on
+     * the first listener, so that placing millions of tasks makes one object per
+     * task rather than three.
+     */
+    @Nullable
+    private volatile PropertyChangeSupport mPcs;
 
     /**
      * @param listener
      */
-    public void addPropertyChangeListener(@NonNull final PropertyChangeListener listener) {
+    public synchronized void addPropertyChangeListener(@NonNull final PropertyChangeListener listener) {
+        if (mPcs == null)
+            mPcs = new PropertyChangeSupport(this);
         mPcs.addPropertyChangeListener(listener);
     }
 
     /**
      * @param listener
      */
-    public void removePropertyChangeListener(@NonNull final PropertyChangeListener listener) {
-        mPcs.removePropertyChangeListener(listener);
+    public synchronized void removePropertyChangeListener(@NonNull final PropertyChangeListener listener) {
+        if (mPcs != null)
+            mPcs.removePropertyChangeListener(listener);
     }
 
     /**
+     * Creates a task that is not part of a grid's task list.
+     * 
      * @param inputLoc The location to place the task
      */
     public Task(@NonNull final Location inputLoc) {
+        this(inputLoc, 0, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * @param inputLoc The location to place the task
+     * @param id       The position of the task in its grid's task list
+     * @param seed     Seed of the task's own random stream
+     */
+    public Task(@NonNull final Location inputLoc, final int id, final long seed) {
         location = inputLoc;
+        this.id = id;
+        this.seed = seed;
+    }
+
+    /**
+     * Restores a task from a checkpoint.
+     * 
+     * @param inputLoc The location to place the task
+     * @param id       The position of the task in its grid's task list
+     * @param seed     Seed of the task's own random stream
+     * @param prio     The priority the task had reached
+     */
+    Task(@NonNull final Location inputLoc, final int id, final long seed, final int prio) {
+        this(inputLoc, id, seed);
+        this.prio = prio;
+    }
+
+    /**
+     * Replaces the task's random stream, once it has one, with a fresh one seeded
+     * from it, for a checkpoint.
+     * 
+     * @return The seed of the stream the task draws from next
+     */
+    synchronized long reseed() {
+        SplittableRandom r = random;
+        if (r != null) {
+            seed = r.nextLong();
+            random = null;
+        }
+        return seed;
     }
 
+    /**
+     * Gets the dense id of the task, its position in the grid's task list.
+     * 
+     * @return id
+     */
+    public int getId() { return id; }
+
     /**
      * Gets the current priority of the task.
      * 
@@ -69,17 +136,46 @@ public final class Task implements ISimItem {
 
     /**
      * Executes the task. Has a 90% chance of incrementing the task priority.
+     * Executions are atomic, so agents on different threads may execute the same
+     * task.
+     * 
+     * @return True if this execution completed the task
      */
-    public void execute() {
-        if (!isComplete()) { // If task not already complete
-            Random rand = new Random();
-            float pUp = rand.nextFloat(); // Pick a random float
-            if (pUp < TASK_COMPLETE_PROBABILITY) {
-                prio++;
-                mPcs.firePropertyChange(PropertyConstants.TASK_EXECUTE, prio - 1, prio);
-            }
-        } else // if task is already complete
-            return;
+    public boolean execute() {
+        int newPrio;
+        synchronized (this) {
+            if (isComplete()) // if task is already complete
+                return false;
+            if (random == null)
+                random = new SplittableRandom(seed);
+            float pUp = (float) random.nextDouble(); // Pick a random float
+            if (pUp >= TASK_COMPLETE_PROBABILITY)
+                return false;
+            newPrio = ++prio;
+        }
+        PropertyChangeSupport pcs = mPcs;
+        if (pcs != null)
+            pcs.firePropertyChange(PropertyConstants.TASK_EXECUTE, newPrio - 1, newPrio);
+        return newPrio == getTaskComplete();
+    }
+
+    /**
+     * Raises the priority by one, as an execution that succeeds does, without
+     * drawing from the task's random stream; used to replay a recorded run.
+     * 
+     * @return True if this completed the task
+     */
+    boolean advance() {
+        int newPrio;
+        synchronized (this) {
+            if (isComplete())
+                return false;
+            newPrio = ++prio;
+        }
+        PropertyChangeSupport pcs = mPcs;
+        if (pcs != null)
+            pcs.firePropertyChange(PropertyConstants.TASK_EXECUTE, newPrio - 1, newPrio);
+        return newPrio == getTaskComplete();
     }
 
     /**
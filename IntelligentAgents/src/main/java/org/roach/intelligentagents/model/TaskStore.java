@@ -0,0 +1,44 @@
+package org.roach.intelligentagents.model;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Where a grid keeps its tasks by cell. A dense store holds a reference for
+ * every cell; a sparse one only holds the tasks, for grids far larger than
+ * their number of tasks. Both look a cell up in constant time.
+ *
+ * @author Larry S. Roach
+ */
+public interface TaskStore {
+    /**
+     * Tasks must cover at least this fraction of the cells for the dense store
+     * to be chosen: a dense cell costs one reference, a sparse task about six.
+     */
+    double DENSE_FRACTION = 1.0 / 8;
+
+    /**
+     * Returns the task at the given coordinates, or null if no task exists.
+     *
+     * @param x The x coordinate of the cell
+     * @param y The y coordinate of the cell
+     * @return The task in the cell, or null
+     */
+    @Nullable
+    Task get(int x, int y);
+
+    /**
+     * Stores the given tasks in whichever store takes less memory at their
+     * density.
+     *
+     * @param gridSize The width and height of the grid
+     * @param tasks    Tasks on distinct cells
+     * @return A store holding the tasks
+     */
+    @NonNull
+    static TaskStore of(final int gridSize, @NonNull final Task[] tasks) {
+        if (tasks.length >= DENSE_FRACTION * gridSize * gridSize)
+            return new DenseTaskStore(gridSize, tasks);
+        return new SparseTaskStore(tasks);
+    }
+}
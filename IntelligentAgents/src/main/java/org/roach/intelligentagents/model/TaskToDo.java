@@ -1,6 +1,10 @@
 package org.roach.intelligentagents.model;
 
+import java.io.IOException;
+
 import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
 import org.roach.intelligentagents.view.AAnimator;
 
 /**
@@ -25,6 +29,39 @@ public final class TaskToDo implements Comparable<TaskToDo> {
         this.timeWhenFound = AAnimator.getTime();
     }
 
+    /**
+     * Creates a TaskToDo found at a given time, as restored from a checkpoint.
+     * 
+     * @param inputTaskLoc  Location of the task
+     * @param timeWhenFound The time the task was found
+     */
+    public TaskToDo(@NonNull final Location inputTaskLoc, final int timeWhenFound) {
+        taskLoc = inputTaskLoc;
+        this.timeWhenFound = timeWhenFound;
+    }
+
+    /**
+     * @param out Where to write the TaskToDo
+     * @throws IOException If writing fails
+     */
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        out.putLocation(taskLoc);
+        out.putInt(timeWhenFound);
+    }
+
+    /**
+     * @param in Where to read a TaskToDo written by {@link #writeCheckpoint}
+     * @return The TaskToDo
+     * @throws IOException If there is no TaskToDo to read
+     */
+    @NonNull
+    public static TaskToDo readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        Location loc = in.getLocation();
+        if (loc == null)
+            throw new IOException("TaskToDo without a location");
+        return new TaskToDo(loc, in.getInt());
+    }
+
     /**
      * Get the location of the TaskToDo.
      * 
@@ -0,0 +1,101 @@
+package org.roach.intelligentagents.model.checkpoint;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.AgentFactory;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.metrics.SimMetrics;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+
+/**
+ * A simulation saved to or restored from a binary checkpoint: the grid with the
+ * progress of every task, the agents with their locations, executed tasks and
+ * strategy state, state the agents of a strategy share, such as a mailbox,
+ * the agent index, and the animator's clock.
+ * <p>
+ * Taking a checkpoint re-seeds every random stream from itself, so the run that
+ * goes on and any run restored from the checkpoint draw the same numbers and
+ * stay tick for tick the same. Checkpoints are taken between ticks. Agents
+ * kept in an {@link org.roach.intelligentagents.model.store.AgentStore} are not
+ * covered.
+ *
+ * @param simGrid The restored grid, with its agents
+ * @param time    The animator's clock when the checkpoint was taken
+ *
+ * @author Larry S. Roach
+ */
+public record Checkpoint(@NonNull SimulationGrid simGrid, int time) {
+
+    /**
+     * Saves a simulation, replacing the file only once it is completely written.
+     *
+     * @param file    Where to write
+     * @param simGrid The grid to save, with its agents
+     * @param time    The animator's clock
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(@NonNull final Path file, @NonNull final SimulationGrid simGrid, final int time)
+            throws IOException {
+        List<Agent> agents = simGrid.getAgents();
+        try (CheckpointWriter out = new CheckpointWriter(file)) {
+            out.putInt(time);
+            out.putString(agents.isEmpty() ? "" : agents.get(0).getStrategy().getClass().getName());
+            out.putInt(agents.size());
+            simGrid.writeCheckpoint(out);
+            if (!agents.isEmpty())
+                agents.get(0).getStrategy().writeShared(out);
+            for (Agent a : agents)
+                a.writeCheckpoint(out);
+            simGrid.writeAgentIndex(out);
+            out.commit();
+        }
+    }
+
+    /**
+     * Restores a simulation. The agents are made anew with the strategy they had
+     * and then given their saved state.
+     *
+     * @param file    The checkpoint to read
+     * @param metrics Where the restored grid counts events, or null
+     * @return The restored simulation
+     * @throws IOException If the file cannot be read or is not a valid checkpoint
+     */
+    @NonNull
+    public static Checkpoint read(@NonNull final Path file, @Nullable final SimMetrics metrics) throws IOException {
+        CheckpointReader in = new CheckpointReader(file);
+        int time = in.getInt();
+        String strategyName = in.getString();
+        int numAgents = in.getInt();
+        SimulationGrid simGrid = SimulationGrid.readCheckpoint(in);
+        simGrid.setMetrics(metrics);
+        if (numAgents > 0) {
+            AgentFactory factory = new AgentFactory();
+            factory.setSimGrid(simGrid);
+            factory.setNumAgents(numAgents);
+            factory.setOptions(new AgentAppOpts());
+            factory.setStrategyType(strategyClass(strategyName));
+            List<Agent> agents = factory.build();
+            simGrid.setAgents(agents);
+            agents.get(0).getStrategy().readShared(in);
+            for (Agent a : agents)
+                a.readCheckpoint(in);
+        }
+        simGrid.readAgentIndex(in);
+        return new Checkpoint(simGrid, time);
+    }
+
+    @NonNull
+    private static Class<? extends AgentStrategy> strategyClass(@NonNull final String name) throws IOException {
+        try {
+            return Class.forName(name).asSubclass(AgentStrategy.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unknown strategy in checkpoint: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.roach.intelligentagents.model.checkpoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.Location;
+
+/**
+ * Reads a file written by {@link CheckpointWriter}, mapped into memory. The
+ * checksum is verified when the reader is made, so a file that was cut short or
+ * damaged is refused before anything is restored from it. Values must be read
+ * in the order they were written.
+ * <p>
+ * A checkpoint is mapped in one piece and so cannot exceed 2 GiB.
+ *
+ * @author Larry S. Roach
+ */
+public final class CheckpointReader {
+    /** Size of the checksum that ends the file. */
+    private static final int TRAILER = Long.BYTES;
+
+    @NonNull
+    private final ByteBuffer buffer;
+
+    /**
+     * @param file The checkpoint to read
+     * @throws IOException If the file cannot be read, is not a checkpoint, is of
+     *                     another version or fails its checksum
+     */
+    public CheckpointReader(@NonNull final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Checkpoint too large to map: " + file);
+            if (size < 2 * Integer.BYTES + TRAILER)
+                throw new IOException("Not a checkpoint: " + file);
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long expected = map.getLong((int) size - TRAILER);
+            map.limit((int) size - TRAILER);
+            CRC32 crc = new CRC32();
+            crc.update(map.duplicate());
+            if (crc.getValue() != expected)
+                throw new IOException("Checkpoint is damaged: " + file);
+            buffer = map;
+        }
+        if (getInt() != CheckpointWriter.MAGIC)
+            throw new IOException("Not a checkpoint: " + file);
+        int version = getInt();
+        if (version != CheckpointWriter.VERSION)
+            throw new IOException("Checkpoint version " + version + " is not supported: " + file);
+    }
+
+    public int getByte() {
+        return buffer.get();
+    }
+
+    public boolean getBoolean() {
+        return buffer.get() != 0;
+    }
+
+    public int getInt() {
+        return buffer.getInt();
+    }
+
+    public long getLong() {
+        return buffer.getLong();
+    }
+
+    /**
+     * @return A location put by {@link CheckpointWriter#putLocation}, or null
+     */
+    @Nullable
+    public Location getLocation() {
+        long packed = getLong();
+        return packed == Coords.NONE ? null : new Location(Coords.x(packed), Coords.y(packed));
+    }
+
+    @NonNull
+    public String getString() {
+        return new String(getBytes(), StandardCharsets.UTF_8);
+    }
+
+    @NonNull
+    public byte[] getBytes() {
+        byte[] values = new byte[getInt()];
+        buffer.get(values);
+        return values;
+    }
+
+    @NonNull
+    public int[] getInts() {
+        int[] values = new int[getInt()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Reads an array into one of the same length.
+     *
+     * @param into The array to fill
+     * @throws IOException If the array written had another length
+     */
+    public void getInts(@NonNull final int[] into) throws IOException {
+        int length = getInt();
+        if (length != into.length)
+            throw new IOException("Expected " + into.length + " values, found " + length);
+        buffer.asIntBuffer().get(into);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+    }
+
+    @NonNull
+    public long[] getLongs() {
+        long[] values = new long[getInt()];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Long.BYTES);
+        return values;
+    }
+}
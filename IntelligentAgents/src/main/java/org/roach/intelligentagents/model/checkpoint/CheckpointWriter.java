@@ -0,0 +1,181 @@
+package org.roach.intelligentagents.model.checkpoint;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.Location;
+
+/**
+ * Writes a checkpoint file through a {@link FileChannel}. Values are put into
+ * one direct buffer that is handed to the channel whenever it fills, so arrays
+ * go out as bulk copies and nothing is allocated per value. A CRC-32 of
+ * everything written follows the last value.
+ * <p>
+ * The file is written under a temporary name and only replaces the target in
+ * {@link #commit()}, so a crash while writing leaves the previous checkpoint
+ * as it was. Closing a writer that was not committed deletes what it wrote.
+ *
+ * @author Larry S. Roach
+ */
+public final class CheckpointWriter implements Closeable {
+    /** The first four bytes of a checkpoint, "IACP". */
+    static final int MAGIC = 0x49414350;
+    /** The layout written; bumped whenever any part of it changes. */
+    static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    @NonNull
+    private final Path file;
+    @NonNull
+    private final Path temp;
+    @NonNull
+    private final FileChannel channel;
+    @NonNull
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    @NonNull
+    private final CRC32 crc = new CRC32();
+    private boolean committed;
+
+    /**
+     * @param file The checkpoint to write
+     * @throws IOException If the temporary file cannot be made
+     */
+    public CheckpointWriter(@NonNull final Path file) throws IOException {
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING);
+        putInt(MAGIC);
+        putInt(VERSION);
+    }
+
+    public void putByte(final int value) throws IOException {
+        room(Byte.BYTES);
+        buffer.put((byte) value);
+    }
+
+    public void putBoolean(final boolean value) throws IOException {
+        putByte(value ? 1 : 0);
+    }
+
+    public void putInt(final int value) throws IOException {
+        room(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    public void putLong(final long value) throws IOException {
+        room(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Puts a location packed by {@link Coords#pack}, or {@link Coords#NONE} for
+     * null.
+     */
+    public void putLocation(@Nullable final Location loc) throws IOException {
+        putLong(loc == null ? Coords.NONE : Coords.pack(loc.x(), loc.y()));
+    }
+
+    public void putString(@NonNull final String value) throws IOException {
+        putBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Puts the length of an array and then its elements.
+     */
+    public void putBytes(@NonNull final byte[] values) throws IOException {
+        putInt(values.length);
+        for (int off = 0; off < values.length;) {
+            room(Byte.BYTES);
+            int n = Math.min(values.length - off, buffer.remaining());
+            buffer.put(values, off, n);
+            off += n;
+        }
+    }
+
+    /**
+     * Puts the length of an array and then its elements.
+     */
+    public void putInts(@NonNull final int[] values) throws IOException {
+        putInt(values.length);
+        for (int off = 0; off < values.length;) {
+            room(Integer.BYTES);
+            int n = Math.min(values.length - off, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, off, n);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            off += n;
+        }
+    }
+
+    /**
+     * Puts the length of an array and then its elements.
+     */
+    public void putLongs(@NonNull final long[] values) throws IOException {
+        putInt(values.length);
+        for (int off = 0; off < values.length;) {
+            room(Long.BYTES);
+            int n = Math.min(values.length - off, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().put(values, off, n);
+            buffer.position(buffer.position() + n * Long.BYTES);
+            off += n;
+        }
+    }
+
+    /**
+     * Finishes the file with its checksum, forces it to the disk and moves it
+     * over the target.
+     *
+     * @throws IOException If the file cannot be written or moved
+     */
+    public void commit() throws IOException {
+        flush();
+        buffer.putLong(crc.getValue()).flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        channel.force(true);
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Makes room for n more bytes in the buffer.
+     */
+    private void room(final int n) throws IOException {
+        if (buffer.remaining() < n)
+            flush();
+    }
+
+    /**
+     * Adds the buffered bytes to the checksum and writes them out.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        crc.update(buffer);
+        buffer.rewind();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
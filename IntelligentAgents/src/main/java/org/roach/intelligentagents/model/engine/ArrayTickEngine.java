@@ -0,0 +1,88 @@
+package org.roach.intelligentagents.model.engine;
+
+import java.util.SplittableRandom;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.store.AgentStore;
+import org.roach.intelligentagents.model.store.ArrayStrategy;
+import org.roach.intelligentagents.model.store.BroadcastArrayStrategy;
+import org.roach.intelligentagents.model.store.StoredAgent;
+
+/**
+ * Runs agents kept in an {@link AgentStore} rather than the grid's agent
+ * objects. A tick is one linear sweep over the store in id order, with a
+ * single flyweight cursor; the grid index is only touched for agents that
+ * moved. The grid's own agent list is expected to be empty.
+ *
+ * @author Larry S. Roach
+ */
+public class ArrayTickEngine implements TickEngine {
+    /** Value of the {@code engine} property that selects this engine. */
+    @NonNull
+    public static final String NAME = "arrays";
+
+    @NonNull
+    private final AgentStore store;
+    @NonNull
+    private final ArrayStrategy strategy;
+    @NonNull
+    private final StoredAgent cursor;
+
+    /**
+     * @param simGrid  The grid the agents live on
+     * @param store    The agents
+     * @param strategy The behaviour of every agent
+     */
+    public ArrayTickEngine(@NonNull final SimulationGrid simGrid, @NonNull final AgentStore store,
+            @NonNull final ArrayStrategy strategy) {
+        this.store = store;
+        this.strategy = strategy;
+        this.cursor = new StoredAgent(store, simGrid);
+    }
+
+    /**
+     * Creates numAgents broadcasting agents at random locations on the grid and
+     * an engine to run them.
+     *
+     * @param simGrid   The grid to place the agents on
+     * @param numAgents The number of agents
+     * @param commDist  Communications distance
+     * @param commTime  Number of broadcasts each agent may make
+     * @return A new engine
+     */
+    @NonNull
+    public static ArrayTickEngine populate(@NonNull final SimulationGrid simGrid, final int numAgents,
+            final int commDist, final int commTime) {
+        int gridSize = simGrid.getGridSize();
+        AgentStore store = new AgentStore(gridSize, numAgents);
+        SplittableRandom rand = simGrid.splitRandom();
+        for (int i = 0; i < numAgents; i++) {
+            int id = simGrid.nextAgentId();
+            int x = rand.nextInt(gridSize);
+            int y = rand.nextInt(gridSize);
+            store.add(id, x, y, commTime);
+            simGrid.indexAgent(id, x, y);
+        }
+        return new ArrayTickEngine(simGrid, store, new BroadcastArrayStrategy(store, simGrid, commDist));
+    }
+
+    @Override
+    public void tick(@NonNull final SimulationGrid simGrid) {
+        StoredAgent a = cursor;
+        for (int id = 0, n = store.size(); id < n; id++) {
+            a.at(id);
+            int x = a.x();
+            int y = a.y();
+            strategy.act(a);
+            if (a.x() != x || a.y() != y)
+                simGrid.indexAgent(id, a.x(), a.y());
+        }
+    }
+
+    /**
+     * @return the agents run by this engine
+     */
+    @NonNull
+    public AgentStore getStore() { return store; }
+}
@@ -0,0 +1,78 @@
+package org.roach.intelligentagents.model.engine;
+
+import java.lang.management.ManagementFactory;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.metrics.SimMetrics;
+
+/**
+ * Wraps another engine and closes a {@link SimMetrics} sample after each tick
+ * of a grid that has metrics: the wall-clock time of the tick, the bytes
+ * allocated by every thread during it and the tasks it completed. Grids without
+ * metrics are ticked as they are.
+ *
+ * @author Larry S. Roach
+ */
+public class MeteredTickEngine implements TickEngine {
+    @NonNull
+    private final TickEngine engine;
+    /** Reads per-thread allocation, or null if the JVM cannot. */
+    @Nullable
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * @param engine The engine that runs the agents
+     */
+    public MeteredTickEngine(@NonNull final TickEngine engine) {
+        this.engine = engine;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()) {
+            sun.setThreadAllocatedMemoryEnabled(true);
+            threads = sun;
+        } else {
+            threads = null;
+        }
+    }
+
+    @Override
+    public void tick(@NonNull final SimulationGrid simGrid) {
+        SimMetrics metrics = simGrid.getMetrics();
+        if (metrics == null) {
+            engine.tick(simGrid);
+            return;
+        }
+        int completeBefore = simGrid.getNumTasksComplete();
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        engine.tick(simGrid);
+        long nanos = System.nanoTime() - start;
+        long bytesAfter = allocatedBytes();
+        // A thread that ends during the tick takes its bytes out of the sum
+        metrics.endTick(nanos, bytesBefore < 0 ? -1 : Math.max(bytesAfter - bytesBefore, 0),
+                simGrid.getNumTasksComplete() - completeBefore, simGrid.getAgents());
+    }
+
+    @Override
+    public boolean isFinished() { return engine.isFinished(); }
+
+    @Override
+    public void shutdown() {
+        engine.shutdown();
+    }
+
+    /**
+     * @return The bytes allocated so far by the live threads, or -1 if unknown
+     */
+    private long allocatedBytes() {
+        com.sun.management.ThreadMXBean t = threads;
+        if (t == null)
+            return -1;
+        long sum = 0;
+        for (long bytes : t.getThreadAllocatedBytes(t.getAllThreadIds()))
+            if (bytes > 0)
+                sum += bytes;
+        return sum;
+    }
+}
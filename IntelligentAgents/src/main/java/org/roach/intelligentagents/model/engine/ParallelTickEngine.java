@@ -0,0 +1,91 @@
+package org.roach.intelligentagents.model.engine;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.SimulationGrid;
+
+/**
+ * Splits the agents of a grid across a ForkJoinPool so that a tick uses every
+ * core. Each tick has two phases:
+ * <ul>
+ * <li>Sense: every agent acts against the grid, the tasks and the mailbox as
+ * they were when the tick began. Moves only change the agent itself;
+ * broadcasts, task executions and mailbox posts and takes are recorded per
+ * agent.</li>
+ * <li>Apply: on the calling thread, the recorded task executions are applied in
+ * agent-id order, every agent is reindexed once, broadcasts are delivered in
+ * agent-id order and the mailbox applies its takes and posts.</li>
+ * </ul>
+ * No agent's result depends on which thread ran it or on when another agent
+ * acted, so given the same random moves a run is the same for any number of
+ * threads.
+ * 
+ * @author Larry S. Roach
+ */
+public class ParallelTickEngine implements TickEngine {
+    /** Smallest slice of agents worth handing to another worker. */
+    private static final int MIN_SLICE = 64;
+
+    @NonNull
+    private final ForkJoinPool pool;
+
+    /**
+     * @param threads Number of worker threads
+     */
+    public ParallelTickEngine(final int threads) {
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    @Override
+    public void tick(@NonNull final SimulationGrid simGrid) {
+        List<Agent> agents = simGrid.getAgents();
+        int slice = Math.max(MIN_SLICE, agents.size() / (pool.getParallelism() * 8));
+        simGrid.beginSensePhase();
+        try {
+            pool.invoke(new AgentSlice(agents, 0, agents.size(), slice));
+        } finally {
+            simGrid.applyIntents();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Runs the agents in [from, to), splitting in half until the slice is small.
+     */
+    private static final class AgentSlice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient List<Agent> agents;
+        private final int from;
+        private final int to;
+        private final int slice;
+
+        AgentSlice(final List<Agent> agents, final int from, final int to, final int slice) {
+            this.agents = agents;
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= slice) {
+                for (int i = from; i < to; i++) {
+                    Agent a = agents.get(i);
+                    if (a != null)
+                        a.getStrategy().doAction();
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new AgentSlice(agents, from, mid, slice), new AgentSlice(agents, mid, to, slice));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.roach.intelligentagents.model.engine;
+
+import java.io.IOException;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.trace.TraceRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wraps another engine and records every tick of a grid in a trace. A trace
+ * that cannot be written is logged and recording stops; the run goes on.
+ *
+ * @author Larry S. Roach
+ */
+public class RecordingTickEngine implements TickEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordingTickEngine.class);
+
+    @NonNull
+    private final TickEngine engine;
+    @NonNull
+    private final SimulationGrid simGrid;
+    /** The trace, or null once recording has stopped. */
+    @Nullable
+    private TraceRecorder recorder;
+
+    /**
+     * @param engine   The engine that runs the agents
+     * @param simGrid  The grid to record, which from now on also tells the
+     *                 recorder about its task executions and broadcasts
+     * @param recorder The trace, started on the grid as it is now
+     */
+    public RecordingTickEngine(@NonNull final TickEngine engine, @NonNull final SimulationGrid simGrid,
+            @NonNull final TraceRecorder recorder) {
+        this.engine = engine;
+        this.simGrid = simGrid;
+        this.recorder = recorder;
+        simGrid.setTrace(recorder);
+    }
+
+    @Override
+    public synchronized void tick(@NonNull final SimulationGrid grid) {
+        engine.tick(grid);
+        TraceRecorder r = recorder;
+        if (r != null && grid == simGrid) {
+            try {
+                r.endTick(grid);
+            } catch (IOException e) {
+                LOGGER.atError().setCause(e).setMessage("Unable to write the trace; recording stopped").log();
+                stop();
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() { return engine.isFinished(); }
+
+    /**
+     * Finishes the trace, after the tick under way if there is one.
+     */
+    @Override
+    public synchronized void shutdown() {
+        engine.shutdown();
+        stop();
+    }
+
+    private void stop() {
+        TraceRecorder r = recorder;
+        if (r == null)
+            return;
+        recorder = null;
+        simGrid.setTrace(null);
+        try {
+            r.close();
+        } catch (IOException e) {
+            LOGGER.atError().setCause(e).setMessage("Unable to finish the trace").log();
+        }
+    }
+}
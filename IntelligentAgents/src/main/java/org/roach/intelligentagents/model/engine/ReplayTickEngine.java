@@ -0,0 +1,147 @@
+package org.roach.intelligentagents.model.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.State;
+import org.roach.intelligentagents.model.trace.ReplayStrategy;
+import org.roach.intelligentagents.model.trace.TraceReader;
+import org.roach.intelligentagents.model.trace.TraceVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays a trace instead of running agents. The grid, its tasks and its
+ * agents are made from the trace, and each tick moves the agents, changes
+ * their states and executes tasks as the recorded tick did; no strategy runs
+ * and no random number is drawn. The animators, views and listeners of the
+ * grid see the replay as they would see the run, so a finished run can be
+ * watched, stepped or printed again at the cost of reading it.
+ * <p>
+ * Nothing in a replay asks who is near whom, so agents are put in the grid's
+ * agent index where the trace starts them and then only move themselves, which
+ * about doubles the speed of a replay. Radius queries on the grid of a replay
+ * answer for the start of the trace.
+ *
+ * @author Larry S. Roach
+ */
+public class ReplayTickEngine implements TickEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayTickEngine.class);
+
+    @NonNull
+    private final TraceReader reader;
+    @NonNull
+    private final SimulationGrid simGrid;
+    @NonNull
+    private final Replay replay = new Replay();
+    /** True once the last tick of the trace has been replayed. */
+    private volatile boolean finished;
+
+    private ReplayTickEngine(@NonNull final TraceReader reader, @NonNull final SimulationGrid simGrid) {
+        this.reader = reader;
+        this.simGrid = simGrid;
+    }
+
+    /**
+     * Opens a trace and makes the grid it was recorded on, as it was when
+     * recording began.
+     *
+     * @param file The trace
+     * @return The engine, whose grid is {@link #getSimGrid()}
+     * @throws IOException If the trace cannot be read
+     */
+    @NonNull
+    public static ReplayTickEngine open(@NonNull final Path file) throws IOException {
+        TraceReader reader = new TraceReader(file);
+        try {
+            SimulationGrid simGrid = SimulationGrid.replayGrid(reader.getGridSize(), reader.getTaskLocations(),
+                    reader.getTaskPrios());
+            List<Agent> agents = new ArrayList<>(reader.getNumAgents());
+            for (int i = 0; i < reader.getNumAgents(); i++) {
+                ReplayStrategy strategy = new ReplayStrategy(simGrid);
+                Agent a = new Agent(strategy);
+                a.setSimGrid(simGrid);
+                strategy.setAgent(a);
+                a.moveTo(0, 0);
+                agents.add(a);
+            }
+            simGrid.setAgents(agents);
+            ReplayTickEngine engine = new ReplayTickEngine(reader, simGrid);
+            if (!reader.readFrame(engine.replay))
+                throw new IOException("Trace is cut short: " + file);
+            for (Agent a : agents)
+                a.announce();
+            engine.finished = !reader.hasFrame();
+            return engine;
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The grid the trace is replayed on
+     */
+    @NonNull
+    public SimulationGrid getSimGrid() { return simGrid; }
+
+    /**
+     * @return The number of ticks the recorded run had run when the trace began
+     */
+    public int getStartTick() { return reader.getStartTick(); }
+
+    /**
+     * Replays the next tick of the trace. A trace that cannot be read is logged
+     * and the replay ends there.
+     */
+    @Override
+    public void tick(@NonNull final SimulationGrid grid) {
+        if (finished || grid != simGrid)
+            return;
+        try {
+            reader.readFrame(replay);
+            finished = !reader.hasFrame();
+        } catch (IOException e) {
+            LOGGER.atError().setCause(e).setMessage("Unable to read the trace; replay stopped").log();
+            finished = true;
+        }
+    }
+
+    @Override
+    public boolean isFinished() { return finished; }
+
+    @Override
+    public void shutdown() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            LOGGER.atError().setCause(e).setMessage("Unable to close the trace").log();
+        }
+    }
+
+    /**
+     * Applies what the trace recorded to the grid.
+     */
+    private final class Replay implements TraceVisitor {
+        @Override
+        public void move(final int agent, final int x, final int y) {
+            simGrid.getAgents().get(agent).moveTo(x, y);
+        }
+
+        @Override
+        public void look(final int agent, @NonNull final State state, final int commRadius,
+                final long gotoTarget) {
+            ((ReplayStrategy) simGrid.getAgents().get(agent).getStrategy()).setLook(state, commRadius, gotoTarget);
+        }
+
+        @Override
+        public void taskExecuted(final int task) {
+            simGrid.replayExecution(task);
+        }
+    }
+}
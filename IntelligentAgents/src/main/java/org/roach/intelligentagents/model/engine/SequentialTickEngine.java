@@ -0,0 +1,22 @@
+package org.roach.intelligentagents.model.engine;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.SimulationGrid;
+
+/**
+ * The original engine: agents act one after another on the calling thread, and
+ * each agent sees every change made by the agents before it.
+ * 
+ * @author Larry S. Roach
+ */
+public class SequentialTickEngine implements TickEngine {
+
+    @Override
+    public void tick(@NonNull final SimulationGrid simGrid) {
+        for (Agent a : simGrid.getAgents()) {
+            if (a != null)
+                a.getStrategy().doAction();
+        }
+    }
+}
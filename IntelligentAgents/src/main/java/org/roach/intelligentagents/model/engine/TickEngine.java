@@ -0,0 +1,53 @@
+package org.roach.intelligentagents.model.engine;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.SimulationGrid;
+
+/**
+ * Advances every agent on a grid by one tick. Engines differ only in how the
+ * agents' actions are scheduled; the animators call {@link #tick} once per
+ * cycle and do not care which engine is in use.
+ * 
+ * @author Larry S. Roach
+ */
+public interface TickEngine {
+    /**
+     * Performs one action for every agent on the grid.
+     * 
+     * @param simGrid The grid whose agents should act
+     */
+    void tick(@NonNull SimulationGrid simGrid);
+
+    /**
+     * @return True when the engine has no more ticks to run, as a replay at the
+     *         end of its trace
+     */
+    default boolean isFinished() { return false; }
+
+    /**
+     * Releases any threads held by the engine.
+     */
+    default void shutdown() {
+        // Nothing to do
+    }
+
+    /**
+     * Creates the engine selected by the {@code engine} property.
+     * 
+     * @param name    "sequential" or "parallel"
+     * @param threads Number of worker threads for the parallel engine; 0 uses
+     *                one per available processor
+     * @return A new engine
+     */
+    @NonNull
+    static TickEngine forName(@NonNull final String name, final int threads) {
+        switch (name.trim().toLowerCase()) {
+        case "parallel":
+            return new ParallelTickEngine(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        case "sequential":
+            return new SequentialTickEngine();
+        default:
+            throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+}
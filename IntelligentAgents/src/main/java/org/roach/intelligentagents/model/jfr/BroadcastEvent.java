@@ -0,0 +1,38 @@
+package org.roach.intelligentagents.model.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An agent broadcasting a task location to the agents around it, covering the
+ * radius query and the delivery to every receiver.
+ *
+ * @author Larry S. Roach
+ */
+@Name(SimEvents.PREFIX + "Broadcast")
+@Label("Broadcast")
+@Category({ SimEvents.CATEGORY, "Messages" })
+@Description("A task location sent to every agent in range")
+@Enabled(false)
+@StackTrace(false)
+public final class BroadcastEvent extends jdk.jfr.Event {
+    @Label("Sender")
+    public int sender;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Radius")
+    public int radius;
+
+    @Label("Receivers")
+    @Description("Agents the message was delivered to")
+    public int receivers;
+}
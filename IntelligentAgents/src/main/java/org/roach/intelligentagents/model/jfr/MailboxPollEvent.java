@@ -0,0 +1,37 @@
+package org.roach.intelligentagents.model.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An agent looking in a mailbox for the nearest message in reach.
+ *
+ * @author Larry S. Roach
+ */
+@Name(SimEvents.PREFIX + "MailboxPoll")
+@Label("Mailbox Poll")
+@Category({ SimEvents.CATEGORY, "Messages" })
+@Description("A search of the mailbox for a message in reach")
+@Enabled(false)
+@StackTrace(false)
+public final class MailboxPollEvent extends jdk.jfr.Event {
+    @Label("Agent")
+    public int agent;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Distance")
+    @Description("The greatest manhattan distance searched")
+    public int distance;
+
+    @Label("Found")
+    public boolean found;
+}
@@ -0,0 +1,31 @@
+package org.roach.intelligentagents.model.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A task location posted to a mailbox.
+ *
+ * @author Larry S. Roach
+ */
+@Name(SimEvents.PREFIX + "MailboxPost")
+@Label("Mailbox Post")
+@Category({ SimEvents.CATEGORY, "Messages" })
+@Description("A task location posted to the mailbox")
+@Enabled(false)
+@StackTrace(false)
+public final class MailboxPostEvent extends jdk.jfr.Event {
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Queued")
+    @Description("False if the location was already queued")
+    public boolean queued;
+}
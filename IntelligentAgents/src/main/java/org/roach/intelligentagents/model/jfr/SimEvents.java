@@ -0,0 +1,86 @@
+package org.roach.intelligentagents.model.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.engine.TickEngine;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+/**
+ * The Flight Recorder events of the simulation. They are disabled by default,
+ * even in recordings made with the JDK's own settings, and an event that is not
+ * enabled costs no more than the check of {@link Event#shouldCommit()}. They
+ * are turned on by {@link #startRecording(Path)}, or in any recording by
+ * setting {@code enabled} for them, for example, on JDK 17 or later,
+ * {@code -XX:StartFlightRecording:settings=profile,+org.roach.intelligentagents.Tick#enabled=true}.
+ *
+ * @author Larry S. Roach
+ */
+public final class SimEvents {
+    /** Prefix of the name of every event. */
+    static final String PREFIX = "org.roach.intelligentagents.";
+    /** Top-level category of every event. */
+    static final String CATEGORY = "Intelligent Agents";
+    /** The simulation events, all enabled by {@link #startRecording(Path)}. */
+    @NonNull
+    private static final List<Class<? extends Event>> EVENTS = List.of(TickEvent.class, BroadcastEvent.class,
+            MailboxPostEvent.class, MailboxPollEvent.class, TaskCompletedEvent.class);
+
+    private SimEvents() {
+    }
+
+    /**
+     * Ticks a grid, recording a {@link TickEvent} around the tick.
+     *
+     * @param engine  The engine to tick with
+     * @param simGrid The grid to tick
+     * @param tick    The number of ticks run so far
+     */
+    public static void tick(@NonNull final TickEngine engine, @NonNull final SimulationGrid simGrid,
+            final long tick) {
+        TickEvent event = new TickEvent();
+        int completeBefore = simGrid.getNumTasksComplete();
+        event.begin();
+        engine.tick(simGrid);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.agents = simGrid.getAgents().size();
+            event.tasksCompleted = simGrid.getNumTasksComplete() - completeBefore;
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts a recording with the JDK's profile settings and every simulation
+     * event enabled. It is written to the file when the program exits.
+     *
+     * @param file Where to write the recording
+     * @return The recording, already started
+     * @throws IOException If the profile settings cannot be read or the file
+     *                     cannot be written
+     */
+    @NonNull
+    public static Recording startRecording(@NonNull final Path file) throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+        } catch (ParseException e) {
+            throw new IOException("Unable to read the profile settings", e);
+        }
+        for (Class<? extends Event> event : EVENTS)
+            recording.enable(event).withoutStackTrace();
+        recording.setName("IntelligentAgents");
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+        return recording;
+    }
+}
@@ -0,0 +1,34 @@
+package org.roach.intelligentagents.model.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The execution that completed a task.
+ *
+ * @author Larry S. Roach
+ */
+@Name(SimEvents.PREFIX + "TaskCompleted")
+@Label("Task Completed")
+@Category({ SimEvents.CATEGORY, "Simulation" })
+@Description("A task executed for the last time")
+@Enabled(false)
+@StackTrace(false)
+public final class TaskCompletedEvent extends jdk.jfr.Event {
+    @Label("Task")
+    public int task;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Completed")
+    @Description("Tasks complete including this one")
+    public int completed;
+}
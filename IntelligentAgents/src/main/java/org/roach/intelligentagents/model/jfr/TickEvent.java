@@ -0,0 +1,33 @@
+package org.roach.intelligentagents.model.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One tick of the simulation, from before the first agent acts until the last
+ * has.
+ *
+ * @author Larry S. Roach
+ */
+@Name(SimEvents.PREFIX + "Tick")
+@Label("Tick")
+@Category({ SimEvents.CATEGORY, "Simulation" })
+@Description("One tick of every agent")
+@Enabled(false)
+@StackTrace(false)
+public final class TickEvent extends jdk.jfr.Event {
+    @Label("Tick")
+    @Description("Ticks run before this one")
+    public long tick;
+
+    @Label("Agents")
+    public int agents;
+
+    @Label("Tasks Completed")
+    @Description("Tasks completed during the tick")
+    public int tasksCompleted;
+}
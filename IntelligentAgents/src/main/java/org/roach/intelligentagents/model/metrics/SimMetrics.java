@@ -0,0 +1,240 @@
+package org.roach.intelligentagents.model.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.State;
+
+/**
+ * The metrics of one simulation. Agents and the grid count events as they
+ * happen into striped counters ({@link LongAdder}), which any number of
+ * threads can bump without contending; at the end of each tick the counters
+ * are drained into a {@link TickSample}, the agents are counted by state and
+ * the gauges are read. Tick durations also go into a histogram for
+ * percentiles over the whole run.
+ * <p>
+ * The most recent samples are kept and can be read at any time, or written
+ * out with the run's totals as JSON lines.
+ *
+ * @author Larry S. Roach
+ */
+public final class SimMetrics {
+    /** Events counted during a tick. */
+    public enum Counter {
+        /** A broadcast made or a mailbox message posted. */
+        MESSAGES_SENT,
+        /** A broadcast delivered to an agent or a mailbox message claimed. */
+        MESSAGES_RECEIVED,
+        /** A radius query over the agent index. */
+        NEIGHBOR_QUERIES,
+        /** An agent visited by a radius query. */
+        NEIGHBORS_VISITED
+    }
+
+    /** Where agents in unnamed states are counted. */
+    public static final String OTHER_STATE = "other";
+    /** Samples kept when no history size is given. */
+    public static final int DEFAULT_HISTORY = 10_000;
+
+    @NonNull
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+    /** Each counter summed over the whole run. */
+    @NonNull
+    private final long[] totals = new long[Counter.values().length];
+    @NonNull
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    @NonNull
+    private final TickHistogram tickNanos = new TickHistogram();
+    @NonNull
+    private final ArrayDeque<TickSample> history = new ArrayDeque<>();
+    private final int historySize;
+    private long ticks;
+    private long totalTasksCompleted;
+    private long totalAllocatedBytes;
+    @Nullable
+    private TickSample lastTick;
+
+    public SimMetrics() {
+        this(DEFAULT_HISTORY);
+    }
+
+    /**
+     * @param historySize The number of recent samples to keep
+     */
+    public SimMetrics(final int historySize) {
+        if (historySize < 1)
+            throw new IllegalArgumentException("historySize must be positive: " + historySize);
+        this.historySize = historySize;
+        for (int i = 0; i < counters.length; i++)
+            counters[i] = new LongAdder();
+    }
+
+    /**
+     * Counts one event. Safe to call from any thread.
+     *
+     * @param counter The event
+     */
+    public void count(@NonNull final Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    /**
+     * Counts n events. Safe to call from any thread.
+     *
+     * @param counter The event
+     * @param n       The number of events
+     */
+    public void add(@NonNull final Counter counter, final long n) {
+        counters[counter.ordinal()].add(n);
+    }
+
+    /**
+     * Registers a value to read at the end of every tick, such as the depth of a
+     * queue. A gauge registered under a name already in use replaces it.
+     *
+     * @param name  The name of the gauge
+     * @param gauge Reads the value
+     */
+    public void registerGauge(@NonNull final String name, @NonNull final LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Closes a tick: drains the counters into a sample, counts the agents by
+     * state and reads the gauges. Called once per tick by the thread that ticks,
+     * after every agent has acted.
+     *
+     * @param nanos          Wall-clock duration of the tick
+     * @param allocatedBytes Bytes allocated during the tick, or -1 if unknown
+     * @param tasksCompleted Tasks completed during the tick
+     * @param agents         The agents of the grid
+     * @return The sample of the tick
+     */
+    @NonNull
+    public synchronized TickSample endTick(final long nanos, final long allocatedBytes, final long tasksCompleted,
+            @NonNull final List<Agent> agents) {
+        long[] n = new long[counters.length];
+        for (int i = 0; i < counters.length; i++) {
+            n[i] = counters[i].sumThenReset();
+            totals[i] += n[i];
+        }
+        Map<String, Integer> byState = new TreeMap<>();
+        for (int i = 0; i < agents.size(); i++) {
+            Agent a = agents.get(i);
+            State s = a == null ? null : a.getStrategy().getState();
+            if (s != null)
+                byState.merge(s.getName().isEmpty() ? OTHER_STATE : s.getName(), 1, Integer::sum);
+        }
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, g) -> gaugeValues.put(name, g.getAsLong()));
+        ticks++;
+        totalTasksCompleted += tasksCompleted;
+        if (allocatedBytes > 0)
+            totalAllocatedBytes += allocatedBytes;
+        tickNanos.record(nanos);
+        TickSample sample = new TickSample(ticks, nanos, allocatedBytes, n[Counter.MESSAGES_SENT.ordinal()],
+                n[Counter.MESSAGES_RECEIVED.ordinal()], n[Counter.NEIGHBOR_QUERIES.ordinal()],
+                n[Counter.NEIGHBORS_VISITED.ordinal()], tasksCompleted, Collections.unmodifiableMap(byState),
+                Collections.unmodifiableMap(gaugeValues));
+        if (history.size() == historySize)
+            history.removeFirst();
+        history.addLast(sample);
+        lastTick = sample;
+        return sample;
+    }
+
+    /**
+     * @return The sample of the last tick, or null before the first
+     */
+    @Nullable
+    public synchronized TickSample getLastTick() { return lastTick; }
+
+    /**
+     * @return The most recent samples, oldest first
+     */
+    @NonNull
+    public synchronized List<TickSample> recentTicks() {
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * @param percentile A percentile from 0 to 100
+     * @return The tick duration at that percentile over the whole run, in
+     *         nanoseconds, within about 6%
+     */
+    public synchronized long tickNanosPercentile(final double percentile) {
+        return tickNanos.percentile(percentile);
+    }
+
+    /**
+     * @return The number of ticks recorded
+     */
+    public synchronized long getTicks() { return ticks; }
+
+    /**
+     * @param counter An event
+     * @return The number of those events in all closed ticks
+     */
+    public synchronized long getTotal(@NonNull final Counter counter) {
+        return totals[counter.ordinal()];
+    }
+
+    /**
+     * @return Tasks completed in all closed ticks
+     */
+    public synchronized long getTotalTasksCompleted() { return totalTasksCompleted; }
+
+    /**
+     * @return Bytes allocated in all closed ticks, as far as the JVM can tell
+     */
+    public synchronized long getTotalAllocatedBytes() { return totalAllocatedBytes; }
+
+    /**
+     * Writes the recent samples, one JSON object per line, followed by a line
+     * with the totals and tick-duration percentiles of the whole run.
+     *
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public synchronized void writeJsonLines(@NonNull final Writer out) throws IOException {
+        for (TickSample s : history)
+            out.write(s.toJson() + "\n");
+        StringBuilder summary = new StringBuilder("{\"summary\":{\"ticks\":").append(ticks);
+        for (Counter c : Counter.values())
+            summary.append(",\"").append(c.name()).append("\":").append(totals[c.ordinal()]);
+        summary.append(",\"TASKS_COMPLETED\":").append(totalTasksCompleted).append(",\"ALLOCATED_BYTES\":")
+                .append(totalAllocatedBytes);
+        for (double p : new double[] { 50, 90, 99, 99.9 })
+            summary.append(",\"p").append(p == (int) p ? String.valueOf((int) p) : String.valueOf(p))
+                    .append("TickNanos\":").append(tickNanos.percentile(p));
+        summary.append(",\"maxTickNanos\":").append(tickNanos.getMax()).append("}}\n");
+        out.write(summary.toString());
+    }
+
+    /**
+     * Writes {@link #writeJsonLines} to a file, replacing it.
+     *
+     * @param file The file to write
+     * @throws IOException If writing fails
+     */
+    public void dump(@NonNull final Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            writeJsonLines(out);
+        }
+    }
+}
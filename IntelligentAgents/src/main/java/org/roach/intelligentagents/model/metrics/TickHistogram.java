@@ -0,0 +1,71 @@
+package org.roach.intelligentagents.model.metrics;
+
+/**
+ * A log-linear histogram of non-negative values, such as tick durations in
+ * nanoseconds. Values below 32 are counted exactly; above, each power of two is
+ * split into 16 buckets, so a percentile is within about 6% of the true value
+ * whatever the range. Recording is O(1) and allocates nothing. Not
+ * thread-safe.
+ *
+ * @author Larry S. Roach
+ */
+public final class TickHistogram {
+    /** Bits of each value kept below its leading bit. */
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS) * SUB_BUCKETS];
+    private long count;
+    private long max;
+
+    /**
+     * @param value The value to count; negative values count as 0
+     */
+    public void record(final long value) {
+        long v = Math.max(value, 0);
+        counts[indexOf(v)]++;
+        count++;
+        max = Math.max(max, v);
+    }
+
+    /**
+     * @param percentile A percentile from 0 to 100
+     * @return The smallest bucket bound that at least that share of the values
+     *         fall at or below, or 0 if nothing was recorded
+     */
+    public long percentile(final double percentile) {
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestIn(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * @return The number of values recorded
+     */
+    public long getCount() { return count; }
+
+    /**
+     * @return The largest value recorded
+     */
+    public long getMax() { return max; }
+
+    private static int indexOf(final long v) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(v) - SUB_BITS);
+        return shift * SUB_BUCKETS + (int) (v >>> shift);
+    }
+
+    private static long highestIn(final int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index - (long) shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,63 @@
+package org.roach.intelligentagents.model.metrics;
+
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * What happened during one tick.
+ *
+ * @param tick             The number of the tick, from 1
+ * @param nanos            Wall-clock duration of the tick
+ * @param allocatedBytes   Bytes allocated by every thread during the tick, or
+ *                         -1 if the JVM cannot tell
+ * @param messagesSent     Broadcasts made and mailbox messages posted
+ * @param messagesReceived Broadcasts delivered and mailbox messages claimed
+ * @param neighborQueries  Radius queries over the agent index
+ * @param neighborsVisited Agents visited by those queries
+ * @param tasksCompleted   Tasks completed during the tick
+ * @param agentsByState    Number of agents in each named state at the end of the
+ *                         tick; unnamed states count under "other"
+ * @param gauges           The value of each registered gauge at the end of the
+ *                         tick
+ *
+ * @author Larry S. Roach
+ */
+public record TickSample(long tick, long nanos, long allocatedBytes, long messagesSent, long messagesReceived,
+        long neighborQueries, long neighborsVisited, long tasksCompleted, @NonNull Map<String, Integer> agentsByState,
+        @NonNull Map<String, Long> gauges) {
+
+    /**
+     * @return Agents visited per radius query, or 0 if there were none
+     */
+    public double fanOut() {
+        return neighborQueries == 0 ? 0 : (double) neighborsVisited / neighborQueries;
+    }
+
+    /**
+     * @return The sample as a JSON object on one line
+     */
+    @NonNull
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256).append("{\"tick\":").append(tick).append(",\"nanos\":")
+                .append(nanos).append(",\"allocatedBytes\":").append(allocatedBytes).append(",\"messagesSent\":")
+                .append(messagesSent).append(",\"messagesReceived\":").append(messagesReceived)
+                .append(",\"neighborQueries\":").append(neighborQueries).append(",\"neighborsVisited\":")
+                .append(neighborsVisited).append(",\"tasksCompleted\":").append(tasksCompleted)
+                .append(",\"agentsByState\":");
+        appendObject(json, agentsByState);
+        json.append(",\"gauges\":");
+        appendObject(json, gauges);
+        return json.append('}').toString();
+    }
+
+    private static void appendObject(@NonNull final StringBuilder json, @NonNull final Map<String, ?> values) {
+        json.append('{');
+        String sep = "";
+        for (Map.Entry<String, ?> e : values.entrySet()) {
+            json.append(sep).append('"').append(e.getKey()).append("\":").append(e.getValue());
+            sep = ",";
+        }
+        json.append('}');
+    }
+}
@@ -0,0 +1,29 @@
+package org.roach.intelligentagents.model.partition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Carries what a region has to tell its neighbors at the end of a tick, and
+ * what they have to tell it. Every neighbor gets a message each tick, empty or
+ * not, and a region cannot start its next tick before it has one from each
+ * neighbor, which keeps neighbors in lock-step.
+ *
+ * @author Larry S. Roach
+ * @see RegionTickEngine
+ */
+public interface HaloTransport {
+    /**
+     * Sends each neighbor its message and waits for one from each.
+     *
+     * @param outgoing The message to each neighbor, in the order of
+     *                 {@link Partition#neighbors(int)}, ready to be read
+     * @param incoming Receives the message from each neighbor, in the same
+     *                 order, ready to be read; a buffer too small for its message
+     *                 is replaced
+     * @throws IOException If a neighbor cannot be reached
+     */
+    void exchange(@NonNull ByteBuffer[] outgoing, @NonNull ByteBuffer[] incoming) throws IOException;
+}
@@ -0,0 +1,209 @@
+package org.roach.intelligentagents.model.partition;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * How a grid is cut into rectangular regions for a partitioned run:
+ * {@code columns} strips along x by {@code rows} strips along y, as even as
+ * integer coordinates allow. Regions are numbered x-major, like cells, so
+ * region {@code column * rows + row} covers the cells from
+ * {@link #x0(int)} (inclusive) to {@link #x1(int)} (exclusive) along x and
+ * likewise along y.
+ * <p>
+ * Each region is seen through its frame: the region and the cells within the
+ * margin around it, clipped to the grid. The margin is chosen so that whatever
+ * an agent of the region can reach in a tick, by moving, hearing a broadcast or
+ * heading for a broadcast task, lies in the frame; and since no region is
+ * narrower than the margin, only adjacent regions ever deal with each other.
+ *
+ * @author Larry S. Roach
+ */
+public final class Partition {
+    private final int gridSize;
+    private final int columns;
+    private final int rows;
+    private final int margin;
+
+    /**
+     * @param gridSize The width and height of the grid
+     * @param columns  The number of regions along x
+     * @param rows     The number of regions along y
+     * @param margin   The width of the halo around each region
+     */
+    public Partition(final int gridSize, final int columns, final int rows, final int margin) {
+        if (columns < 1 || rows < 1)
+            throw new IllegalArgumentException("A partition needs at least one region, not " + columns + "x" + rows);
+        if ((columns > 1 && gridSize / columns < margin) || (rows > 1 && gridSize / rows < margin))
+            throw new IllegalArgumentException("Regions of a grid of size " + gridSize + " cut " + columns + "x"
+                    + rows + " are narrower than their margin of " + margin);
+        int fewest = Math.min(columns, rows);
+        long side = (gridSize + fewest - 1L) / fewest + 2L * margin;
+        if (side * side > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Regions of a grid of size " + gridSize + " cut " + columns + "x"
+                    + rows + " have too many cells to number; cut it finer");
+        this.gridSize = gridSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.margin = margin;
+    }
+
+    /**
+     * @return The width and height of the whole grid
+     */
+    public int getGridSize() { return gridSize; }
+
+    /**
+     * @return The width of the halo around each region
+     */
+    public int getMargin() { return margin; }
+
+    /**
+     * @return The number of regions
+     */
+    public int size() { return columns * rows; }
+
+    /**
+     * @param region A region
+     * @return The first x coordinate of the region
+     */
+    public int x0(final int region) { return edge(region / rows, columns); }
+
+    /**
+     * @param region A region
+     * @return The x coordinate just past the region
+     */
+    public int x1(final int region) { return edge(region / rows + 1, columns); }
+
+    /**
+     * @param region A region
+     * @return The first y coordinate of the region
+     */
+    public int y0(final int region) { return edge(region % rows, rows); }
+
+    /**
+     * @param region A region
+     * @return The y coordinate just past the region
+     */
+    public int y1(final int region) { return edge(region % rows + 1, rows); }
+
+    /**
+     * @param region A region
+     * @return The first x coordinate of the region's frame
+     */
+    public int frameX0(final int region) { return Math.max(x0(region) - margin, 0); }
+
+    /**
+     * @param region A region
+     * @return The x coordinate just past the region's frame
+     */
+    public int frameX1(final int region) { return Math.min(x1(region) + margin, gridSize); }
+
+    /**
+     * @param region A region
+     * @return The first y coordinate of the region's frame
+     */
+    public int frameY0(final int region) { return Math.max(y0(region) - margin, 0); }
+
+    /**
+     * @param region A region
+     * @return The y coordinate just past the region's frame
+     */
+    public int frameY1(final int region) { return Math.min(y1(region) + margin, gridSize); }
+
+    /**
+     * @param x The x coordinate of a cell on the grid
+     * @param y The y coordinate of the cell
+     * @return The region the cell belongs to
+     */
+    public int owner(final int x, final int y) {
+        return strip(x, columns) * rows + strip(y, rows);
+    }
+
+    /**
+     * @param region A region
+     * @param x      The x coordinate of a cell
+     * @param y      The y coordinate of the cell
+     * @return True if the cell is in the region's frame
+     */
+    public boolean inFrame(final int region, final int x, final int y) {
+        return x >= frameX0(region) && x < frameX1(region) && y >= frameY0(region) && y < frameY1(region);
+    }
+
+    /**
+     * @param region A region
+     * @param x      The x coordinate of a cell
+     * @param y      The y coordinate of the cell
+     * @param radius A distance
+     * @return True if some cell of the region lies within radius of (x, y)
+     */
+    public boolean reaches(final int region, final int x, final int y, final int radius) {
+        long dx = Math.max(Math.max(x0(region) - x, x - x1(region) + 1), 0);
+        long dy = Math.max(Math.max(y0(region) - y, y - y1(region) + 1), 0);
+        return dx * dx + dy * dy <= (long) radius * radius;
+    }
+
+    /**
+     * @param region A region
+     * @return The regions next to it, diagonally included, in ascending order
+     */
+    @NonNull
+    public int[] neighbors(final int region) {
+        int column = region / rows;
+        int row = region % rows;
+        int[] found = new int[8];
+        int n = 0;
+        for (int c = Math.max(column - 1, 0); c <= Math.min(column + 1, columns - 1); c++) {
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+                if (c != column || r != row)
+                    found[n++] = c * rows + r;
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    /**
+     * @param region A region
+     * @return The number of cells in regions numbered below it
+     */
+    public long cellsBefore(final int region) {
+        return (long) x0(region) * gridSize + (long) y0(region) * (x1(region) - x0(region));
+    }
+
+    /**
+     * Splits a whole among consecutive parts in proportion to their size: the
+     * parts up to a point get {@code share(total, before, whole)} of it, so each
+     * part's share is the difference of two such calls and the shares of all
+     * parts add up to exactly the total, whoever computes which.
+     *
+     * @param total  The amount to split
+     * @param before The size of the parts up to the point
+     * @param whole  The size of all parts
+     * @return The amount that goes to the parts up to the point, rounded down
+     */
+    static long share(final long total, final long before, final long whole) {
+        return BigInteger.valueOf(total).multiply(BigInteger.valueOf(before)).divide(BigInteger.valueOf(whole))
+                .longValueExact();
+    }
+
+    /**
+     * @return The first coordinate of strip i of n
+     */
+    private int edge(final int i, final int n) {
+        return (int) ((long) i * gridSize / n);
+    }
+
+    /**
+     * @return The strip of n that a coordinate lies in
+     */
+    private int strip(final int coord, final int n) {
+        int i = (int) ((long) coord * n / gridSize);
+        while (edge(i + 1, n) <= coord)
+            i++;
+        while (edge(i, n) > coord)
+            i--;
+        return i;
+    }
+}
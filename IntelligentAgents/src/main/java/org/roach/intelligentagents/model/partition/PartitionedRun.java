@@ -0,0 +1,52 @@
+package org.roach.intelligentagents.model.partition;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * The parameters of a partitioned run, the same for every region. Agents are
+ * the broadcasting agents of
+ * {@link org.roach.intelligentagents.model.store.BroadcastArrayStrategy}, each
+ * region gets its share of the agents and tasks by area, and the same seed
+ * gives the same tasks however the grid is cut.
+ *
+ * @param gridSize   The width and height of the whole grid
+ * @param columns    The number of regions along x
+ * @param rows       The number of regions along y
+ * @param numAgents  The number of agents on the whole grid
+ * @param numTasks   The number of tasks on the whole grid
+ * @param commDist   Communications distance
+ * @param commTime   Number of broadcasts each agent may make
+ * @param bucketSize The side of a coarse query bucket; 0 disables the bucket
+ *                   layer
+ * @param seed       The seed of every random choice made in the run
+ *
+ * @author Larry S. Roach
+ */
+public record PartitionedRun(int gridSize, int columns, int rows, int numAgents, int numTasks, int commDist,
+        int commTime, int bucketSize, long seed) {
+
+    /**
+     * The halo must hold the task an agent heads for, which is at most a
+     * broadcast's range plus the steps of the sender since it found the task
+     * from the receiver, plus the receiver's own step and the step that takes
+     * it out of its region.
+     *
+     * @return The layout of the regions
+     */
+    @NonNull
+    public Partition partition() {
+        return new Partition(gridSize, columns, rows, commDist + commTime + 2);
+    }
+
+    /**
+     * @param region A region
+     * @return The number of agents that start in it
+     */
+    public int agentsIn(final int region) {
+        Partition p = partition();
+        long whole = (long) gridSize * gridSize;
+        long before = p.cellsBefore(region);
+        long after = before + (long) (p.x1(region) - p.x0(region)) * (p.y1(region) - p.y0(region));
+        return (int) (Partition.share(numAgents, after, whole) - Partition.share(numAgents, before, whole));
+    }
+}
@@ -0,0 +1,427 @@
+package org.roach.intelligentagents.model.partition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.HaloListener;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.Task;
+import org.roach.intelligentagents.model.engine.TickEngine;
+import org.roach.intelligentagents.model.store.AgentStore;
+import org.roach.intelligentagents.model.store.BroadcastArrayStrategy;
+import org.roach.intelligentagents.model.store.StoredAgent;
+
+/**
+ * Runs one region of a partitioned run, as {@link
+ * org.roach.intelligentagents.model.engine.ArrayTickEngine} runs a whole grid.
+ * The region's grid covers its frame, in coordinates relative to the frame's
+ * corner, and holds the region's own tasks and copies of the tasks of its
+ * neighbors in the halo; the store holds the agents standing in the region.
+ * <p>
+ * A tick sweeps the agents, then trades with every neighbor what concerns it:
+ * <ul>
+ * <li>agents that stepped into its region, which move there with everything
+ * they know;</li>
+ * <li>broadcasts made within communication distance of its region, which it
+ * delivers to its own agents;</li>
+ * <li>executions of copies of its tasks, which it makes on the tasks;</li>
+ * <li>completions of tasks in its frame, which it makes on its copies.</li>
+ * </ul>
+ * What a region hears from its neighbors thus takes effect at the end of the
+ * tick, where an agent of a whole grid may have heard it during the tick;
+ * everything else goes as on a whole grid. Locations sent between regions are
+ * in the coordinates of the whole grid.
+ *
+ * @author Larry S. Roach
+ */
+public class RegionTickEngine implements TickEngine, HaloListener {
+    /** An agent entering the neighbor's region. */
+    private static final byte MIGRANT = 1;
+    /** A broadcast the neighbor's agents may hear. */
+    private static final byte BROADCAST = 2;
+    /** An execution of one of the neighbor's tasks. */
+    private static final byte EXECUTION = 3;
+    /** A completion of a task the neighbor has a copy of. */
+    private static final byte COMPLETION = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @NonNull
+    private final Partition partition;
+    private final int region;
+    private final int commDist;
+    /** Where the corner of the frame is on the whole grid. */
+    private final int originX;
+    private final int originY;
+    /** The size of the frame. */
+    private final int width;
+    private final int height;
+    /** The region, in frame coordinates. */
+    private final int ownX0;
+    private final int ownY0;
+    private final int ownX1;
+    private final int ownY1;
+    /** The side of the region's grid and the stride of packed cells in the store. */
+    private final int side;
+    @NonNull
+    private final SimulationGrid simGrid;
+    @NonNull
+    private final AgentStore store;
+    @NonNull
+    private final BroadcastArrayStrategy strategy;
+    @NonNull
+    private final StoredAgent cursor;
+    /**
+     * The tasks each agent has done outside the frame, by agent id, packed by
+     * {@link Coords#pack} on the whole grid; null for most agents. They travel
+     * with the agent, so that it does not do them again once back.
+     */
+    @NonNull
+    private long[][] away;
+    @NonNull
+    private final int[] neighbors;
+    @NonNull
+    private final ByteBuffer[] outgoing;
+    @NonNull
+    private final ByteBuffer[] incoming;
+    @NonNull
+    private final HaloTransport transport;
+    /** The number of the region's own tasks. */
+    private final int numTasks;
+    private int numTasksComplete;
+    private long migrations;
+    private long relayedBroadcasts;
+
+    /**
+     * Places the region's share of the run's tasks and agents.
+     *
+     * @param run       The parameters of the run
+     * @param region    The region to run
+     * @param transport How to reach the neighbors, in the order of
+     *                  {@link Partition#neighbors(int)}
+     */
+    public RegionTickEngine(@NonNull final PartitionedRun run, final int region,
+            @NonNull final HaloTransport transport) {
+        this.partition = run.partition();
+        this.region = region;
+        this.commDist = run.commDist();
+        this.transport = transport;
+        Partition p = partition;
+        originX = p.frameX0(region);
+        originY = p.frameY0(region);
+        width = p.frameX1(region) - originX;
+        height = p.frameY1(region) - originY;
+        ownX0 = p.x0(region) - originX;
+        ownY0 = p.y0(region) - originY;
+        ownX1 = p.x1(region) - originX;
+        ownY1 = p.y1(region) - originY;
+        side = Math.max(width, height);
+
+        TaskPlacement.Tasks tasks = new TaskPlacement(run.gridSize(), run.numTasks(), run.seed()).place(originX,
+                originY, p.frameX1(region), p.frameY1(region));
+        long[] locations = tasks.locations();
+        int own = 0;
+        for (int i = 0; i < locations.length; i++) {
+            int x = Coords.x(locations[i]) - originX;
+            int y = Coords.y(locations[i]) - originY;
+            locations[i] = Coords.pack(x, y);
+            if (owns(x, y))
+                own++;
+        }
+        numTasks = own;
+        simGrid = SimulationGrid.regionGrid(side, run.bucketSize(), regionSeed(run.seed(), region), locations,
+                tasks.seeds());
+        simGrid.setHalo(this);
+
+        int numAgents = run.agentsIn(region);
+        store = new AgentStore(side, numAgents);
+        away = new long[Math.max(numAgents, 1)][];
+        cursor = new StoredAgent(store, simGrid, width, height);
+        strategy = new BroadcastArrayStrategy(store, simGrid, commDist);
+        SplittableRandom rand = simGrid.splitRandom();
+        for (int id = 0; id < numAgents; id++) {
+            int x = ownX0 + rand.nextInt(ownX1 - ownX0);
+            int y = ownY0 + rand.nextInt(ownY1 - ownY0);
+            store.add(id, x, y, run.commTime());
+            simGrid.indexAgent(id, x, y);
+        }
+
+        neighbors = p.neighbors(region);
+        outgoing = new ByteBuffer[neighbors.length];
+        incoming = new ByteBuffer[neighbors.length];
+        for (int i = 0; i < neighbors.length; i++) {
+            outgoing[i] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            incoming[i] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Sweeps the region's agents in id order, then trades with the neighbors.
+     * An agent that steps out of the region leaves the store at once, and the
+     * last agent, which has yet to act, takes its id.
+     *
+     * @param grid The region's grid
+     * @throws UncheckedIOException If a neighbor cannot be reached
+     */
+    @Override
+    public void tick(@NonNull final SimulationGrid grid) {
+        StoredAgent a = cursor;
+        int id = 0;
+        while (id < store.size()) {
+            a.at(id);
+            int x = a.x();
+            int y = a.y();
+            strategy.act(a);
+            if (a.x() == x && a.y() == y) {
+                id++;
+            } else if (owns(a.x(), a.y())) {
+                simGrid.indexAgent(id, a.x(), a.y());
+                id++;
+            } else {
+                migrate(id);
+            }
+        }
+        for (ByteBuffer out : outgoing)
+            out.flip();
+        try {
+            transport.exchange(outgoing, incoming);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lost touch with a neighbor of region " + region, e);
+        }
+        for (ByteBuffer out : outgoing)
+            out.clear();
+        for (ByteBuffer in : incoming)
+            receive(in);
+    }
+
+    /**
+     * Sends the agent with the given id to the region it stepped into.
+     */
+    private void migrate(final int id) {
+        StoredAgent a = cursor.at(id);
+        int x = originX + a.x();
+        int y = originY + a.y();
+        long[] far = away[id];
+        int farCount = far != null ? far.length : 0;
+        int done = a.doneCount();
+        ByteBuffer out = room(slotOf(partition.owner(x, y)), 38 + (done + farCount) * Long.BYTES);
+        out.put(MIGRANT).putInt(x).putInt(y).putInt(a.state()).putInt(a.commTime());
+        out.putLong(global(a.target())).putLong(global(a.commTask())).put((byte) (a.isBroadcastReceived() ? 1 : 0));
+        out.putInt(done + farCount);
+        for (int i = 0; i < done; i++)
+            out.putLong(global(a.done(i)));
+        for (int i = 0; i < farCount; i++)
+            out.putLong(far[i]);
+        simGrid.unindexAgent(id);
+        int last = store.remove(id);
+        if (last != id) {
+            simGrid.unindexAgent(last);
+            a.at(id);
+            simGrid.indexAgent(id, a.x(), a.y());
+        }
+        away[id] = away[last];
+        away[last] = null;
+        migrations++;
+    }
+
+    /**
+     * Applies what a neighbor sent, in the order it was sent.
+     */
+    private void receive(@NonNull final ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte kind = in.get();
+            int x = in.getInt() - originX;
+            int y = in.getInt() - originY;
+            switch (kind) {
+            case MIGRANT:
+                arrive(x, y, in);
+                break;
+            case BROADCAST:
+                int task = local(Coords.pack(in.getInt(), in.getInt()));
+                if (task != AgentStore.NONE)
+                    strategy.deliver(x, y, task);
+                break;
+            case EXECUTION:
+                simGrid.executeTaskAt(x, y);
+                break;
+            case COMPLETION:
+                Task t = simGrid.getTask(x, y);
+                while (t != null && !t.isComplete())
+                    simGrid.replayExecution(t.getId());
+                break;
+            default:
+                throw new IllegalStateException("Unknown halo record " + kind + " in region " + region);
+            }
+        }
+    }
+
+    /**
+     * Adds an agent that stepped into the region at (x, y).
+     */
+    private void arrive(final int x, final int y, @NonNull final ByteBuffer in) {
+        int id = store.size();
+        int state = in.getInt();
+        store.add(id, x, y, in.getInt());
+        StoredAgent a = cursor.at(id);
+        a.setState(state);
+        a.setTarget(local(in.getLong()));
+        a.setCommTask(local(in.getLong()));
+        a.setBroadcastReceived(in.get() != 0);
+        long[] far = null;
+        int farCount = 0;
+        for (int i = in.getInt(); i > 0; i--) {
+            long p = in.getLong();
+            int cell = local(p);
+            if (cell != AgentStore.NONE) {
+                a.markDone(cell);
+            } else {
+                if (far == null)
+                    far = new long[i];
+                far[farCount++] = p;
+            }
+        }
+        if (id >= away.length)
+            away = Arrays.copyOf(away, away.length * 2);
+        away[id] = far != null ? Arrays.copyOf(far, farCount) : null;
+        simGrid.indexAgent(id, x, y);
+    }
+
+    @Override
+    public boolean isHalo(final int x, final int y) {
+        return !owns(x, y);
+    }
+
+    @Override
+    public void haloExecution(final int x, final int y) {
+        int gx = originX + x;
+        int gy = originY + y;
+        room(slotOf(partition.owner(gx, gy)), 9).put(EXECUTION).putInt(gx).putInt(gy);
+    }
+
+    @Override
+    public void taskCompleted(final int x, final int y) {
+        if (!owns(x, y))
+            return;
+        numTasksComplete++;
+        int gx = originX + x;
+        int gy = originY + y;
+        for (int i = 0; i < neighbors.length; i++) {
+            if (partition.inFrame(neighbors[i], gx, gy))
+                room(i, 9).put(COMPLETION).putInt(gx).putInt(gy);
+        }
+    }
+
+    @Override
+    public void broadcast(final int x, final int y, final int taskX, final int taskY) {
+        int gx = originX + x;
+        int gy = originY + y;
+        for (int i = 0; i < neighbors.length; i++) {
+            if (partition.reaches(neighbors[i], gx, gy, commDist)) {
+                room(i, 17).put(BROADCAST).putInt(gx).putInt(gy).putInt(originX + taskX).putInt(originY + taskY);
+                relayedBroadcasts++;
+            }
+        }
+    }
+
+    /**
+     * @return The region's grid, whose coordinates start at the corner of the
+     *         region's frame
+     */
+    @NonNull
+    public SimulationGrid getSimGrid() { return simGrid; }
+
+    /**
+     * @return The agents standing in the region
+     */
+    @NonNull
+    public AgentStore getStore() { return store; }
+
+    /**
+     * @return The number of the region's own tasks
+     */
+    public int getNumTasks() { return numTasks; }
+
+    /**
+     * @return The number of the region's own tasks that are complete
+     */
+    public int getNumTasksComplete() { return numTasksComplete; }
+
+    /**
+     * @return The number of agents that have left the region so far
+     */
+    public long getMigrations() { return migrations; }
+
+    /**
+     * @return The number of broadcasts passed on to a neighbor so far, once per
+     *         neighbor
+     */
+    public long getRelayedBroadcasts() { return relayedBroadcasts; }
+
+    /**
+     * @return True if (x, y), in frame coordinates, is in the region
+     */
+    private boolean owns(final int x, final int y) {
+        return x >= ownX0 && x < ownX1 && y >= ownY0 && y < ownY1;
+    }
+
+    /**
+     * @return The index of a neighboring region in the neighbor arrays
+     */
+    private int slotOf(final int neighbor) {
+        for (int i = 0; i < neighbors.length; i++) {
+            if (neighbors[i] == neighbor)
+                return i;
+        }
+        throw new IllegalStateException("Region " + neighbor + " is not next to region " + region);
+    }
+
+    /**
+     * @return The outgoing buffer of a neighbor, grown if it has less than n
+     *         bytes left
+     */
+    @NonNull
+    private ByteBuffer room(final int slot, final int n) {
+        ByteBuffer out = outgoing[slot];
+        if (out.remaining() < n) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + n));
+            out.flip();
+            bigger.put(out);
+            outgoing[slot] = bigger;
+            out = bigger;
+        }
+        return out;
+    }
+
+    /**
+     * @return A cell packed for the store, as a location on the whole grid
+     */
+    private long global(final int cell) {
+        return cell == AgentStore.NONE ? Coords.NONE : Coords.pack(originX + cell / side, originY + cell % side);
+    }
+
+    /**
+     * A task an agent heads for or broadcasts lies in the frame of the region it
+     * stands in; only those it is done with can fall outside.
+     *
+     * @return A location on the whole grid packed for the store, or
+     *         {@link AgentStore#NONE} if it is outside the frame
+     */
+    private int local(final long p) {
+        if (p == Coords.NONE)
+            return AgentStore.NONE;
+        int x = Coords.x(p) - originX;
+        int y = Coords.y(p) - originY;
+        return x >= 0 && x < width && y >= 0 && y < height ? x * side + y : AgentStore.NONE;
+    }
+
+    /**
+     * @return The seed of the random choices of one region
+     */
+    private static long regionSeed(final long seed, final int region) {
+        return new SplittableRandom(seed + region * 0x9E3779B97F4A7C15L).nextLong();
+    }
+}
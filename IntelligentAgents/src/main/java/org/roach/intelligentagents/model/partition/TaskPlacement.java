@@ -0,0 +1,138 @@
+package org.roach.intelligentagents.model.partition;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.Coords;
+
+/**
+ * Places tasks on a grid too large to place them all in one process. The grid
+ * is cut into square blocks of {@link #BLOCK} cells a side; every block gets its
+ * share of the tasks by the number of its cells, so that the shares add up to
+ * exactly the number of tasks, and draws their cells and seeds from a stream of
+ * its own. Any rectangle of the grid can then be filled in by itself, and
+ * processes that fill in overlapping rectangles agree on every task they share,
+ * which is what lets a region keep copies of its neighbors' tasks.
+ * <p>
+ * Within a block, cells are drawn with Floyd's sampling into a bitmap, as
+ * {@link org.roach.intelligentagents.model.SimulationGrid#initTaskGrid()} does
+ * for a whole grid.
+ *
+ * @author Larry S. Roach
+ */
+public final class TaskPlacement {
+    /** The side of a block. */
+    static final int BLOCK = 1024;
+    /** Spacing of the seeds of block streams; an odd constant, so that no two blocks draw the same numbers. */
+    private static final long STREAM_SPACING = 0xBF58476D1CE4E5B9L;
+
+    private final int gridSize;
+    private final int numTasks;
+    private final long seed;
+    private final int blocksPerSide;
+    /** The cells chosen in the block being placed, reused from block to block. */
+    @NonNull
+    private final long[] chosen = new long[BLOCK * BLOCK / Long.SIZE];
+    /** The tasks found so far by {@link #place}. */
+    @NonNull
+    private long[] locations = new long[0];
+    @NonNull
+    private long[] seeds = new long[0];
+    private int found;
+
+    /**
+     * @param gridSize The width and height of the grid
+     * @param numTasks The number of tasks on the whole grid
+     * @param seed     The seed of the placement
+     */
+    public TaskPlacement(final int gridSize, final int numTasks, final long seed) {
+        if (numTasks > (long) gridSize * gridSize)
+            throw new IllegalArgumentException(numTasks + " tasks do not fit on a grid of size " + gridSize);
+        this.gridSize = gridSize;
+        this.numTasks = numTasks;
+        this.seed = seed;
+        this.blocksPerSide = (gridSize + BLOCK - 1) / BLOCK;
+    }
+
+    /**
+     * Finds the tasks on a rectangle of the grid.
+     *
+     * @param x0 The first x coordinate of the rectangle
+     * @param y0 The first y coordinate of the rectangle
+     * @param x1 The x coordinate just past the rectangle
+     * @param y1 The y coordinate just past the rectangle
+     * @return The tasks on the rectangle
+     */
+    @NonNull
+    public Tasks place(final int x0, final int y0, final int x1, final int y1) {
+        locations = new long[64];
+        seeds = new long[64];
+        found = 0;
+        if (x0 < x1 && y0 < y1) {
+            for (int bx = x0 / BLOCK; bx <= (x1 - 1) / BLOCK; bx++) {
+                for (int by = y0 / BLOCK; by <= (y1 - 1) / BLOCK; by++)
+                    placeBlock(bx, by, x0, y0, x1, y1);
+            }
+        }
+        return new Tasks(Arrays.copyOf(locations, found), Arrays.copyOf(seeds, found));
+    }
+
+    /**
+     * Draws the tasks of a block and keeps those on the rectangle.
+     */
+    private void placeBlock(final int bx, final int by, final int x0, final int y0, final int x1, final int y1) {
+        int width = Math.min(BLOCK, gridSize - bx * BLOCK);
+        int height = Math.min(BLOCK, gridSize - by * BLOCK);
+        int cells = width * height;
+        int count = (int) (tasksUpTo(bx, by + 1) - tasksUpTo(bx, by));
+        SplittableRandom rand = new SplittableRandom(seed + ((long) bx * blocksPerSide + by) * STREAM_SPACING);
+        long[] bits = chosen;
+        Arrays.fill(bits, 0, (cells + Long.SIZE - 1) / Long.SIZE, 0L);
+        for (int j = cells - count; j < cells; j++) {
+            int c = rand.nextInt(j + 1);
+            if ((bits[c >>> 6] & (1L << c)) != 0)
+                c = j; // Already chosen; j cannot have been, as every draw so far was below it
+            bits[c >>> 6] |= 1L << c;
+        }
+        for (int w = 0; w < (cells + Long.SIZE - 1) / Long.SIZE; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                int c = (w << 6) + Long.numberOfTrailingZeros(word);
+                int x = bx * BLOCK + c / height;
+                int y = by * BLOCK + c % height;
+                long taskSeed = rand.nextLong(); // Drawn for every task, so the rest do not depend on the rectangle
+                if (x >= x0 && x < x1 && y >= y0 && y < y1)
+                    keep(Coords.pack(x, y), taskSeed);
+            }
+        }
+    }
+
+    private void keep(final long location, final long seed) {
+        if (found == locations.length) {
+            locations = Arrays.copyOf(locations, found * 2);
+            seeds = Arrays.copyOf(seeds, found * 2);
+        }
+        locations[found] = location;
+        seeds[found] = seed;
+        found++;
+    }
+
+    /**
+     * @return The number of tasks in the blocks before block (bx, by), x-major
+     */
+    private long tasksUpTo(final int bx, final int by) {
+        long whole = (long) gridSize * gridSize;
+        long width = Math.min(BLOCK, gridSize - bx * BLOCK);
+        long before = (long) bx * BLOCK * gridSize + Math.min((long) by * BLOCK, gridSize) * width;
+        return Partition.share(numTasks, before, whole);
+    }
+
+    /**
+     * Tasks found by {@link TaskPlacement#place}.
+     *
+     * @param locations The location of each task, packed by {@link Coords#pack}
+     * @param seeds     The seed of each task
+     */
+    public record Tasks(@NonNull long[] locations, @NonNull long[] seeds) {
+    }
+}
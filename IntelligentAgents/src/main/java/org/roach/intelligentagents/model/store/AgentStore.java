@@ -0,0 +1,161 @@
+package org.roach.intelligentagents.model.store;
+
+import java.util.Arrays;
+
+/**
+ * Agents kept as parallel primitive arrays indexed by agent id, instead of one
+ * heap object (with its location, state objects and task set) per agent. A
+ * tick over the store is a linear sweep over int arrays, which lets a single
+ * machine run around a million agents. Strategies read and write the arrays
+ * through a {@link StoredAgent} cursor.
+ * <p>
+ * Locations are packed as {@code x * gridSize + y}. The store is not
+ * thread-safe.
+ *
+ * @author Larry S. Roach
+ */
+public final class AgentStore {
+    /** Marks an empty packed location. */
+    public static final int NONE = -1;
+    /** Initial number of agent slots. */
+    private static final int INITIAL_CAPACITY = 64;
+    /** Initial length of an agent's list of executed tasks. */
+    private static final int INITIAL_EXECUTED = 4;
+
+    private final int gridSize;
+    /** Number of agents in the store. */
+    private int size;
+    /** X coordinate of each agent. */
+    int[] xs = new int[0];
+    /** Y coordinate of each agent. */
+    int[] ys = new int[0];
+    /** State ordinal of each agent; the strategy defines the ordinals. */
+    int[] states = new int[0];
+    /** Broadcasts each agent has left. */
+    int[] commTimes = new int[0];
+    /** Packed location each agent is heading for, or NONE. */
+    int[] targets = new int[0];
+    /** Packed location of the task each agent is broadcasting, or NONE. */
+    int[] commTasks = new int[0];
+    /** Whether each agent has received a broadcast since it last looked. */
+    boolean[] received = new boolean[0];
+    /** Packed locations of the tasks each agent has executed, or null if none. */
+    int[][] executed = new int[0][];
+    /** Number of entries used in each agent's executed list. */
+    int[] executedCounts = new int[0];
+
+    /**
+     * @param gridSize       The width and height of the grid
+     * @param expectedAgents The number of agents the store should be sized for
+     */
+    public AgentStore(final int gridSize, final int expectedAgents) {
+        this.gridSize = gridSize;
+        ensureCapacity(Math.max(expectedAgents, INITIAL_CAPACITY) - 1);
+    }
+
+    /**
+     * Adds an agent. Ids must be handed out densely from 0, as
+     * {@link org.roach.intelligentagents.model.SimulationGrid#nextAgentId()} does.
+     *
+     * @param id       The agent id
+     * @param x        X coordinate of the agent
+     * @param y        Y coordinate of the agent
+     * @param commTime Number of broadcasts the agent may make
+     */
+    public void add(final int id, final int x, final int y, final int commTime) {
+        if (id != size)
+            throw new IllegalArgumentException("Expected agent id " + size + " but got " + id);
+        ensureCapacity(id);
+        xs[id] = x;
+        ys[id] = y;
+        states[id] = 0;
+        commTimes[id] = commTime;
+        targets[id] = NONE;
+        commTasks[id] = NONE;
+        size++;
+    }
+
+    /**
+     * Removes an agent, moving the last agent into its slot so that ids stay
+     * dense; the moved agent takes the removed agent's id.
+     *
+     * @param id The agent id
+     * @return The id the moved agent had, now free, or id itself if the agent
+     *         removed was the last
+     */
+    public int remove(final int id) {
+        int last = --size;
+        if (id != last) {
+            xs[id] = xs[last];
+            ys[id] = ys[last];
+            states[id] = states[last];
+            commTimes[id] = commTimes[last];
+            targets[id] = targets[last];
+            commTasks[id] = commTasks[last];
+            received[id] = received[last];
+            executed[id] = executed[last];
+            executedCounts[id] = executedCounts[last];
+        }
+        received[last] = false;
+        executed[last] = null;
+        executedCounts[last] = 0;
+        return last;
+    }
+
+    /**
+     * @return the number of agents in the store
+     */
+    public int size() { return size; }
+
+    /**
+     * @return the width and height of the grid
+     */
+    public int getGridSize() { return gridSize; }
+
+    /**
+     * Records that an agent has executed the task at a packed location.
+     *
+     * @param id   The agent id
+     * @param cell The packed task location
+     */
+    void addExecuted(final int id, final int cell) {
+        int[] cells = executed[id];
+        int count = executedCounts[id];
+        if (cells == null) {
+            cells = executed[id] = new int[INITIAL_EXECUTED];
+        } else if (count == cells.length) {
+            cells = executed[id] = Arrays.copyOf(cells, count * 2);
+        }
+        cells[count] = cell;
+        executedCounts[id] = count + 1;
+    }
+
+    /**
+     * @param id   The agent id
+     * @param cell The packed task location
+     * @return True if the agent has executed the task at the location
+     */
+    boolean hasExecuted(final int id, final int cell) {
+        int[] cells = executed[id];
+        for (int i = executedCounts[id] - 1; i >= 0; i--) {
+            if (cells[i] == cell)
+                return true;
+        }
+        return false;
+    }
+
+    private void ensureCapacity(final int id) {
+        if (id < xs.length)
+            return;
+        int length = Math.max(id + 1, xs.length * 2);
+        xs = Arrays.copyOf(xs, length);
+        ys = Arrays.copyOf(ys, length);
+        states = Arrays.copyOf(states, length);
+        commTimes = Arrays.copyOf(commTimes, length);
+        targets = Arrays.copyOf(targets, length);
+        commTasks = Arrays.copyOf(commTasks, length);
+        received = Arrays.copyOf(received, length);
+        executed = Arrays.copyOf(executed, length);
+        executedCounts = Arrays.copyOf(executedCounts, length);
+    }
+}
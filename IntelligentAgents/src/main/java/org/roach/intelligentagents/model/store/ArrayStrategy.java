@@ -0,0 +1,20 @@
+package org.roach.intelligentagents.model.store;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * The behaviour of agents kept in an {@link AgentStore}. Unlike an
+ * {@link org.roach.intelligentagents.model.strategy.AgentStrategy}, one instance
+ * drives every agent, and all per-agent data lives in the store.
+ *
+ * @author Larry S. Roach
+ */
+@FunctionalInterface
+public interface ArrayStrategy {
+    /**
+     * Performs one action for the agent under the cursor.
+     *
+     * @param agent A view of the acting agent
+     */
+    void act(@NonNull StoredAgent agent);
+}
@@ -0,0 +1,153 @@
+package org.roach.intelligentagents.model.store;
+
+import java.util.SplittableRandom;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.AgentIdVisitor;
+import org.roach.intelligentagents.model.HaloListener;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.Task;
+
+/**
+ * The basic communicating agent of
+ * {@link org.roach.intelligentagents.model.strategy.CommunicatingAgentStrategy}
+ * for agents in an {@link AgentStore}: wander at random, broadcast each new task
+ * for a while, and head for tasks that other agents broadcast.
+ *
+ * @author Larry S. Roach
+ */
+public class BroadcastArrayStrategy implements ArrayStrategy, AgentIdVisitor {
+    /** Wandering at random. */
+    public static final int RANDOM = 0;
+    /** Wandering at random and broadcasting the last task found. */
+    public static final int RANDOMCOMMS = 1;
+    /** Heading for a broadcast task. */
+    public static final int GOTO = 2;
+
+    @NonNull
+    private final SimulationGrid simGrid;
+    private final int commDist;
+    private final int gridSize;
+    /** One stream for all agents; the array engine runs them on a single thread. */
+    @NonNull
+    private final SplittableRandom rand;
+    /** View of the agent receiving a broadcast, so the acting view is untouched. */
+    @NonNull
+    private final StoredAgent receiver;
+    /** The packed task location being broadcast. */
+    private int message = AgentStore.NONE;
+
+    /**
+     * @param store    The agents
+     * @param simGrid  The grid the agents live on
+     * @param commDist Communications distance
+     */
+    public BroadcastArrayStrategy(@NonNull final AgentStore store, @NonNull final SimulationGrid simGrid,
+            final int commDist) {
+        this.simGrid = simGrid;
+        this.commDist = commDist;
+        this.gridSize = store.getGridSize();
+        this.receiver = new StoredAgent(store, simGrid);
+        this.rand = simGrid.splitRandom();
+    }
+
+    @Override
+    public void act(@NonNull final StoredAgent a) {
+        switch (a.state()) {
+        case RANDOM:
+            a.randomMove(rand);
+            if (a.foundNewTask()) {
+                a.executeTask();
+                initComms(a);
+                a.setState(RANDOMCOMMS);
+            } else if (a.isBroadcastReceived()) {
+                a.setBroadcastReceived(false);
+            }
+            break;
+        case RANDOMCOMMS:
+            if (a.commTime() > 0) {
+                if (a.commTask() != AgentStore.NONE)
+                    broadcast(a, a.commTask());
+                a.setCommTime(a.commTime() - 1);
+            } else {
+                a.setState(RANDOM);
+            }
+            a.randomMove(rand);
+            if (a.foundNewTask()) {
+                a.executeTask();
+                initComms(a);
+                a.setState(RANDOMCOMMS);
+            } else if (a.isBroadcastReceived()) {
+                a.setBroadcastReceived(false);
+                a.setState(GOTO);
+            }
+            break;
+        case GOTO:
+            if (a.target() == AgentStore.NONE) {
+                a.setState(RANDOM);
+                break;
+            }
+            a.setBroadcastReceived(false);
+            a.moveTowards(a.target());
+            if (a.cell() == a.target()) {
+                if (!a.hasDoneAlready(a.cell()))
+                    a.executeTask();
+                a.setState(RANDOM);
+            }
+            break;
+        default:
+            throw new IllegalStateException("Unknown state " + a.state());
+        }
+    }
+
+    /**
+     * Remembers the task under the agent for broadcasting, unless it is complete.
+     */
+    private void initComms(@NonNull final StoredAgent a) {
+        Task task = simGrid.getTask(a.x(), a.y());
+        if (task != null && !task.isComplete())
+            a.setCommTask(a.cell());
+    }
+
+    /**
+     * Sends a packed task location to every agent within communication distance,
+     * and to the grid's halo if it has one.
+     */
+    private void broadcast(@NonNull final StoredAgent sender, final int cell) {
+        deliver(sender.x(), sender.y(), cell);
+        HaloListener halo = simGrid.getHalo();
+        if (halo != null)
+            halo.broadcast(sender.x(), sender.y(), cell / gridSize, cell % gridSize);
+    }
+
+    /**
+     * Delivers a broadcast made at (x, y) to every agent in the store within
+     * communication distance of it, as for a broadcast that another region
+     * passed on.
+     *
+     * @param x    The x coordinate the broadcast was made from
+     * @param y    The y coordinate the broadcast was made from
+     * @param cell The packed task location broadcast
+     */
+    public void deliver(final int x, final int y, final int cell) {
+        message = cell;
+        simGrid.forEachAgentIdWithin(x, y, commDist, this);
+        message = AgentStore.NONE;
+    }
+
+    /**
+     * Receives the current broadcast; the array form of
+     * {@code CommunicatingAgentStrategy.receiveMessage}.
+     */
+    @Override
+    public void visit(final int id) {
+        StoredAgent r = receiver.at(id);
+        Task t = simGrid.getTask(message / gridSize, message % gridSize);
+        if (t != null && t.isComplete())
+            r.markDone(message);
+        if (!r.hasDoneAlready(message)) {
+            r.setTarget(message);
+            r.setBroadcastReceived(true);
+        }
+    }
+}
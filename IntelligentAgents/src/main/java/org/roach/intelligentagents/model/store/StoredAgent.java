@@ -0,0 +1,195 @@
+package org.roach.intelligentagents.model.store;
+
+import java.util.SplittableRandom;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.Task;
+
+/**
+ * A flyweight view of one agent in an {@link AgentStore}. Point it at an agent
+ * with {@link #at(int)}; every getter and move then reads or writes that
+ * agent's slots in the store's arrays. Movement follows the same rules as
+ * {@link org.roach.intelligentagents.model.Agent}: a step that would leave the
+ * grid is not taken.
+ *
+ * @author Larry S. Roach
+ */
+public final class StoredAgent {
+    /** X step of each random direction, in the order Agent.randomMove uses. */
+    private static final int[] DX = { 0, 1, 0, -1, -1, -1, 1, 1 };
+    /** Y step of each random direction. */
+    private static final int[] DY = { -1, 0, 1, 0, -1, 1, -1, 1 };
+
+    @NonNull
+    private final AgentStore store;
+    @NonNull
+    private final SimulationGrid simGrid;
+    private final int gridSize;
+    /** Moves are kept to x below this. */
+    private final int width;
+    /** Moves are kept to y below this. */
+    private final int height;
+    /** The agent currently viewed. */
+    private int id;
+
+    /**
+     * @param store   The store to view
+     * @param simGrid The grid the agents live on
+     */
+    public StoredAgent(@NonNull final AgentStore store, @NonNull final SimulationGrid simGrid) {
+        this(store, simGrid, store.getGridSize(), store.getGridSize());
+    }
+
+    /**
+     * A view whose agents move within a rectangle at the corner of the grid,
+     * for a grid that holds more cells than the simulated area.
+     *
+     * @param store   The store to view
+     * @param simGrid The grid the agents live on
+     * @param width   Moves are kept to x below this
+     * @param height  Moves are kept to y below this
+     */
+    public StoredAgent(@NonNull final AgentStore store, @NonNull final SimulationGrid simGrid, final int width,
+            final int height) {
+        this.store = store;
+        this.simGrid = simGrid;
+        this.gridSize = store.getGridSize();
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Points this view at another agent.
+     *
+     * @param agentId The agent id
+     * @return this view
+     */
+    @NonNull
+    public StoredAgent at(final int agentId) {
+        this.id = agentId;
+        return this;
+    }
+
+    public int id() { return id; }
+
+    public int x() { return store.xs[id]; }
+
+    public int y() { return store.ys[id]; }
+
+    /**
+     * @return the agent's location packed as {@code x * gridSize + y}
+     */
+    public int cell() { return store.xs[id] * gridSize + store.ys[id]; }
+
+    public int state() { return store.states[id]; }
+
+    public void setState(final int state) { store.states[id] = state; }
+
+    public int commTime() { return store.commTimes[id]; }
+
+    public void setCommTime(final int commTime) { store.commTimes[id] = commTime; }
+
+    /**
+     * @return the packed location the agent is heading for, or
+     *         {@link AgentStore#NONE}
+     */
+    public int target() { return store.targets[id]; }
+
+    public void setTarget(final int cell) { store.targets[id] = cell; }
+
+    /**
+     * @return the packed location of the task the agent broadcasts, or
+     *         {@link AgentStore#NONE}
+     */
+    public int commTask() { return store.commTasks[id]; }
+
+    public void setCommTask(final int cell) { store.commTasks[id] = cell; }
+
+    public boolean isBroadcastReceived() { return store.received[id]; }
+
+    public void setBroadcastReceived(final boolean received) { store.received[id] = received; }
+
+    /**
+     * Steps by (dx, dy) if the destination is on the grid.
+     *
+     * @param dx Step along x, -1 to 1
+     * @param dy Step along y, -1 to 1
+     */
+    public void moveBy(final int dx, final int dy) {
+        int nx = store.xs[id] + dx;
+        int ny = store.ys[id] + dy;
+        if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
+            store.xs[id] = nx;
+            store.ys[id] = ny;
+        }
+    }
+
+    /**
+     * Steps in one of the eight directions, chosen at random.
+     *
+     * @param rand The source of randomness
+     */
+    public void randomMove(@NonNull final SplittableRandom rand) {
+        int dir = rand.nextInt(8);
+        moveBy(DX[dir], DY[dir]);
+    }
+
+    /**
+     * Steps towards a packed location, diagonally if both axes differ.
+     *
+     * @param cell The packed location to move towards
+     */
+    public void moveTowards(final int cell) {
+        moveBy(Integer.signum(cell / gridSize - store.xs[id]), Integer.signum(cell % gridSize - store.ys[id]));
+    }
+
+    /**
+     * @param cell A packed task location
+     * @return True if the agent has already executed the task there
+     */
+    public boolean hasDoneAlready(final int cell) {
+        return store.hasExecuted(id, cell);
+    }
+
+    /**
+     * @return the number of tasks the agent has executed or marked done
+     */
+    public int doneCount() { return store.executedCounts[id]; }
+
+    /**
+     * @param i An index below {@link #doneCount()}
+     * @return the packed location of the i-th task the agent has done
+     */
+    public int done(final int i) { return store.executed[id][i]; }
+
+    /**
+     * Records the task at a packed location as done without executing it.
+     *
+     * @param cell The packed task location
+     */
+    public void markDone(final int cell) {
+        if (!store.hasExecuted(id, cell))
+            store.addExecuted(id, cell);
+    }
+
+    /**
+     * Checks whether the agent stands on a task that exists, is not complete and
+     * has not been executed by this agent.
+     *
+     * @return True if new task found
+     */
+    public boolean foundNewTask() {
+        Task t = simGrid.getTask(x(), y());
+        return t != null && !t.isComplete() && !hasDoneAlready(cell());
+    }
+
+    /**
+     * Executes the task at the agent's location.
+     */
+    public void executeTask() {
+        simGrid.executeTaskAt(x(), y());
+        if (simGrid.getTask(x(), y()) != null)
+            markDone(cell());
+    }
+}
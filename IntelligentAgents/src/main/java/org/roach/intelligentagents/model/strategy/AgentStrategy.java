@@ -1,14 +1,17 @@
 package org.roach.intelligentagents.model.strategy;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Optional;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.roach.intelligentagents.AgentAppOpts;
-import org.roach.intelligentagents.PropertyConstants;
 import org.roach.intelligentagents.model.Agent;
 import org.roach.intelligentagents.model.SimulationGrid;
 import org.roach.intelligentagents.model.State;
 import org.roach.intelligentagents.model.TaskToDo;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
 
 /**
  * @author Larry S. Roach
@@ -64,9 +67,9 @@ public abstract class AgentStrategy {
      */
     public void doAction() {
         assert (agent != null);
-        agent.getmPcs().firePropertyChange(PropertyConstants.PREPARE_TO_ACT, null, null);
+        long from = agent.getPos();
         state.doAction();
-        agent.getmPcs().firePropertyChange(PropertyConstants.UPDATE_GRID, null, null);
+        agent.finishAction(from);
     }
 
     /**
@@ -84,7 +87,7 @@ public abstract class AgentStrategy {
     public boolean reachedTask() {
         Optional<TaskToDo> t = getTaskToDo();
         if (t.isPresent()) {
-            return agent.getLoc().equals(t.get().getLocation());
+            return agent.isAt(t.get().getLocation());
         }
         return false;
     }
@@ -101,4 +104,62 @@ public abstract class AgentStrategy {
 
     @NonNull
     public abstract String getDescription();
+
+    /**
+     * Lists the states an agent with this strategy can be in, always in the same
+     * order; a checkpoint records the current state by its position.
+     * 
+     * @return The states
+     */
+    @NonNull
+    protected State[] getStates() { return new State[0]; }
+
+    /**
+     * Writes the agent's part of the strategy to a checkpoint. Subclasses with
+     * state of their own write it after calling this.
+     * 
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        int i = Arrays.asList(getStates()).indexOf(state);
+        if (i < 0)
+            throw new IllegalStateException(getDescription() + " does not list the state " + state);
+        out.putInt(i);
+    }
+
+    /**
+     * Reads what {@link #writeCheckpoint} wrote.
+     * 
+     * @param in Where to read
+     * @throws IOException If the checkpoint does not fit the strategy
+     */
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        int i = in.getInt();
+        State[] states = getStates();
+        if (i < 0 || i >= states.length)
+            throw new IOException(getDescription() + " has no state " + i);
+        state = states[i];
+    }
+
+    /**
+     * Writes state that all agents with this strategy on the grid share, such as
+     * a mailbox. Called on one agent's strategy only.
+     * 
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void writeShared(@NonNull final CheckpointWriter out) throws IOException {
+        // Nothing shared
+    }
+
+    /**
+     * Reads what {@link #writeShared} wrote, once the agents have been made.
+     * 
+     * @param in Where to read
+     * @throws IOException If the checkpoint does not fit the strategy
+     */
+    public void readShared(@NonNull final CheckpointReader in) throws IOException {
+        // Nothing shared
+    }
 }
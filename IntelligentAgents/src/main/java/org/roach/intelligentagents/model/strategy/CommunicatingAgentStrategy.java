@@ -1,17 +1,19 @@
 package org.roach.intelligentagents.model.strategy;
 
 import java.awt.Color;
+import java.io.IOException;
 import java.util.Optional;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.roach.intelligentagents.AgentAppOpts;
-import org.roach.intelligentagents.PropertyConstants;
 import org.roach.intelligentagents.model.Agent;
 import org.roach.intelligentagents.model.Location;
 import org.roach.intelligentagents.model.SimulationGrid;
 import org.roach.intelligentagents.model.State;
 import org.roach.intelligentagents.model.Task;
 import org.roach.intelligentagents.model.TaskToDo;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
 
 /**
  * @author Larry S. Roach
@@ -22,11 +24,11 @@ public abstract class CommunicatingAgentStrategy extends AgentStrategy {
     /**
      * The default state
      */
-    public final State RANDOM = new State(Color.black, null, this.agent);
+    public final State RANDOM = new State("RANDOM", Color.black, null, this.agent);
     /**
      * State where the agent is "going to" a location
      */
-    public final State GOTO = new State(Color.black, null, this.agent);
+    public final State GOTO = new State("GOTO", Color.black, null, this.agent);
 
     /**
      * property representing communications distance for all agents
@@ -68,7 +70,7 @@ public abstract class CommunicatingAgentStrategy extends AgentStrategy {
     /**
      * 
      */
-    public final State RANDOMCOMMS = new State();
+    public final State RANDOMCOMMS = new State("RANDOMCOMMS");
 
     /** Flag to indicate whether a broadcast has been received. */
     protected boolean broadcastReceived;
@@ -95,7 +97,9 @@ public abstract class CommunicatingAgentStrategy extends AgentStrategy {
      */
     public void sendMessageIfPossible(Runnable actionIfNotPossible) {
         if (commTime > 0) {
-            agent.getmPcs().firePropertyChange(PropertyConstants.SEND_MESSAGE, null, commTaskLoc);
+            Location taskLoc = commTaskLoc;
+            if (taskLoc != null)
+                agent.broadcast(taskLoc);
             commTime--;
         } else {
             actionIfNotPossible.run();
@@ -108,10 +112,10 @@ public abstract class CommunicatingAgentStrategy extends AgentStrategy {
     public void receiveMessage(@NonNull final Location receivedLoc) {
         Task t = simGrid.getTask(receivedLoc);
         if (t != null && t.isComplete()) {
-            agent.getExecutedTasks().add(t);
+            agent.markDone(t);
         }
 
-        if (!agent.getExecutedTasks().contains(t)) {
+        if (!agent.hasDoneAlready(t)) {
             this.locToGoto = receivedLoc;
             setBroadcastReceived(true);
         }
@@ -143,6 +147,32 @@ public abstract class CommunicatingAgentStrategy extends AgentStrategy {
      */
     public boolean isBroadcastReceived() { return broadcastReceived; }
 
+    @Override
+    protected @NonNull State[] getStates() { return new State[] { RANDOM, GOTO, RANDOMCOMMS }; }
+
+    @Override
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        super.writeCheckpoint(out);
+        out.putInt(commDist);
+        out.putInt(commTime);
+        out.putLocation(locToGoto);
+        out.putLocation(commTaskLoc);
+        out.putBoolean(broadcastReceived);
+    }
+
+    @Override
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        super.readCheckpoint(in);
+        commDist = in.getInt();
+        commTime = in.getInt();
+        Location loc = in.getLocation();
+        if (loc == null)
+            throw new IOException("No location to go to");
+        locToGoto = loc;
+        commTaskLoc = in.getLocation();
+        broadcastReceived = in.getBoolean();
+    }
+
     /**
      * 
      * @see org.roach.intelligentagents.model.strategy.AgentStrategy#initStates()
@@ -167,9 +197,10 @@ public abstract class CommunicatingAgentStrategy extends AgentStrategy {
                 if (isBroadcastReceived()) {
                     setBroadcastReceived(false);
                 }
-            }, () -> getTaskToDo().ifPresent(task -> a.moveTowards(task.getLocation())));
+                a.moveTowards(t.getLocation());
+            }, () -> setState(RANDOM));
             if (a.getStrategy().reachedTask()) {
-                if (!a.hasDoneAlready(simGrid.getTask(a.getLoc())))
+                if (!a.hasDoneAlready(simGrid.getTask(a.getX(), a.getY())))
                     a.executeTask(); // execute it and switch back to Random
                 setState(RANDOM);
             }
@@ -1,11 +1,14 @@
 package org.roach.intelligentagents.model.strategy;
 
+import java.io.IOException;
 import java.util.Optional;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.roach.intelligentagents.model.Agent;
 import org.roach.intelligentagents.model.SimulationGrid;
 import org.roach.intelligentagents.model.TaskToDo;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
 
 /**
  * @author Larry S. Roach A FinderDoerAgent agent is just like a
@@ -32,7 +35,6 @@ public class FinderDoerStrategy extends CommunicatingAgentStrategy {
      */
     public FinderDoerStrategy(@NonNull final Agent agent, @NonNull final SimulationGrid simGrid) {
         super(agent, simGrid);
-        this.isFinder = Math.random() > 0.7;
         this.state = RANDOM;
     }
 
@@ -46,6 +48,7 @@ public class FinderDoerStrategy extends CommunicatingAgentStrategy {
     @Override
     protected void initStates() {
         super.initStates();
+        isFinder = agent.getRandom().nextDouble() > 0.7;
         RANDOM.setAgent(this.agent);
         RANDOM.setAlgorithm(a -> {
             a.randomMove();
@@ -104,7 +107,7 @@ public class FinderDoerStrategy extends CommunicatingAgentStrategy {
                 }
                 getTaskToDo().ifPresent((t) -> a.moveTowards(t.getLocation()));
                 if (reachedTask()) {
-                    if (!agent.hasDoneAlready(simGrid.getTask(agent.getLoc()))) {
+                    if (!agent.hasDoneAlready(simGrid.getTask(agent.getX(), agent.getY()))) {
                         agent.executeTask(); // execute it and switch back to Random
                     }
                     state = RANDOM;
@@ -114,6 +117,22 @@ public class FinderDoerStrategy extends CommunicatingAgentStrategy {
         });
     }
 
+    @Override
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        super.writeCheckpoint(out);
+        out.putBoolean(isFinder);
+        out.putInt(timeSinceLastBroadcast);
+        out.putInt(timeSinceLastFound);
+    }
+
+    @Override
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        super.readCheckpoint(in);
+        isFinder = in.getBoolean();
+        timeSinceLastBroadcast = in.getInt();
+        timeSinceLastFound = in.getInt();
+    }
+
     @Override
     public @NonNull String getDescription() { return "FinderDoer Strategy"; }
 }
@@ -1,23 +1,51 @@
 package org.roach.intelligentagents.model.strategy;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.Coords;
 import org.roach.intelligentagents.model.Location;
+import org.roach.intelligentagents.model.PhaseListener;
 import org.roach.intelligentagents.model.SimulationGrid;
 import org.roach.intelligentagents.model.Task;
 import org.roach.intelligentagents.model.TaskToDo;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
+import org.roach.intelligentagents.model.jfr.MailboxPollEvent;
+import org.roach.intelligentagents.model.jfr.MailboxPostEvent;
+import org.roach.intelligentagents.model.metrics.SimMetrics;
 
 /**
  * @author Stevie Roach
  *
  */
 public class MailboxStrategy extends CommunicatingAgentStrategy {
-    /** The shared mailbox associated with all Mailbox agents. */
-    static Mailbox mailbox = new Mailbox();
+    /**
+     * One mailbox per grid, so that simulations run side by side in one JVM do not
+     * read each other's messages.
+     */
+    private static final Map<SimulationGrid, Mailbox> MAILBOXES = Collections.synchronizedMap(new WeakHashMap<>());
+    /** The mailbox shared by all Mailbox agents on this agent's grid. */
+    Mailbox mailbox;
+    /** Accepts the locations of tasks this agent has already executed. */
+    private Predicate<Location> doneAlready;
     private TaskToDo taskToDo;
 
     /**
@@ -50,75 +78,335 @@ public class MailboxStrategy extends CommunicatingAgentStrategy {
             agent.executeTask();
             if (!simGrid.isTaskComplete(agent.getLoc())) {
                 Location locold = agent.getLoc();
-                mailbox.postMessage(locold);
+                mailbox.postMessage(agent.getId(), locold);
             }
         }
     }
 
     /**
-     * Determine if this agent is subjectively "near" (within communication distance
-     * of) the location of other
-     * 
-     * @param other The taskToDo to check
-     * @return True if within communication distance
-     */
-    private boolean near(Location other) {
-        int dist = agent.getLoc().getManDist(other);
-        return (dist <= commDist);
-    }
-
-    /**
-     * A mailbox is a FIFO deque of message shared by all MailboxAgents
+     * A mailbox holds the task locations posted by all MailboxAgents on a grid.
+     * Messages are sharded by location into square shards of
+     * {@link #SHARD_SIZE} cells, each a lock-free queue, so an agent asks for the
+     * nearest message within its communication distance by scanning only the
+     * shards around it; messages out of reach are never taken and put back. An
+     * index of the queued locations makes posting a location that is already
+     * queued an O(1) no-op. During the sense phase of a two-phase tick, agents see
+     * the messages as they were when the phase began, and their claims and posts
+     * are applied afterwards in agent-id order.
      * 
      * @author L. Stephen Roach
      */
-    static class Mailbox {
+    static class Mailbox implements PhaseListener {
+        /** Side of a shard, in cells. */
+        static final int SHARD_SIZE = 16;
+
+        /** Number of shards along each side of the grid. */
+        private final int shardsPerSide;
+        /** The messages in each shard, x-major; a shard's queue is made on its first post. */
+        @NonNull
+        private final AtomicReferenceArray<Queue<MailMessage>> shards;
+        /** The message queued for each location, so that a location is queued at most once. */
+        @NonNull
+        private final ConcurrentMap<Location, MailMessage> queued = new ConcurrentHashMap<>();
+        /** True during the sense phase: claims and posts are only recorded. */
+        private volatile boolean sensing;
+        /** Message claimed by each agent during the sense phase, by agent id. */
+        @NonNull
+        private MailMessage[] takes = new MailMessage[0];
+        /** Location posted by each agent during the sense phase, by agent id. */
+        @NonNull
+        private Location[] posts = new Location[0];
+        /** Where posts and claims are counted, or null. */
+        @Nullable
+        private final SimMetrics metrics;
+
+        /**
+         * @param gridSize The width and height of the grid
+         */
+        Mailbox(final int gridSize) {
+            this(gridSize, null);
+        }
 
-        /** The deque of messages */
-        Deque<MailMessage> messages = new ArrayDeque<>();
+        /**
+         * @param gridSize The width and height of the grid
+         * @param metrics  Where to count posts and claims and report the number of
+         *                 queued messages, or null
+         */
+        Mailbox(final int gridSize, @Nullable final SimMetrics metrics) {
+            shardsPerSide = Math.max(1, (gridSize + SHARD_SIZE - 1) / SHARD_SIZE);
+            shards = new AtomicReferenceArray<>(shardsPerSide * shardsPerSide);
+            this.metrics = metrics;
+            if (metrics != null)
+                metrics.registerGauge("mailboxDepth", queued::size);
+        }
 
         /**
-         * Add a message to the deque
+         * Makes room for an agent's intents. Called while agents are created, before
+         * any tick.
+         * 
+         * @param id The agent id
+         */
+        synchronized void reserve(final int id) {
+            if (id >= takes.length) {
+                int length = Math.max(id + 1, takes.length * 2);
+                takes = Arrays.copyOf(takes, length);
+                posts = Arrays.copyOf(posts, length);
+            }
+        }
+
+        @Override
+        public void beginSensePhase() {
+            sensing = true;
+        }
+
+        @Override
+        public void applyIntents() {
+            if (!sensing)
+                return; // No sense phase to end
+            sensing = false;
+            for (int id = 0; id < takes.length; id++) {
+                if (takes[id] != null) {
+                    take(takes[id]); // Several agents may have claimed it; the first wins
+                    takes[id] = null;
+                }
+            }
+            for (int id = 0; id < posts.length; id++) {
+                if (posts[id] != null) {
+                    postMessage(posts[id]);
+                    posts[id] = null;
+                }
+            }
+        }
+
+        /**
+         * Add a message on behalf of an agent. During the sense phase the post is
+         * recorded, and putting back the message the agent just claimed cancels the
+         * claim instead.
+         * 
+         * @param id  The posting agent
+         * @param loc Location to include in message
+         */
+        public void postMessage(final int id, @NonNull Location loc) {
+            if (!sensing) {
+                postMessage(loc);
+            } else if (takes[id] != null && takes[id].loc.equals(loc)) {
+                takes[id] = null;
+            } else {
+                posts[id] = loc; // At most one new post per action
+            }
+        }
+
+        /**
+         * Add a message unless one for the same location is already queued. Safe to
+         * call from several threads.
          * 
          * @param loc Location to include in message
          */
         public void postMessage(@NonNull Location loc) {
+            boolean added = queue(loc);
+            MailboxPostEvent event = new MailboxPostEvent();
+            if (event.shouldCommit()) {
+                event.x = loc.x();
+                event.y = loc.y();
+                event.queued = added;
+                event.commit();
+            }
+        }
+
+        /**
+         * @return True if the location was queued, false if it already was
+         */
+        private boolean queue(@NonNull Location loc) {
+            MailMessage old = queued.get(loc);
+            if (old != null && !old.isTaken())
+                return false; // Already queued
             MailMessage m = new MailMessage(loc);
-            synchronized (messages) {
-                if (!messages.contains(m)) {
-                    messages.addLast(m);
+            while (true) {
+                old = queued.putIfAbsent(loc, m);
+                if (old == null || (old.isTaken() && queued.replace(loc, old, m))) {
+                    shardFor(loc.x(), loc.y()).offer(m);
+                    if (metrics != null)
+                        metrics.count(SimMetrics.Counter.MESSAGES_SENT);
+                    return true;
                 }
+                if (!old.isTaken())
+                    return false; // Another agent queued it first
             }
         }
 
         /**
-         * Get the next message
+         * Claims the nearest message, by manhattan distance, within dist of (x, y),
+         * skipping the locations skip accepts. The claimed message is taken out of
+         * the mailbox. During the sense phase the claim is only recorded for the
+         * agent, and is resolved in {@link #applyIntents()}. Safe to call from
+         * several threads; only the shards overlapping the search square are read.
          * 
-         * @return Next message
+         * @param id   The agent asking
+         * @param x    X coordinate of the agent
+         * @param y    Y coordinate of the agent
+         * @param dist The greatest manhattan distance to look
+         * @param skip Locations the agent does not want
+         * @return The claimed message, or null if there is none in reach
          */
-        public MailMessage getMessage() {
-            synchronized (messages) {
-                return messages.removeFirst();
+        @Nullable
+        public MailMessage claimNear(final int id, final int x, final int y, final int dist,
+                @NonNull final Predicate<Location> skip) {
+            MailboxPollEvent event = new MailboxPollEvent();
+            event.begin();
+            MailMessage m = claim(id, x, y, dist, skip);
+            event.end();
+            if (event.shouldCommit()) {
+                event.agent = id;
+                event.x = x;
+                event.y = y;
+                event.distance = dist;
+                event.found = m != null;
+                event.commit();
+            }
+            return m;
+        }
+
+        /**
+         * The search of {@link #claimNear}.
+         */
+        @Nullable
+        private MailMessage claim(final int id, final int x, final int y, final int dist,
+                @NonNull final Predicate<Location> skip) {
+            int fromX = Math.max(0, x - dist) / SHARD_SIZE;
+            int toX = Math.min(shardsPerSide - 1, (x + dist) / SHARD_SIZE);
+            int fromY = Math.max(0, y - dist) / SHARD_SIZE;
+            int toY = Math.min(shardsPerSide - 1, (y + dist) / SHARD_SIZE);
+            while (true) {
+                MailMessage best = null;
+                int bestDist = Integer.MAX_VALUE;
+                for (int sx = fromX; sx <= toX; sx++) {
+                    for (int sy = fromY; sy <= toY; sy++) {
+                        Queue<MailMessage> shard = shards.get(sx * shardsPerSide + sy);
+                        if (shard == null)
+                            continue;
+                        for (Iterator<MailMessage> it = shard.iterator(); it.hasNext();) {
+                            MailMessage m = it.next();
+                            if (m.isTaken()) {
+                                if (!sensing)
+                                    it.remove(); // Taken messages are unlinked lazily
+                                continue;
+                            }
+                            int d = Math.abs(m.loc.x() - x) + Math.abs(m.loc.y() - y);
+                            if (d <= dist && d < bestDist && !skip.test(m.loc)) {
+                                best = m;
+                                bestDist = d;
+                            }
+                        }
+                    }
+                }
+                if (best == null)
+                    return null;
+                if (sensing) {
+                    takes[id] = best;
+                    return best;
+                }
+                if (take(best))
+                    return best;
+                // Another agent claimed it first; look again
             }
         }
 
         /**
          * Determine if there are messages to be gotten
          * 
-         * @return True if message deque is not empty
+         * @return True if the mailbox holds a message
          */
         public boolean messagesExist() {
-            return (!messages.isEmpty());
+            return !queued.isEmpty();
+        }
+
+        /**
+         * Marks a message as taken and drops it from the index, so that its location
+         * can be posted again. The message leaves its shard's queue the next time
+         * the shard is scanned.
+         * 
+         * @param m The message
+         * @return True if this call took the message, false if it already was
+         */
+        private boolean take(@NonNull final MailMessage m) {
+            if (!m.taken.compareAndSet(false, true))
+                return false;
+            queued.remove(m.loc, m);
+            if (metrics != null)
+                metrics.count(SimMetrics.Counter.MESSAGES_RECEIVED);
+            return true;
+        }
+
+        /**
+         * Writes the queued messages shard by shard, each in queue order, so that
+         * a restored mailbox hands them out in the same order. Called between
+         * ticks.
+         * 
+         * @param out Where to write
+         * @throws IOException If writing fails
+         */
+        void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+            out.putInt(shards.length());
+            List<MailMessage> waiting = new ArrayList<>();
+            for (int i = 0; i < shards.length(); i++) {
+                waiting.clear();
+                Queue<MailMessage> shard = shards.get(i);
+                if (shard != null)
+                    for (MailMessage m : shard)
+                        if (!m.isTaken())
+                            waiting.add(m);
+                long[] locations = new long[waiting.size()];
+                for (int j = 0; j < locations.length; j++)
+                    locations[j] = Coords.pack(waiting.get(j).loc.x(), waiting.get(j).loc.y());
+                out.putLongs(locations);
+            }
+        }
+
+        /**
+         * Queues the messages written by {@link #writeCheckpoint} in an empty
+         * mailbox. Nothing is counted as sent.
+         * 
+         * @param in Where to read
+         * @throws IOException If the mailbox written had another number of shards
+         */
+        void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+            int n = in.getInt();
+            if (n != shards.length())
+                throw new IOException("Expected " + shards.length() + " mailbox shards, found " + n);
+            for (int i = 0; i < n; i++) {
+                for (long p : in.getLongs()) {
+                    MailMessage m = new MailMessage(new Location(Coords.x(p), Coords.y(p)));
+                    queued.put(m.loc, m);
+                    shardFor(m.loc.x(), m.loc.y()).offer(m);
+                }
+            }
+        }
+
+        /**
+         * @return the queue of the shard holding (x, y), made if it does not exist
+         */
+        @NonNull
+        private Queue<MailMessage> shardFor(final int x, final int y) {
+            int i = (x / SHARD_SIZE) * shardsPerSide + y / SHARD_SIZE;
+            Queue<MailMessage> shard = shards.get(i);
+            if (shard == null) {
+                shards.compareAndSet(i, null, new ConcurrentLinkedQueue<>());
+                shard = shards.get(i);
+            }
+            return shard;
         }
 
         /**
          * Message class for use in Mailbox
          */
-        class MailMessage {
+        static class MailMessage {
 
             /** Location associated with this message */
             @NonNull
-            Location loc;
+            final Location loc;
+            /** Set once the message has been claimed. */
+            @NonNull
+            final AtomicBoolean taken = new AtomicBoolean();
 
             /**
              * Create a new MailMessage
@@ -139,6 +427,11 @@ public class MailboxStrategy extends CommunicatingAgentStrategy {
                 return loc;
             }
 
+            /**
+             * @return True once the message has been claimed
+             */
+            boolean isTaken() { return taken.get(); }
+
             /**
              * Overloaded equals operator
              * 
@@ -146,11 +439,8 @@ public class MailboxStrategy extends CommunicatingAgentStrategy {
              * @return True if the locations of the messages are equal
              */
             @Override
-            public boolean equals(Object o) {
-                if (o instanceof MailMessage mm) {
-                    return (loc == mm.loc);
-                }
-                throw new IllegalArgumentException();
+            public boolean equals(@Nullable Object o) {
+                return o instanceof MailMessage mm && loc.equals(mm.loc);
             }
 
             /**
@@ -172,28 +462,19 @@ public class MailboxStrategy extends CommunicatingAgentStrategy {
     @Override
     protected void initStates() {
         super.initStates();
+        mailbox = MAILBOXES.computeIfAbsent(simGrid, g -> new Mailbox(g.getGridSize(), g.getMetrics()));
+        doneAlready = l -> agent.hasDoneAlready(simGrid.getTask(l));
+        mailbox.reserve(agent.getId());
+        simGrid.addPhaseListener(mailbox);
         RANDOM.setAgent(this.agent);
         RANDOM.setAlgorithm(a -> {
-            if (mailbox.messagesExist()) {
-                Mailbox.MailMessage msg = mailbox.getMessage();
-                @NonNull
-                Location l = msg.location();
-                if (a.hasDoneAlready(simGrid.getTask(l))) {
-                    mailbox.postMessage(l);
-                    search();
-                } else {
-                    if (near(msg.location())) {
-                        taskToDo = new TaskToDo(msg.location());
-                        state = GOTO;
-                    } else {
-                        mailbox.postMessage(l);
-                        search();
-                    }
-                }
+            Mailbox.MailMessage msg = mailbox.claimNear(a.getId(), a.getX(), a.getY(), commDist, doneAlready);
+            if (msg != null) {
+                taskToDo = new TaskToDo(msg.location());
+                state = GOTO;
             } else {
                 search();
             }
-
         });
 
         GOTO.setAgent(this.agent);
@@ -203,18 +484,42 @@ public class MailboxStrategy extends CommunicatingAgentStrategy {
                 a.executeTask();
                 Task t = simGrid.getTask(a.getLoc());
                 if (t != null && !t.isComplete()) {
-                    mailbox.postMessage(a.getLoc());
+                    mailbox.postMessage(a.getId(), a.getLoc());
                 }
                 state = RANDOM;
             } else if (a.foundNewTask()) {
                 a.executeTask();
                 if (!simGrid.isTaskComplete(a.getLoc())) {
-                    mailbox.postMessage(a.getLoc());
+                    mailbox.postMessage(a.getId(), a.getLoc());
                 }
             }
         });
     }
 
+    @Override
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        super.writeCheckpoint(out);
+        out.putBoolean(taskToDo != null);
+        if (taskToDo != null)
+            taskToDo.writeCheckpoint(out);
+    }
+
+    @Override
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        super.readCheckpoint(in);
+        taskToDo = in.getBoolean() ? TaskToDo.readCheckpoint(in) : null;
+    }
+
+    @Override
+    public void writeShared(@NonNull final CheckpointWriter out) throws IOException {
+        mailbox.writeCheckpoint(out);
+    }
+
+    @Override
+    public void readShared(@NonNull final CheckpointReader in) throws IOException {
+        mailbox.readCheckpoint(in);
+    }
+
     @Override
     public @NonNull String getDescription() { return "Mailbox strategy"; }
 }
\ No newline at end of file
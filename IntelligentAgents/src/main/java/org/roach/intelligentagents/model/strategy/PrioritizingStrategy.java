@@ -6,6 +6,7 @@
 
 package org.roach.intelligentagents.model.strategy;
 
+import java.io.IOException;
 import java.util.Optional;
 import java.util.PriorityQueue;
 
@@ -15,6 +16,8 @@ import org.roach.intelligentagents.model.Location;
 import org.roach.intelligentagents.model.SimulationGrid;
 import org.roach.intelligentagents.model.Task;
 import org.roach.intelligentagents.model.TaskToDo;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
 
 /**
  * The Prioritizing agent works exactly like the basic Communicating agent
@@ -86,6 +89,30 @@ public class PrioritizingStrategy extends CommunicatingAgentStrategy {
         taskQueue.poll(); // remove top TaskToDo from queue
     }
 
+    /**
+     * Writes the task queue in the order of its heap, so that the restored queue
+     * is laid out, and breaks ties, the same way.
+     */
+    @Override
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        super.writeCheckpoint(out);
+        out.putBoolean(taskToDo != null);
+        if (taskToDo != null)
+            taskToDo.writeCheckpoint(out);
+        out.putInt(taskQueue.size());
+        for (TaskToDo t : taskQueue)
+            t.writeCheckpoint(out);
+    }
+
+    @Override
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        super.readCheckpoint(in);
+        taskToDo = in.getBoolean() ? TaskToDo.readCheckpoint(in) : null;
+        taskQueue.clear();
+        for (int i = in.getInt(); i > 0; i--)
+            taskQueue.add(TaskToDo.readCheckpoint(in)); // Adding a heap in order never reorders it
+    }
+
     @Override
     public @NonNull String getDescription() { return "Prioritizing Strategy"; }
 }
@@ -1,6 +1,7 @@
 package org.roach.intelligentagents.model.strategy;
 
 import java.awt.Color;
+import java.io.IOException;
 import java.util.Optional;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -9,6 +10,8 @@ import org.roach.intelligentagents.model.Agent;
 import org.roach.intelligentagents.model.SimulationGrid;
 import org.roach.intelligentagents.model.State;
 import org.roach.intelligentagents.model.TaskToDo;
+import org.roach.intelligentagents.model.checkpoint.CheckpointReader;
+import org.roach.intelligentagents.model.checkpoint.CheckpointWriter;
 
 /**
  * The Search agent is the "base case" for comparison with all other agents. It
@@ -29,7 +32,7 @@ public class SearchStrategy extends AgentStrategy {
 
     private Directions dir = Directions.EMPTY;
 
-    public final State SEARCH = new State(Color.black, null, this.agent);
+    public final State SEARCH = new State("SEARCH", Color.black, null, this.agent);
 
     private boolean starting = true;
 
@@ -67,52 +70,52 @@ public class SearchStrategy extends AgentStrategy {
         SEARCH.setAlgorithm(a -> {
             if (starting) {
                 starting = false;
-                if (a.getLoc().y() == 0)
-                    dir = (a.getLoc().x() == 0) ? Directions.SOUTHEAST : Directions.SOUTHWEST;
+                if (a.getY() == 0)
+                    dir = (a.getX() == 0) ? Directions.SOUTHEAST : Directions.SOUTHWEST;
                 else
-                    dir = (a.getLoc().x() == 0) ? Directions.NORTHEAST : Directions.NORTHWEST;
+                    dir = (a.getX() == 0) ? Directions.NORTHEAST : Directions.NORTHWEST;
             } else {
                 if (a.foundNewTask()) {
-                    simGrid.executeTaskAt(a.getLoc());
+                    simGrid.executeTaskFor(a);
                 }
                 switch (dir) {
                 case NORTHEAST:
-                    if (a.getLoc().y() > 0)
+                    if (a.getY() > 0)
                         a.moveNorth();
                     else {
                         a.moveEast();
                         if (a.foundNewTask())
-                            simGrid.executeTaskAt(a.getLoc());
+                            simGrid.executeTaskFor(a);
                         dir = Directions.SOUTHEAST;
                     }
                     break;
                 case SOUTHEAST:
-                    if (a.getLoc().y() < simGrid.getGridSize() - 1)
+                    if (a.getY() < simGrid.getGridSize() - 1)
                         a.moveSouth();
                     else {
                         a.moveEast();
                         if (a.foundNewTask())
-                            simGrid.executeTaskAt(a.getLoc());
+                            simGrid.executeTaskFor(a);
                         dir = Directions.NORTHEAST;
                     }
                     break;
                 case NORTHWEST:
-                    if (a.getLoc().y() > 0)
+                    if (a.getY() > 0)
                         a.moveNorth();
                     else {
                         a.moveWest();
                         if (a.foundNewTask())
-                            simGrid.executeTaskAt(a.getLoc());
+                            simGrid.executeTaskFor(a);
                         dir = Directions.SOUTHWEST;
                     }
                     break;
                 case SOUTHWEST:
-                    if (a.getLoc().y() < simGrid.getGridSize() - 1)
+                    if (a.getY() < simGrid.getGridSize() - 1)
                         a.moveSouth();
                     else {
                         a.moveWest();
                         if (a.foundNewTask())
-                            simGrid.executeTaskAt(a.getLoc());
+                            simGrid.executeTaskFor(a);
                         dir = Directions.NORTHWEST;
                     }
                     break;
@@ -125,6 +128,26 @@ public class SearchStrategy extends AgentStrategy {
         });
     }
 
+    @Override
+    protected @NonNull State[] getStates() { return new State[] { SEARCH }; }
+
+    @Override
+    public void writeCheckpoint(@NonNull final CheckpointWriter out) throws IOException {
+        super.writeCheckpoint(out);
+        out.putByte(dir.ordinal());
+        out.putBoolean(starting);
+    }
+
+    @Override
+    public void readCheckpoint(@NonNull final CheckpointReader in) throws IOException {
+        super.readCheckpoint(in);
+        int d = in.getByte();
+        if (d < 0 || d >= Directions.values().length)
+            throw new IOException("No direction " + d);
+        dir = Directions.values()[d];
+        starting = in.getBoolean();
+    }
+
     @Override
     public @NonNull String getDescription() { return "Search Strategy"; }
 }
@@ -0,0 +1,89 @@
+package org.roach.intelligentagents.model.trace;
+
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.Location;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.State;
+import org.roach.intelligentagents.model.TaskToDo;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+
+/**
+ * The strategy of an agent in a replay. It decides nothing: the agent shows
+ * the state, broadcast range and target that the trace last gave it, and
+ * moves only when the trace moves it.
+ *
+ * @author Larry S. Roach
+ */
+public class ReplayStrategy extends AgentStrategy {
+    /** Broadcast range to circle around the agent, or 0 for none. */
+    private int commRadius;
+    /** Packed location the agent is heading for, or {@link Coords#NONE}. */
+    private long gotoTarget = Coords.NONE;
+
+    /**
+     * @param simGrid The grid being replayed
+     */
+    public ReplayStrategy(@NonNull final SimulationGrid simGrid) {
+        this.simGrid = simGrid;
+        this.state = new State();
+    }
+
+    @Override
+    protected void initStates() {
+        // States come from the trace
+    }
+
+    @Override
+    public void setOptions(final AgentAppOpts options) {
+        // Nothing to set
+    }
+
+    /**
+     * Does nothing; a replay moves agents itself.
+     */
+    @Override
+    public void doAction() {
+        // Nothing to do
+    }
+
+    /**
+     * Shows what the trace recorded of the agent.
+     *
+     * @param look   The state, with its name and color
+     * @param radius The broadcast range to circle, or 0 for none
+     * @param target Packed location the agent is heading for, or
+     *               {@link Coords#NONE}
+     */
+    public void setLook(@NonNull final State look, final int radius, final long target) {
+        this.state = look;
+        this.commRadius = radius;
+        this.gotoTarget = target;
+    }
+
+    /**
+     * @return The broadcast range to circle around the agent, or 0 for none
+     */
+    public int getCommRadius() { return commRadius; }
+
+    /**
+     * @return The packed location the agent is heading for, or
+     *         {@link Coords#NONE}
+     */
+    public long getGotoTarget() { return gotoTarget; }
+
+    @Override
+    public Optional<TaskToDo> getTaskToDo() {
+        long t = gotoTarget;
+        if (t == Coords.NONE)
+            return Optional.empty();
+        return Optional.of(new TaskToDo(new Location(Coords.x(t), Coords.y(t)), 0));
+    }
+
+    @Override
+    @NonNull
+    public String getDescription() { return "Replay"; }
+}
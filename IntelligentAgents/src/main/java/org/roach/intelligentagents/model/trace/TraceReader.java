@@ -0,0 +1,315 @@
+package org.roach.intelligentagents.model.trace;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.State;
+
+/**
+ * Reads a trace written by {@link TraceRecorder}, one tick at a time, through a
+ * {@link FileChannel} into a direct buffer; a trace of any length is read in
+ * the memory of its largest tick. The grid and its tasks are read when the
+ * reader is made, and each call to {@link #readFrame} hands the changes of the
+ * next tick to a {@link TraceVisitor}, with moves already turned into
+ * positions and states into {@link State}s.
+ * <p>
+ * A trace whose last tick was cut short, as when the recorded run was killed,
+ * reads as ending with the tick before it.
+ *
+ * @author Larry S. Roach
+ */
+public final class TraceReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    @NonNull
+    private final Path file;
+    @NonNull
+    private final FileChannel channel;
+    /** The bytes read and not yet parsed; limited to the current block while it is parsed. */
+    @NonNull
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** The limit of the buffer outside a block. */
+    private int dataEnd;
+    private final int gridSize;
+    private final int startTick;
+    @NonNull
+    private final long[] taskLocations;
+    @NonNull
+    private final byte[] taskPrios;
+    /** Position and state of each agent as of the last frame read. */
+    @NonNull
+    private final int[] x;
+    @NonNull
+    private final int[] y;
+    @NonNull
+    private final State[] state;
+    /** The states named so far, by palette index. */
+    @NonNull
+    private final List<State> palette = new ArrayList<>();
+    private int frames;
+
+    /**
+     * Opens a trace and reads its grid and tasks.
+     *
+     * @param file The trace to read
+     * @throws IOException If the file cannot be read, is not a trace or is of
+     *                     another version
+     */
+    public TraceReader(@NonNull final Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            buffer.limit(0);
+            if (!fill(2 * Integer.BYTES) || buffer.getInt() != TraceRecorder.MAGIC)
+                throw new IOException("Not a trace: " + file);
+            int version = buffer.getInt();
+            if (version != TraceRecorder.VERSION)
+                throw new IOException("Trace version " + version + " is not supported: " + file);
+            if (!nextBlock())
+                throw new IOException("Trace is cut short: " + file);
+            gridSize = getVarint();
+            startTick = getVarint();
+            taskLocations = new long[getVarint()];
+            long cell = 0;
+            for (int i = 0; i < taskLocations.length; i++) {
+                cell += unzigzag(getVarlong());
+                taskLocations[i] = Coords.pack((int) (cell / gridSize), (int) (cell % gridSize));
+            }
+            taskPrios = new byte[taskLocations.length];
+            int id = -1;
+            for (int started = getVarint(); started > 0; started--) {
+                id = check(id + getVarint(), taskPrios.length);
+                taskPrios[id] = (byte) getVarint();
+            }
+            int numAgents = getVarint();
+            x = new int[numAgents];
+            y = new int[numAgents];
+            state = new State[numAgents];
+            endBlock();
+        } catch (IOException | BufferUnderflowException | NegativeArraySizeException | ArithmeticException e) {
+            channel.close();
+            throw e instanceof IOException io ? io : new IOException("Trace is damaged: " + file, e);
+        }
+    }
+
+    /**
+     * @return The width and height of the grid
+     */
+    public int getGridSize() { return gridSize; }
+
+    /**
+     * @return The number of ticks the recorded run had run when the trace began
+     */
+    public int getStartTick() { return startTick; }
+
+    /**
+     * @return The number of ticks the recorded run had run as of the last frame
+     *         read
+     */
+    public int getTick() { return startTick + Math.max(frames - 1, 0); }
+
+    /**
+     * @return The number of agents
+     */
+    public int getNumAgents() { return x.length; }
+
+    /**
+     * @return The location of each task, packed by {@link Coords#pack}, by id
+     */
+    @NonNull
+    public long[] getTaskLocations() { return taskLocations; }
+
+    /**
+     * @return The priority of each task when the trace began, by id
+     */
+    @NonNull
+    public byte[] getTaskPrios() { return taskPrios; }
+
+    /**
+     * Reads the next tick. The first frame read places every agent, which until
+     * then stands at (0, 0), and gives it its state; every frame after it is one
+     * tick of the recorded run.
+     *
+     * @param visitor Receives the changes
+     * @return False at the end of the trace
+     * @throws IOException If the file cannot be read or is damaged
+     */
+    public boolean readFrame(@NonNull final TraceVisitor visitor) throws IOException {
+        if (!nextBlock())
+            return false;
+        try {
+            int i = -1;
+            for (int gap = getVarint(); gap != 0; gap = getVarint()) {
+                i = check(i + gap, x.length);
+                int step = getVarint();
+                if (step == TraceRecorder.FAR) {
+                    x[i] += unzigzag(getVarint());
+                    y[i] += unzigzag(getVarint());
+                } else {
+                    x[i] += step / 3 - 1;
+                    y[i] += step % 3 - 1;
+                }
+                visitor.move(i, x[i], y[i]);
+            }
+            i = -1;
+            for (int gap = getVarint(); gap != 0; gap = getVarint()) {
+                i = check(i + gap, x.length);
+                int look = getVarint();
+                if (look == palette.size() + 1) {
+                    String name = getString();
+                    palette.add(new State(name, new Color(buffer.getInt(), true), null, null));
+                }
+                if (look > 0)
+                    state[i] = palette.get(check(look - 1, palette.size()));
+                else if (state[i] == null)
+                    throw new IOException("Trace is damaged: " + file);
+                int radius = getVarint();
+                long target = getVarlong() - 1;
+                visitor.look(i, state[i], radius,
+                        target < 0 ? Coords.NONE : Coords.pack((int) (target / gridSize), (int) (target % gridSize)));
+            }
+            int task = 0;
+            for (int n = getVarint(); n > 0; n--) {
+                task = check(task + unzigzag(getVarint()), taskLocations.length);
+                visitor.taskExecuted(task);
+            }
+            int sender = 0;
+            for (int n = getVarint(); n > 0; n--) {
+                sender = check(sender + unzigzag(getVarint()), x.length);
+                int taskX = getVarint();
+                int taskY = getVarint();
+                int fromX = taskX + unzigzag(getVarint());
+                int fromY = taskY + unzigzag(getVarint());
+                int radius = getVarint();
+                visitor.broadcast(sender, fromX, fromY, radius, taskX, taskY, getVarint());
+            }
+            endBlock();
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Trace is damaged: " + file, e);
+        }
+        frames++;
+        return true;
+    }
+
+    /**
+     * Tells whether the next frame is in the file, reading it into the buffer if
+     * it is. A frame that the file ends in the middle of is left unread.
+     *
+     * @return True if {@link #readFrame} will read a frame
+     * @throws IOException If the file cannot be read or is damaged
+     */
+    public boolean hasFrame() throws IOException {
+        if (!fill(Integer.BYTES))
+            return false;
+        int length = buffer.getInt(buffer.position());
+        if (length < 0 || length > Integer.MAX_VALUE - Integer.BYTES)
+            throw new IOException("Trace is damaged: " + file);
+        return fill(Integer.BYTES + length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return i, if it is an index into an array of the given length
+     */
+    private int check(final int i, final int length) throws IOException {
+        if (i < 0 || i >= length)
+            throw new IOException("Trace is damaged: " + file);
+        return i;
+    }
+
+    /**
+     * Reads the whole of the next block into the buffer and limits the buffer to
+     * it.
+     *
+     * @return False if the file ends first
+     */
+    private boolean nextBlock() throws IOException {
+        if (!hasFrame())
+            return false;
+        int length = buffer.getInt();
+        dataEnd = buffer.limit();
+        buffer.limit(buffer.position() + length);
+        return true;
+    }
+
+    private void endBlock() throws IOException {
+        if (buffer.hasRemaining())
+            throw new IOException("Trace is damaged: " + file);
+        buffer.limit(dataEnd);
+    }
+
+    /**
+     * Reads from the file until at least n bytes are buffered, growing the buffer
+     * if it is too small.
+     *
+     * @return False if the file ends first
+     */
+    private boolean fill(final int n) throws IOException {
+        ByteBuffer b = buffer;
+        if (b.remaining() >= n)
+            return true;
+        if (b.capacity() < n) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(b.capacity() * 2, n));
+            bigger.put(b);
+            b = bigger;
+            buffer = b;
+        } else {
+            b.compact();
+        }
+        while (b.position() < n) {
+            if (channel.read(b) < 0) {
+                b.flip();
+                return false;
+            }
+        }
+        b.flip();
+        return true;
+    }
+
+    @NonNull
+    private String getString() {
+        byte[] bytes = new byte[getVarint()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getVarint() {
+        return (int) getVarlong();
+    }
+
+    /**
+     * Reads a number put seven bits at a time, low bits first.
+     */
+    private long getVarlong() {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    private static int unzigzag(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
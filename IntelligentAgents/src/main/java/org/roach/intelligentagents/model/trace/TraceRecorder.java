@@ -0,0 +1,412 @@
+package org.roach.intelligentagents.model.trace;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.Location;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.State;
+import org.roach.intelligentagents.model.Task;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+import org.roach.intelligentagents.model.strategy.CommunicatingAgentStrategy;
+
+/**
+ * Records a run as a trace: where the tasks are, and then, tick by tick, every
+ * agent that moved, every agent whose state or helper graphics changed, every
+ * task execution and every broadcast. {@link TraceReader} reads it back, and a
+ * replay draws the run again without running any strategy.
+ * <p>
+ * A trace is a four-byte magic number and a version followed by blocks, each
+ * an int length and then its bytes: first the grid and its tasks, then one
+ * block per tick, the first of which places every agent. Within a block,
+ * numbers are variable-length and most are deltas: agents are numbered by the
+ * gap from the previous one recorded, a move to a neighbouring cell is one
+ * byte, and a state is an index into a palette that grows as new states are
+ * seen. Blocks are put into one direct buffer, which goes to the
+ * {@link FileChannel} whenever it fills and on {@link #close()}, so a run cut
+ * short keeps every tick but those still buffered.
+ * <p>
+ * The grid calls {@link #taskExecuted} and {@link #broadcast} as they happen,
+ * which every engine does on the thread that ticks; {@link #endTick} is then
+ * called on that thread between ticks.
+ *
+ * @author Larry S. Roach
+ */
+public final class TraceRecorder implements Closeable {
+    /** The first four bytes of a trace, "IATR". */
+    static final int MAGIC = 0x49415452;
+    /** The layout written; bumped whenever any part of it changes. */
+    static final int VERSION = 1;
+    /** Step code of a move by more than one cell, followed by the deltas. */
+    static final int FAR = 9;
+    /** Ints recorded per broadcast. */
+    private static final int BROADCAST_INTS = 7;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    @NonNull
+    private final FileChannel channel;
+    /** Grows if a single block does not fit. */
+    @NonNull
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** Position in the buffer of the length of the open block, or -1. */
+    private int blockStart = -1;
+    private final int gridSize;
+    /** Last recorded position of each agent, by index in the grid's list. */
+    @NonNull
+    private final int[] x;
+    @NonNull
+    private final int[] y;
+    /** Last recorded state, color, broadcast range and target of each agent. */
+    @NonNull
+    private final State[] state;
+    @NonNull
+    private final int[] rgb;
+    @NonNull
+    private final int[] radius;
+    @NonNull
+    private final long[] target;
+    /** Palette index of each state name and color recorded so far. */
+    @NonNull
+    private final Map<Look, Integer> palette = new HashMap<>();
+    /** Ids of the tasks executed during the current tick, in order. */
+    @NonNull
+    private int[] executions = new int[64];
+    private int numExecutions;
+    /** {@link #BROADCAST_INTS} ints for each broadcast of the current tick. */
+    @NonNull
+    private int[] broadcasts = new int[16 * BROADCAST_INTS];
+    private int numBroadcasts;
+    private boolean closed;
+
+    /**
+     * Starts a trace of a grid as it is now, replacing the file.
+     *
+     * @param file    Where to write
+     * @param simGrid The grid, with its agents
+     * @param tick    The number of ticks run so far
+     * @throws IOException If the file cannot be written
+     */
+    public TraceRecorder(@NonNull final Path file, @NonNull final SimulationGrid simGrid, final int tick)
+            throws IOException {
+        this.gridSize = simGrid.getGridSize();
+        int n = simGrid.getAgents().size();
+        this.x = new int[n];
+        this.y = new int[n];
+        this.state = new State[n];
+        this.rgb = new int[n];
+        this.radius = new int[n];
+        this.target = new long[n];
+        Arrays.fill(target, Coords.NONE);
+        this.channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        writeHeader(simGrid, tick);
+        endTick(simGrid);
+    }
+
+    /**
+     * Writes the grid and its tasks, and the number of agents.
+     */
+    private void writeHeader(@NonNull final SimulationGrid simGrid, final int tick) throws IOException {
+        beginBlock();
+        putVarint(gridSize);
+        putVarint(tick);
+        List<Task> tasks = simGrid.getTaskList();
+        putVarint(tasks.size());
+        long lastCell = 0;
+        int started = 0;
+        for (Task t : tasks) {
+            long cell = (long) t.getLocation().x() * gridSize + t.getLocation().y();
+            putVarlong(zigzag(cell - lastCell));
+            lastCell = cell;
+            if (t.getPrio() > 0)
+                started++;
+        }
+        // Only tasks already executed, as when tracing a restored run, have a priority
+        putVarint(started);
+        int lastId = -1;
+        for (Task t : tasks) {
+            if (t.getPrio() > 0) {
+                putVarint(t.getId() - lastId);
+                putVarint(t.getPrio());
+                lastId = t.getId();
+            }
+        }
+        putVarint(x.length);
+        endBlock();
+    }
+
+    /**
+     * Records a task execution that raised the task's priority.
+     *
+     * @param task The task id
+     */
+    public void taskExecuted(final int task) {
+        if (numExecutions == executions.length)
+            executions = Arrays.copyOf(executions, executions.length * 2);
+        executions[numExecutions++] = task;
+    }
+
+    /**
+     * Records a broadcast as it is delivered.
+     *
+     * @param sender    The id of the broadcasting agent
+     * @param from      Packed location where the sender stood when it broadcast
+     * @param radius    The range of the broadcast
+     * @param task      The task location broadcast
+     * @param receivers The number of agents that heard it
+     */
+    public void broadcast(final int sender, final long from, final int radius, @NonNull final Location task,
+            final int receivers) {
+        int i = numBroadcasts * BROADCAST_INTS;
+        if (i == broadcasts.length)
+            broadcasts = Arrays.copyOf(broadcasts, broadcasts.length * 2);
+        broadcasts[i] = sender;
+        broadcasts[i + 1] = Coords.x(from);
+        broadcasts[i + 2] = Coords.y(from);
+        broadcasts[i + 3] = radius;
+        broadcasts[i + 4] = task.x();
+        broadcasts[i + 5] = task.y();
+        broadcasts[i + 6] = receivers;
+        numBroadcasts++;
+    }
+
+    /**
+     * Writes the block of the tick just run: what changed since the last one,
+     * and the events recorded during it.
+     *
+     * @param simGrid The grid, between two ticks
+     * @throws IOException If the trace cannot be written
+     */
+    public void endTick(@NonNull final SimulationGrid simGrid) throws IOException {
+        List<Agent> agents = simGrid.getAgents();
+        int n = Math.min(agents.size(), x.length);
+        beginBlock();
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+            Agent a = agents.get(i);
+            int dx = a.getX() - x[i];
+            int dy = a.getY() - y[i];
+            if (dx != 0 || dy != 0) {
+                putVarint(i - last);
+                putStep(dx, dy);
+                x[i] += dx;
+                y[i] += dy;
+                last = i;
+            }
+        }
+        putVarint(0);
+        last = -1;
+        for (int i = 0; i < n; i++) {
+            if (recordLook(i, agents.get(i).getStrategy(), last))
+                last = i;
+        }
+        putVarint(0);
+        putVarint(numExecutions);
+        int lastTask = 0;
+        for (int i = 0; i < numExecutions; i++) {
+            putVarint(zigzag(executions[i] - lastTask));
+            lastTask = executions[i];
+        }
+        putVarint(numBroadcasts);
+        int lastSender = 0;
+        for (int i = 0; i < numBroadcasts * BROADCAST_INTS; i += BROADCAST_INTS) {
+            putVarint(zigzag(broadcasts[i] - lastSender));
+            lastSender = broadcasts[i];
+            putVarint(broadcasts[i + 4]);
+            putVarint(broadcasts[i + 5]);
+            putVarint(zigzag(broadcasts[i + 1] - broadcasts[i + 4]));
+            putVarint(zigzag(broadcasts[i + 2] - broadcasts[i + 5]));
+            putVarint(broadcasts[i + 3]);
+            putVarint(broadcasts[i + 6]);
+        }
+        endBlock();
+        numExecutions = 0;
+        numBroadcasts = 0;
+    }
+
+    /**
+     * Records what is drawn of an agent if it changed: the state, its color, and
+     * the broadcast circle or goto line of a communicating agent, as the screen
+     * shows them.
+     *
+     * @return True if anything was recorded
+     */
+    private boolean recordLook(final int i, @NonNull final AgentStrategy strategy, final int last)
+            throws IOException {
+        State s = strategy.getState();
+        Color c = s.getColor();
+        int color = c == null ? 0 : c.getRGB();
+        int r = 0;
+        long t = Coords.NONE;
+        if (strategy instanceof CommunicatingAgentStrategy cas) {
+            if (s.equals(cas.RANDOMCOMMS)) {
+                r = cas.getCommDist();
+            } else if (s.equals(cas.GOTO)) {
+                Location l = cas.getTaskToDo().map(todo -> todo.getLocation()).orElse(null);
+                if (l != null)
+                    t = Coords.pack(l.x(), l.y());
+            }
+        }
+        if (s == state[i] && color == rgb[i] && r == radius[i] && t == target[i])
+            return false;
+        putVarint(i - last);
+        if (s != state[i] || color != rgb[i]) {
+            state[i] = s;
+            rgb[i] = color;
+            Look look = new Look(s.getName(), color);
+            Integer index = palette.get(look);
+            if (index == null) {
+                // The next index, followed by what it stands for
+                putVarint(palette.size() + 1);
+                palette.put(look, palette.size());
+                putString(look.name());
+                putInt(color);
+            } else {
+                putVarint(index + 1);
+            }
+        } else {
+            putVarint(0);
+        }
+        radius[i] = r;
+        target[i] = t;
+        putVarint(r);
+        putVarlong(t == Coords.NONE ? 0 : (long) Coords.x(t) * gridSize + Coords.y(t) + 1);
+        return true;
+    }
+
+    /**
+     * Writes out every block recorded so far and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            writeBlocks(buffer.position());
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void beginBlock() throws IOException {
+        room(Integer.BYTES);
+        blockStart = buffer.position();
+        buffer.putInt(0);
+    }
+
+    private void endBlock() {
+        buffer.putInt(blockStart, buffer.position() - blockStart - Integer.BYTES);
+        blockStart = -1;
+    }
+
+    /**
+     * Puts a step to one of the eight neighbouring cells as a single byte,
+     * (dx + 1) * 3 + (dy + 1), and any other move as {@link #FAR} and the deltas.
+     */
+    private void putStep(final int dx, final int dy) throws IOException {
+        if (dx >= -1 && dx <= 1 && dy >= -1 && dy <= 1) {
+            putVarint((dx + 1) * 3 + dy + 1);
+        } else {
+            putVarint(FAR);
+            putVarint(zigzag(dx));
+            putVarint(zigzag(dy));
+        }
+    }
+
+    private void putInt(final int value) throws IOException {
+        room(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    private void putString(@NonNull final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length);
+        room(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Puts a non-negative number seven bits at a time, low bits first.
+     */
+    private void putVarint(final int value) throws IOException {
+        putVarlong(value & 0xFFFFFFFFL);
+    }
+
+    private void putVarlong(final long value) throws IOException {
+        room(10);
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    /**
+     * Maps small negative numbers to small positive ones, so that they take few
+     * bytes as varints.
+     */
+    private static int zigzag(final int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Makes room for n more bytes in the buffer: writes out the blocks before the
+     * open one, and grows the buffer if the open block still does not fit.
+     */
+    private void room(final int n) throws IOException {
+        if (buffer.remaining() >= n)
+            return;
+        int done = blockStart < 0 ? buffer.position() : blockStart;
+        writeBlocks(done);
+        if (blockStart >= 0)
+            blockStart = 0;
+        if (buffer.remaining() < n) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + n));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+
+    /**
+     * Writes out the first done bytes of the buffer and moves the rest to its
+     * start.
+     */
+    private void writeBlocks(final int done) throws IOException {
+        int end = buffer.position();
+        buffer.position(0).limit(done);
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.limit(end);
+        buffer.compact();
+    }
+
+    /**
+     * A state as it is drawn and counted.
+     */
+    private record Look(@NonNull String name, int rgb) {
+    }
+}
@@ -0,0 +1,65 @@
+package org.roach.intelligentagents.model.trace;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.State;
+
+/**
+ * Receives what happened in one tick of a trace, as {@link TraceReader} reads
+ * it: first the moves, then the changes of state, then the task executions and
+ * the broadcasts, each in the order recorded. Agents are numbered by their
+ * place in the grid's agent list. Every method does nothing by default, so a
+ * tool that only looks at, say, broadcasts overrides only that.
+ *
+ * @author Larry S. Roach
+ */
+public interface TraceVisitor {
+    /**
+     * An agent ended the tick somewhere else.
+     *
+     * @param agent The agent
+     * @param x     Its new x coordinate
+     * @param y     Its new y coordinate
+     */
+    default void move(final int agent, final int x, final int y) {
+        // Nothing to do
+    }
+
+    /**
+     * What is drawn of an agent changed.
+     *
+     * @param agent      The agent
+     * @param state      Its state, with the name and color it had; not the
+     *                   state object of the recorded run
+     * @param commRadius The broadcast range to circle around it, or 0 for none
+     * @param gotoTarget Packed location it is heading for, or {@link Coords#NONE}
+     */
+    default void look(final int agent, @NonNull final State state, final int commRadius, final long gotoTarget) {
+        // Nothing to do
+    }
+
+    /**
+     * An execution raised the priority of a task.
+     *
+     * @param task The task id
+     */
+    default void taskExecuted(final int task) {
+        // Nothing to do
+    }
+
+    /**
+     * A broadcast was delivered.
+     *
+     * @param sender    The broadcasting agent
+     * @param fromX     The x coordinate the sender broadcast from
+     * @param fromY     The y coordinate the sender broadcast from
+     * @param radius    The range of the broadcast
+     * @param taskX     The x coordinate of the task broadcast
+     * @param taskY     The y coordinate of the task broadcast
+     * @param receivers The number of agents that heard it
+     */
+    default void broadcast(final int sender, final int fromX, final int fromY, final int radius, final int taskX,
+            final int taskY, final int receivers) {
+        // Nothing to do
+    }
+}
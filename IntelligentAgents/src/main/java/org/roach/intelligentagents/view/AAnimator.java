@@ -1,14 +1,30 @@
 package org.roach.intelligentagents.view;
 
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.roach.intelligentagents.PropertyConstants;
 import org.roach.intelligentagents.controller.AgentApp;
-import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.checkpoint.Checkpoint;
+import org.roach.intelligentagents.model.jfr.SimEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Base of the animators. Runs the simulation on its own thread under a tick
+ * scheduler: at full speed, at a fixed number of ticks per second, or one step
+ * at a time. Whenever there is nothing to tick, because the simulation is
+ * paused, waiting for its next slot or waiting for a step, the thread parks
+ * instead of spinning.
+ */
 public abstract class AAnimator implements IAnimator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AAnimator.class);
     /** The animation thread. */
     @Nullable
     protected Thread animatorThread; // NOPMD by Family on 11/26/19, 2:58 PM
@@ -21,6 +37,24 @@ public abstract class AAnimator implements IAnimator {
     private volatile boolean simOver = false; // NOPMD by Family on 11/26/19, 2:58 PM
     /** The current master time. */
     private volatile static int time; // NOPMD by Family on 11/26/19, 2:58 PM
+    /** Determines whether the simulation is paused. */
+    private volatile boolean isPaused; // NOPMD
+    /** How the scheduler paces ticks. */
+    private volatile TickMode tickMode = TickMode.MAX_SPEED;
+    /** Nanoseconds between ticks in {@link TickMode#FIXED_RATE}. */
+    private volatile long tickPeriodNanos = TimeUnit.SECONDS.toNanos(1);
+    /** Steps asked for and not yet run. */
+    @NonNull
+    private final AtomicInteger stepsRequested = new AtomicInteger();
+    /** Wall-clock duration of the last tick, in nanoseconds. */
+    private volatile long lastTickNanos;
+    /** Wall-clock time spent ticking since the scheduler started, in nanoseconds. */
+    private volatile long totalTickNanos;
+    /** Where checkpoints are written, or null for none. */
+    @Nullable
+    private volatile Path checkpointFile;
+    /** Ticks between checkpoints. */
+    private volatile int checkpointEvery;
     @NonNull
     protected final AgentApp agentApp;
     protected final PropertyChangeSupport pcs;
@@ -55,6 +89,7 @@ public abstract class AAnimator implements IAnimator {
     @Override
     public void stopSim() {
         simOver = true;
+        wake();
     }
 
     /**
@@ -63,6 +98,8 @@ public abstract class AAnimator implements IAnimator {
     @Override
     public void endProgram() {
         isRunning = false;
+        wake();
+        agentApp.getEngine().shutdown();
         System.exit(0); // NOPMD by Family on 11/26/19, 2:58 PM
     }
 
@@ -72,16 +109,51 @@ public abstract class AAnimator implements IAnimator {
     protected void simUpdate() {
         if (!simOver) { // If the sim isn't paused or complete
             // Update all agents
-            for (Agent a : agentApp.getSimgrid().getAgents()) {
-                if (a != null)
-                    a.getStrategy().doAction();
-            }
+            SimEvents.tick(agentApp.getEngine(), agentApp.getSimgrid(), time);
             // Display the new time
             time++;
             pcs.firePropertyChange(PropertyConstants.TIME_TICK, time, time - 1);
+            Path file = checkpointFile;
+            if (file != null && time % checkpointEvery == 0)
+                saveCheckpoint(file);
+            if (agentApp.getEngine().isFinished()) // A replay has reached the end of its trace
+                stopSim();
         }
     }
 
+    /**
+     * Saves the simulation between two ticks. A checkpoint that cannot be written
+     * is logged and the run goes on.
+     */
+    private void saveCheckpoint(@NonNull final Path file) {
+        try {
+            Checkpoint.write(file, agentApp.getSimgrid(), time);
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.atError().setCause(e).setMessage("Unable to write checkpoint {}").addArgument(file).log();
+        }
+    }
+
+    /**
+     * Saves the simulation to a file every so many ticks, replacing the previous
+     * checkpoint.
+     * 
+     * @param file       Where to write checkpoints, or null to stop writing them
+     * @param everyTicks Ticks between checkpoints, at least 1
+     */
+    public void setCheckpoint(@Nullable final Path file, final int everyTicks) {
+        if (file != null && everyTicks < 1)
+            throw new IllegalArgumentException("everyTicks must be positive: " + everyTicks);
+        checkpointEvery = everyTicks;
+        checkpointFile = file;
+    }
+
+    /**
+     * Sets the current time, as when a simulation is restored.
+     * 
+     * @param time The number of ticks already run
+     */
+    public static void setTime(final int time) { AAnimator.time = time; }
+
     /**
      * Get the current time.
      * 
@@ -89,5 +161,130 @@ public abstract class AAnimator implements IAnimator {
      */
     public static int getTime() { return time; }
 
-    abstract public void step();
+    /**
+     * Runs the simulation until the program ends, ticking as the tick mode says.
+     * Ticks always run on the calling thread, which should be the animator
+     * thread.
+     */
+    @Override
+    public void run() {
+        isRunning = true;
+        long next = System.nanoTime();
+        while (isRunning) {
+            if (stepsRequested.get() > 0) {
+                stepsRequested.decrementAndGet();
+                timedTick(true);
+                next = System.nanoTime();
+            } else if (isPaused || simOver || tickMode == TickMode.SINGLE_STEP) {
+                LockSupport.park(this);
+                next = System.nanoTime();
+            } else if (tickMode == TickMode.FIXED_RATE) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                } else {
+                    timedTick(false);
+                    // A late tick pushes the schedule back rather than being made up in a burst
+                    next = Math.max(next + tickPeriodNanos, System.nanoTime() - tickPeriodNanos);
+                }
+            } else {
+                timedTick(false);
+            }
+        }
+    }
+
+    private void timedTick(final boolean single) {
+        long start = System.nanoTime();
+        tick(single);
+        long elapsed = System.nanoTime() - start;
+        lastTickNanos = elapsed;
+        totalTickNanos += elapsed;
+    }
+
+    /**
+     * Runs one tick for the scheduler. Subclasses add what must follow each tick.
+     * 
+     * @param single True if the tick was asked for with {@link #step()}
+     */
+    protected void tick(final boolean single) {
+        simUpdate();
+    }
+
+    /**
+     * Asks the animator thread for one tick. Steps are run even while paused.
+     */
+    public void step() {
+        stepsRequested.incrementAndGet();
+        wake();
+    }
+
+    /**
+     * Pauses the simulation; the animator thread parks until it is resumed.
+     */
+    public void pause() {
+        isPaused = true;
+    }
+
+    /**
+     * Resumes the simulation.
+     */
+    public void unpause() {
+        isPaused = false;
+        wake();
+    }
+
+    /**
+     * Tells whether the simulation is currently paused.
+     * 
+     * @return true if simulation is paused
+     */
+    public boolean isPaused() { return isPaused; }
+
+    /**
+     * @param mode How the scheduler paces ticks from now on
+     */
+    public void setTickMode(@NonNull final TickMode mode) {
+        tickMode = mode;
+        wake();
+    }
+
+    /**
+     * @return How the scheduler paces ticks
+     */
+    @NonNull
+    public TickMode getTickMode() { return tickMode; }
+
+    /**
+     * Runs the simulation at a fixed rate, or at full speed.
+     * 
+     * @param ticksPerSecond The rate; 0 or less runs at full speed
+     */
+    public void setTicksPerSecond(final double ticksPerSecond) {
+        if (ticksPerSecond > 0) {
+            tickPeriodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ticksPerSecond));
+            setTickMode(TickMode.FIXED_RATE);
+        } else {
+            setTickMode(TickMode.MAX_SPEED);
+        }
+    }
+
+    /**
+     * @return Wall-clock duration of the last tick, in nanoseconds
+     */
+    public long getLastTickNanos() { return lastTickNanos; }
+
+    /**
+     * @return Wall-clock time spent ticking so far, in nanoseconds; the rest of
+     *         the run was spent parked or drawing
+     */
+    public long getTotalTickNanos() { return totalTickNanos; }
+
+    /**
+     * Unparks the animator thread so that it looks at its state again.
+     */
+    protected void wake() {
+        Thread t = animatorThread;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
 }
@@ -0,0 +1,15 @@
+package org.roach.intelligentagents.view;
+
+/**
+ * How an animator's scheduler paces the simulation.
+ *
+ * @author Larry S. Roach
+ */
+public enum TickMode {
+    /** Tick again as soon as the last tick is done. */
+    MAX_SPEED,
+    /** Tick at a set number of ticks per second, parking in between. */
+    FIXED_RATE,
+    /** Only tick when a step is asked for, parking in between. */
+    SINGLE_STEP
+}
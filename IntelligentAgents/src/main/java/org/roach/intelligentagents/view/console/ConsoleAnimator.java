@@ -22,37 +22,27 @@ public class ConsoleAnimator extends AAnimator implements PropertyChangeListener
         agentApp.getSimgrid().addPropertyChangeListener(this);
     }
 
-    @Override
-    public void run() {
-        isRunning = true;
-        while (isRunning) {
-            step();
-        }
-    }
-
-    @Override
-    public void step() {
-        simUpdate(); // update sim state
-    }
-
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
         if (evt.getPropertyName().equals(PropertyConstants.TASK_COMPLETE)) {
             Integer numTasksComplete = (Integer) evt.getNewValue();
             if (numTasksComplete >= agentApp.getSimgrid().getNumTasks() * (float) agentApp.getPercentFinished()
                     / 100.0f) {
-                System.out.println(agentApp.getSimgrid().getGridSize() + " " + agentApp.getSimgrid().getNumTasks() + " " // NOPMD
-                                                                                                                         // by
-                                                                                                                         // Family
-                                                                                                                         // on
-                                                                                                                         // 11/26/19,
-                                                                                                                         // 2:39
-                                                                                                                         // PM
-                        + agentApp.getSimgrid().getNumAgents() + " " + agentApp.getStrategyType() + " "
-                        + AAnimator.getTime());
-                endProgram();
+                stopSim();
             }
         }
     }
 
+    /**
+     * Prints the result and ends the program, once enough tasks are complete or
+     * a replay has reached the end of its trace.
+     */
+    @Override
+    public void stopSim() {
+        System.out.println(agentApp.getSimgrid().getGridSize() + " " + agentApp.getSimgrid().getNumTasks() + " " // NOPMD
+                + agentApp.getSimgrid().getNumAgents() + " " + agentApp.getStrategyType() + " "
+                + AAnimator.getTime());
+        endProgram();
+    }
+
 }
@@ -0,0 +1,67 @@
+package org.roach.intelligentagents.view.swing;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JPanel;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The playing field. Frames are drawn off the event dispatch thread and handed
+ * over with {@link #show}; the panel paints the latest one whenever Swing asks,
+ * and remembers which part of it is in view for the next frame.
+ *
+ * @author Larry S. Roach
+ */
+public final class FramePanel extends JPanel {
+    private static final long serialVersionUID = 2816432071975235301L;
+
+    /**
+     * A drawn frame and where it goes on the field.
+     *
+     * @param image The frame
+     * @param x     Field coordinates of its left edge
+     * @param y     Field coordinates of its top edge
+     */
+    private record Frame(@NonNull BufferedImage image, int x, int y) {
+    }
+
+    /** The latest frame, or null before the first. */
+    @Nullable
+    private transient volatile Frame frame;
+    /** The part of the field in view when the panel was last painted. */
+    @NonNull
+    private transient volatile Rectangle view = new Rectangle();
+
+    /**
+     * Hands over a frame and asks Swing to paint it. May be called from any
+     * thread; the image must not be drawn into again until a later frame has
+     * been shown.
+     *
+     * @param image The frame
+     * @param x     Field coordinates of its left edge
+     * @param y     Field coordinates of its top edge
+     */
+    public void show(@NonNull final BufferedImage image, final int x, final int y) {
+        frame = new Frame(image, x, y);
+        repaint();
+    }
+
+    /**
+     * @return The part of the field in view when the panel was last painted
+     */
+    @NonNull
+    public Rectangle getView() { return view; }
+
+    @Override
+    protected void paintComponent(final Graphics g) {
+        super.paintComponent(g);
+        view = getVisibleRect();
+        Frame f = frame;
+        if (f != null)
+            g.drawImage(f.image(), f.x(), f.y(), null);
+    }
+}
@@ -0,0 +1,173 @@
+package org.roach.intelligentagents.view.swing;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.Location;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.Task;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+import org.roach.intelligentagents.model.strategy.CommunicatingAgentStrategy;
+import org.roach.intelligentagents.model.trace.ReplayStrategy;
+
+/**
+ * What a frame shows of the simulation at the end of one tick: the progress of
+ * every task and the cell, color and helper graphics of every agent. Taken on
+ * the simulation thread between ticks and never changed afterwards, so the
+ * render thread can draw it while the simulation moves on.
+ *
+ * @author Larry S. Roach
+ */
+public final class FrameSnapshot {
+    private final int tick;
+    /** The grid's tasks; only their locations, which never change, are read. */
+    @NonNull
+    private final List<Task> tasks;
+    /** Priority of each task, by task id. */
+    @NonNull
+    private final byte[] taskPrios;
+    @NonNull
+    private final int[] agentX;
+    @NonNull
+    private final int[] agentY;
+    /** RGB color of each agent's state. */
+    @NonNull
+    private final int[] agentRgb;
+    /** Broadcast range to circle around each agent, or 0 for none. */
+    @NonNull
+    private final int[] commRadius;
+    /** Packed location each agent is heading for, or {@link Coords#NONE}. */
+    @NonNull
+    private final long[] gotoTarget;
+
+    private FrameSnapshot(final int tick, @NonNull final List<Task> tasks, final int numAgents) {
+        this.tick = tick;
+        this.tasks = tasks;
+        this.taskPrios = new byte[tasks.size()];
+        this.agentX = new int[numAgents];
+        this.agentY = new int[numAgents];
+        this.agentRgb = new int[numAgents];
+        this.commRadius = new int[numAgents];
+        this.gotoTarget = new long[numAgents];
+    }
+
+    /**
+     * Copies the state of a grid. Must be called on the thread that ticks the
+     * grid, between ticks.
+     *
+     * @param simGrid The grid to copy
+     * @param tick    The number of ticks run so far
+     * @return The snapshot
+     */
+    @NonNull
+    public static FrameSnapshot capture(@NonNull final SimulationGrid simGrid, final int tick) {
+        List<Task> tasks = simGrid.getTaskList();
+        List<Agent> agents = simGrid.getAgents();
+        FrameSnapshot s = new FrameSnapshot(tick, tasks, agents.size());
+        for (int i = 0; i < tasks.size(); i++)
+            s.taskPrios[i] = (byte) tasks.get(i).getPrio();
+        for (int i = 0; i < agents.size(); i++) {
+            Agent a = agents.get(i);
+            AgentStrategy strategy = a.getStrategy();
+            s.agentX[i] = a.getX();
+            s.agentY[i] = a.getY();
+            s.agentRgb[i] = strategy.getState().getColor().getRGB();
+            s.gotoTarget[i] = Coords.NONE;
+            // The helper graphics of CommunicatingViewStrategy
+            if (strategy instanceof CommunicatingAgentStrategy cas) {
+                if (cas.getState().equals(cas.RANDOMCOMMS)) {
+                    s.commRadius[i] = cas.getCommDist();
+                } else if (cas.getState().equals(cas.GOTO)) {
+                    int agent = i;
+                    cas.getTaskToDo().ifPresent(t -> {
+                        Location l = t.getLocation();
+                        s.gotoTarget[agent] = Coords.pack(l.x(), l.y());
+                    });
+                }
+            } else if (strategy instanceof ReplayStrategy replay) {
+                s.commRadius[i] = replay.getCommRadius();
+                s.gotoTarget[i] = replay.getGotoTarget();
+            }
+        }
+        return s;
+    }
+
+    /**
+     * @return The number of ticks run when the snapshot was taken
+     */
+    public int getTick() { return tick; }
+
+    /**
+     * @return The number of tasks
+     */
+    public int numTasks() {
+        return taskPrios.length;
+    }
+
+    /**
+     * @param i A task id
+     * @return The location of the task
+     */
+    @NonNull
+    public Location taskLocation(final int i) {
+        return tasks.get(i).getLocation();
+    }
+
+    /**
+     * @param i A task id
+     * @return The priority of the task
+     */
+    public int taskPrio(final int i) {
+        return taskPrios[i];
+    }
+
+    /**
+     * @return The number of agents
+     */
+    public int numAgents() {
+        return agentX.length;
+    }
+
+    /**
+     * @param i An index into the grid's agent list
+     * @return The x coordinate of the agent
+     */
+    public int agentX(final int i) {
+        return agentX[i];
+    }
+
+    /**
+     * @param i An index into the grid's agent list
+     * @return The y coordinate of the agent
+     */
+    public int agentY(final int i) {
+        return agentY[i];
+    }
+
+    /**
+     * @param i An index into the grid's agent list
+     * @return The RGB color of the agent's state
+     */
+    public int agentRgb(final int i) {
+        return agentRgb[i];
+    }
+
+    /**
+     * @param i An index into the grid's agent list
+     * @return The broadcast range to draw around the agent, or 0 for none
+     */
+    public int commRadius(final int i) {
+        return commRadius[i];
+    }
+
+    /**
+     * @param i An index into the grid's agent list
+     * @return The packed location the agent is heading for, or
+     *         {@link Coords#NONE}
+     */
+    public long gotoTarget(final int i) {
+        return gotoTarget[i];
+    }
+}
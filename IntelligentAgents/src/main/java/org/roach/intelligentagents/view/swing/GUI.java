@@ -11,6 +11,8 @@ import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.nio.file.Path;
+import java.util.List;
 
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
@@ -25,10 +27,10 @@ import javax.swing.ScrollPaneConstants;
 import javax.swing.WindowConstants;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.roach.intelligentagents.PropertyConstants;
 import org.roach.intelligentagents.controller.AgentApp;
 import org.roach.intelligentagents.model.Agent;
-import org.roach.intelligentagents.model.Task;
 import org.roach.intelligentagents.model.strategy.CommunicatingAgentStrategy;
 import org.roach.intelligentagents.view.IAnimator;
 import org.roach.intelligentagents.view.swing.strategy.CommunicatingViewStrategy;
@@ -62,7 +64,7 @@ public class GUI extends JFrame implements WindowListener, PropertyChangeListene
     /** Determines whether graphics are rendered. */
     private boolean showGraphics = true;
     @NonNull
-    private JPanel mainPanel;
+    private FramePanel mainPanel;
     private transient SwingAnimator animator;
 
     /**
@@ -105,13 +107,11 @@ public class GUI extends JFrame implements WindowListener, PropertyChangeListene
         this.agentapp = agentapp;
         this.cellSize = cellSize;
         mainPanelSize = cellSize * gridSize + 2;
-        ViewableTask.setSquareSize(cellSize);
-        ViewableAgent.setSquareSize(cellSize);
 
         this.setTitle("Intelligent Agent Simulation");
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         Container c = getContentPane(); // default BorderLayout used
-        mainPanel = new JPanel();
+        mainPanel = new FramePanel();
         mainPanel.setBackground(Color.white);
         mainPanel.setPreferredSize(new Dimension(mainPanelSize, mainPanelSize));
         mainPanel.addPropertyChangeListener(this);
@@ -125,8 +125,7 @@ public class GUI extends JFrame implements WindowListener, PropertyChangeListene
                 } else if (scrollAmount > 0 && cellSize > 2) {
                     this.cellSize--;
                 }
-                ViewableTask.setSquareSize(this.cellSize);
-                ViewableAgent.setSquareSize(this.cellSize);
+                animator.setCellSize(this.cellSize);
                 mainPanelSize = this.cellSize * gridSize + 2;
                 Dimension newSize = new Dimension(mainPanelSize, mainPanelSize);
                 mainPanel.setPreferredSize(newSize);
@@ -138,6 +137,7 @@ public class GUI extends JFrame implements WindowListener, PropertyChangeListene
             }
         });
         animator = new SwingAnimator(mainPanel, agentapp);
+        animator.setCellSize(cellSize);
 
         // Add bottom portion of screen
         JPanel bottom = new JPanel();
@@ -272,30 +272,45 @@ public class GUI extends JFrame implements WindowListener, PropertyChangeListene
         scrollpane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED);
         scrollpane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
         c.add(scrollpane, "Center");
-        for (Task t : agentapp.getSimgrid().getTaskList()) {
-            ViewableTask vt = new ViewableTask(t); // NOPMD by Family on 11/26/19, 2:56 PM
-            t.addPropertyChangeListener(vt);
-            mainPanel.add(vt);
-        }
-        initAgents(agentapp.getSimgrid().getAgents().get(0).getStrategy() instanceof CommunicatingAgentStrategy);
+        List<Agent> agents = agentapp.getSimgrid().getAgents();
+        initAgents(!agents.isEmpty() && agents.get(0).getStrategy() instanceof CommunicatingAgentStrategy);
         pack(); // Makes the main window just the right size to hold everything
         setResizable(true);
         setVisible(!batch); // Make the window visible
+        if (!batch)
+            animator.startRendering();
     }
 
     /**
-     * Initialize all agents and add them to the panel for display.
+     * Chooses how agents are drawn by component-based views. The animator draws
+     * the field itself, from snapshots of the model.
      */
     private void initAgents(boolean isCommunicating) {
-        for (Agent a : agentapp.getSimgrid().getAgents()) {
-            mainPanel.add(new ViewableAgent(a)); // NOPMD by Family on 11/26/19, 2:57 PM
-        }
         if (isCommunicating)
             ViewableAgent.setViewStrategy(new CommunicatingViewStrategy());
         else
             ViewableAgent.setViewStrategy(new DefaultViewStrategy());
     }
 
+    /**
+     * @param framesPerSecond How many frames to draw per second
+     */
+    public void setFramesPerSecond(final int framesPerSecond) { animator.setFramesPerSecond(framesPerSecond); }
+
+    /**
+     * @param ticksPerSecond How many ticks to run per second; 0 or less runs the
+     *                       simulation at full speed
+     */
+    public void setTicksPerSecond(final double ticksPerSecond) { animator.setTicksPerSecond(ticksPerSecond); }
+
+    /**
+     * @param file       Where to write checkpoints, or null for none
+     * @param everyTicks Ticks between checkpoints
+     */
+    public void setCheckpoint(@Nullable final Path file, final int everyTicks) {
+        animator.setCheckpoint(file, everyTicks);
+    }
+
     /* WindowListener Methods */
     /**
      * Called whenever the window receives focus; not implemented
@@ -0,0 +1,152 @@
+package org.roach.intelligentagents.view.swing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.roach.intelligentagents.model.Coords;
+import org.roach.intelligentagents.model.Location;
+import org.roach.intelligentagents.model.Task;
+
+/**
+ * Draws a frame of the simulation by writing pixels straight into the
+ * {@code int[]} raster of a {@link BufferedImage}, reading tasks and agents
+ * from a {@link FrameSnapshot}. Only the part of the field in view is drawn, so the image is
+ * the size of the viewport however large the grid or the zoom.
+ * <p>
+ * Tasks are filled squares that turn from black to green as they are executed;
+ * agents are squares outlined in the color of their state. The picture is the
+ * one {@link ViewableTask} and {@link ViewableAgent} draw, without a component
+ * or a Graphics call per item. Only the helper graphics, a circle or a line for
+ * a few agents, go through a Graphics context.
+ *
+ * @author Larry S. Roach
+ */
+public final class RasterRenderer {
+    /** The color of cells without a task. */
+    private static final int BACKGROUND = 0xFFFFFF;
+    /** The amount of green added to a task each time it is executed. */
+    private static final int COLOR_STEP = 255 / Task.getTaskComplete();
+
+    /** The frame, reused while the view keeps its size. */
+    @Nullable
+    private BufferedImage image;
+    /** The raster of the frame, one RGB int per pixel, row by row. */
+    @NonNull
+    private int[] pixels = new int[0];
+    private int width;
+    private int height;
+    /** Field coordinates of the frame's top-left pixel. */
+    private int originX;
+    private int originY;
+
+    /**
+     * Draws the tasks and, optionally, the agents of a snapshot that fall in view.
+     *
+     * @param snapshot    The state to draw
+     * @param cellSize    The width and height of a cell, in pixels
+     * @param view        The part of the field to draw, in pixels
+     * @param showAgents  True to draw agents over the tasks
+     * @param showHelpers True to also draw broadcast circles and goto lines
+     * @return The frame, which is reused by the next call
+     */
+    @NonNull
+    public BufferedImage render(@NonNull final FrameSnapshot snapshot, final int cellSize,
+            @NonNull final Rectangle view, final boolean showAgents, final boolean showHelpers) {
+        BufferedImage frame = frame(Math.max(view.width, 1), Math.max(view.height, 1));
+        originX = view.x;
+        originY = view.y;
+        Arrays.fill(pixels, BACKGROUND);
+        for (int i = 0; i < snapshot.numTasks(); i++) {
+            Location l = snapshot.taskLocation(i);
+            fillRect(l.x() * cellSize + 1, l.y() * cellSize + 1, cellSize - 1, cellSize - 1,
+                    snapshot.taskPrio(i) * COLOR_STEP << 8);
+        }
+        if (showAgents) {
+            for (int i = 0; i < snapshot.numAgents(); i++)
+                drawRect(snapshot.agentX(i) * cellSize, snapshot.agentY(i) * cellSize, cellSize, cellSize,
+                        snapshot.agentRgb(i));
+            if (showHelpers)
+                drawHelperGraphics(snapshot, cellSize, frame);
+        }
+        return frame;
+    }
+
+    /**
+     * Circles the broadcast range of agents that are calling out and joins agents
+     * on their way to a task to it, as CommunicatingViewStrategy does.
+     */
+    private void drawHelperGraphics(@NonNull final FrameSnapshot snapshot, final int cellSize,
+            @NonNull final BufferedImage frame) {
+        Graphics2D g = frame.createGraphics();
+        g.translate(-originX, -originY);
+        g.setColor(Color.red);
+        int midPoint = cellSize / 2;
+        for (int i = 0; i < snapshot.numAgents(); i++) {
+            int x = snapshot.agentX(i);
+            int y = snapshot.agentY(i);
+            int r = snapshot.commRadius(i);
+            long target = snapshot.gotoTarget(i);
+            if (r > 0)
+                g.drawOval((x - r) * cellSize, (y - r) * cellSize, (r * 2 + 1) * cellSize - 1,
+                        (r * 2 + 1) * cellSize - 1);
+            else if (target != Coords.NONE)
+                g.drawLine(x * cellSize + midPoint, y * cellSize + midPoint,
+                        Coords.x(target) * cellSize + midPoint, Coords.y(target) * cellSize + midPoint);
+        }
+        g.dispose();
+    }
+
+    /**
+     * @return Field coordinates of the left edge of the last frame
+     */
+    public int getOriginX() { return originX; }
+
+    /**
+     * @return Field coordinates of the top edge of the last frame
+     */
+    public int getOriginY() { return originY; }
+
+    @NonNull
+    private BufferedImage frame(final int w, final int h) {
+        BufferedImage frame = image;
+        if (frame == null || w != width || h != height) {
+            frame = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+            width = w;
+            height = h;
+            image = frame;
+        }
+        return frame;
+    }
+
+    /**
+     * Fills w by h pixels at field coordinates (x, y), clipped to the frame.
+     */
+    private void fillRect(final int x, final int y, final int w, final int h, final int rgb) {
+        int x0 = Math.max(x - originX, 0);
+        int x1 = Math.min(x - originX + w, width);
+        int y0 = Math.max(y - originY, 0);
+        int y1 = Math.min(y - originY + h, height);
+        if (x0 >= x1)
+            return;
+        for (int row = y0; row < y1; row++)
+            Arrays.fill(pixels, row * width + x0, row * width + x1, rgb);
+    }
+
+    /**
+     * Outlines a w by h rectangle at field coordinates (x, y) the way
+     * {@link java.awt.Graphics#drawRect} does, covering w + 1 by h + 1 pixels.
+     */
+    private void drawRect(final int x, final int y, final int w, final int h, final int rgb) {
+        fillRect(x, y, w + 1, 1, rgb);
+        fillRect(x, y + h, w + 1, 1, rgb);
+        fillRect(x, y + 1, 1, h - 1, rgb);
+        fillRect(x + w, y + 1, 1, h - 1, rgb);
+    }
+}
@@ -6,12 +6,11 @@
  */
 package org.roach.intelligentagents.view.swing;
 
-import java.awt.Component;
-import java.awt.Graphics;
-import java.awt.Image;
-
-import javax.swing.JOptionPane;
-import javax.swing.JPanel;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -22,6 +21,12 @@ import org.roach.intelligentagents.view.AAnimator;
  * <p>
  * The SwingAnimator class is the Thread that animates and runs the simulation.
  * <p>
+ * The simulation thread ticks as fast as it can and never draws. A separate
+ * render thread wakes at a fixed rate, asks for a {@link FrameSnapshot}, which
+ * the simulation thread takes between two ticks, and draws the latest one it
+ * has. The simulation therefore skips no ticks for the sake of the screen, and
+ * the screen shows only whole ticks.
+ * <p>
  * NOTE: The overall concepts of the graphics programming for this simulation is
  * derived from the book <i>Killer Game Programming in Java</i>, by Andrew
  * Davison.
@@ -31,40 +36,56 @@ import org.roach.intelligentagents.view.AAnimator;
  */
 public final class SwingAnimator extends AAnimator {
 
-    /** The JPanel to display everything on */
-    private JPanel panel;
-    /** Determines whether the simulation is paused. */
-    private volatile boolean isPaused = true; // NOPMD by Family on 11/26/19, 2:57 PM
+    /** Frames drawn per second when no rate is set. */
+    public static final int DEFAULT_FPS = 30;
+    /** The panel to display everything on */
+    @NonNull
+    private final FramePanel panel;
     /**
      * Determines whether the sim is rendered to the screen. This may speed up
      * progress because it reduces the overhead of the graphics.
      */
-    private boolean render = true;
+    private volatile boolean render = true;
     /**
      * Determines whether "helper" graphics are shown, including the red
      * broadcast-range circle and the red "goto" lines.
      */
-    private boolean showHelperGraphics = true;
+    private volatile boolean showHelperGraphics = true;
     /** Determines whether agents are displayed. */
-    private boolean showAgents = true;
-    /** The double-buffered graphics context in which to render frames. */
+    private volatile boolean showAgents = true;
+    /** The width and height of a cell, in pixels. */
+    private volatile int cellSize = 6;
+    /** Frames drawn per second. */
+    private volatile int framesPerSecond = DEFAULT_FPS;
+    /** Set by the render thread when it wants a newer snapshot. */
+    @NonNull
+    private final AtomicBoolean frameWanted = new AtomicBoolean(true);
+    /** The latest snapshot taken by the simulation thread. */
     @Nullable
-    private Graphics dbg;
-    /** The buffer image in which to render each new frame. */
+    private volatile FrameSnapshot snapshot;
+    /** True when a display option changed and the frame must be redrawn. */
+    private volatile boolean dirty;
+    /** The render thread, once started. */
     @Nullable
-    private Image dbImage;
+    private Thread renderThread;
+    /**
+     * Two renderers, used in turn, so that a frame is never drawn into while the
+     * panel paints the one before.
+     */
+    @NonNull
+    private final RasterRenderer[] renderers = { new RasterRenderer(), new RasterRenderer() };
 
     /**
      * Creates a new instance of SwingAnimator.
      * 
-     * @param p The JPanel to display everything on
+     * @param p The panel to display everything on
      * @param agentApp the application being animated
      */
-    public SwingAnimator(@NonNull final JPanel p, @NonNull final AgentApp agentApp) {
+    public SwingAnimator(@NonNull final FramePanel p, @NonNull final AgentApp agentApp) {
         super(agentApp);
         this.panel = p;
         // Initialize simulation components
-        isPaused = true;
+        pause();
     }
 
     /**
@@ -74,7 +95,7 @@ public final class SwingAnimator extends AAnimator {
     public void startSim() {
         // If the thread doesn't exist, create it and start it
         super.startSim();
-        isPaused = false;
+        unpause();
     }
 
     /**
@@ -85,123 +106,122 @@ public final class SwingAnimator extends AAnimator {
     public boolean isStarted() { return (animatorThread != null && isRunning); }
 
     /**
-     * Repeatedly run update-render-sleep cycle.
+     * Updates the simulation, handing a snapshot to the render thread if it has
+     * asked for one. Single steps are always shown.
      */
     @Override
-    public void run() {
-        isRunning = true;
-        while (isRunning) {
-            if (!isPaused) {
-                step();
-            }
-        }
-    }
-
-    @Override
-    public void step() {
+    protected void tick(final boolean single) {
         simUpdate(); // update sim state
-        simRender(); // render to a graphics buffer
-        paintScreen(); // draw buffer to screen
+        if (single || (render && frameWanted.getAndSet(false)))
+            publishFrame();
     }
 
     /**
-     * Sets active rendering on or off; does not affect display of statistics.
-     * 
-     * @param render Set to true to turn rendering on
+     * Starts the render thread, showing the simulation as it is now.
      */
-    public void setRender(boolean render) { this.render = render; }
+    public void startRendering() {
+        if (renderThread != null)
+            return;
+        publishFrame();
+        Thread t = new Thread(this::renderLoop, "RenderThread");
+        t.setDaemon(true);
+        renderThread = t;
+        t.start();
+    }
 
     /**
-     * Renders the current frame to the buffer and flips the double-buffer page.
+     * Takes a snapshot of the grid for the render thread. Called on the thread
+     * that ticks the grid, between ticks.
      */
-    private void simRender() {
-        if (render) { // If rendering is turned on
-            // Get the image buffer to draw to
-            int windowWidth = panel.getWidth();
-            int windowHeight = panel.getHeight();
-            if (dbImage == null) {
-                dbImage = panel.createImage(windowWidth, windowHeight);
-                if (dbImage != null)
-                    dbg = dbImage.getGraphics();
-                else
-                    return;
-            }
-            // clear the background
-            if (dbg != null) {
-                dbg.clearRect(0, 0, windowWidth, windowHeight);
-
-                for (Component c : panel.getComponents()) {
-                    if (c instanceof ViewableTask) {
-                        ViewableTask t = (ViewableTask) c;
-                        t.draw(dbg);
-                    }
-                }
-                // Now display the agents
-                if (showAgents) {
-                    for (Component c : panel.getComponents()) {
-                        if (c instanceof ViewableAgent a) {
-                            a.draw(dbg);
-                            if (showHelperGraphics) { // Display helper graphics if selected
-                                a.drawHelperGraphics(dbg);
-                            }
-                        }
-                    }
-                }
-            }
-        }
+    private void publishFrame() {
+        snapshot = FrameSnapshot.capture(agentApp.getSimgrid(), getTime());
     }
 
     /**
-     * Actively renders the buffer image to the screen.
+     * Draws a frame {@link #framesPerSecond} times a second, when there is a new
+     * snapshot or the view has changed. A frame that overruns its slot delays the
+     * next rather than being followed by a burst.
      */
-    private void paintScreen() {
-        if (render) {
-            try {
-                Graphics g = panel.getGraphics(); // get the panel's graphic context
-                if ((g != null) && (dbImage != null)) {
-                    g.drawImage(dbImage, 0, 0, null); // draw image to buffer
-                    g.dispose(); // Switch buffers
+    private void renderLoop() {
+        FrameSnapshot drawn = null;
+        Rectangle drawnView = null;
+        int drawnCellSize = 0;
+        int turn = 0;
+        long next = System.nanoTime();
+        while (isRunning) {
+            if (render) {
+                frameWanted.set(true);
+                FrameSnapshot latest = snapshot;
+                Rectangle view = panel.getView();
+                int size = cellSize;
+                if (latest != null && (latest != drawn || !view.equals(drawnView) || size != drawnCellSize
+                        || dirty)) {
+                    dirty = false;
+                    RasterRenderer renderer = renderers[turn];
+                    turn ^= 1;
+                    BufferedImage image = renderer.render(latest, size, view, showAgents, showHelperGraphics);
+                    panel.show(image, renderer.getOriginX(), renderer.getOriginY());
+                    drawn = latest;
+                    drawnView = view;
+                    drawnCellSize = size;
                 }
-            } catch (Exception e) {
-                javax.swing.JOptionPane.showMessageDialog(panel, "Graphics context error: " + e.toString(),
-                        "Graphics error", JOptionPane.ERROR_MESSAGE);
             }
+            next += TimeUnit.SECONDS.toNanos(1) / framesPerSecond;
+            long wait = next - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(this, wait);
+            else
+                next = System.nanoTime();
         }
     }
 
     /**
-     * pause the simulation
+     * Sets active rendering on or off; does not affect display of statistics.
+     * 
+     * @param render Set to true to turn rendering on
      */
-    public void pause() {
-        // called when the JFrame is activated / deiconified
-        isPaused = true;
+    public void setRender(boolean render) {
+        this.render = render;
+        dirty = true;
     }
 
     /**
-     * unpause the simulation
+     * Sets the width and height of a cell on screen.
+     * 
+     * @param cellSize The size in pixels
      */
-    public void unpause() {
-        isPaused = false;
-    }
+    public void setCellSize(final int cellSize) { this.cellSize = cellSize; }
 
     /**
-     * Sets showHelperGraphics on or off.
+     * Sets how many frames are drawn per second. The simulation does not wait
+     * for frames, so this only trades smoothness against the time the render
+     * thread takes from it.
      * 
-     * @param show Set to true to show helper graphics
+     * @param framesPerSecond The frame rate, at least 1
      */
-    public void setHelperGraphics(boolean show) { showHelperGraphics = show; }
+    public void setFramesPerSecond(final int framesPerSecond) {
+        if (framesPerSecond < 1)
+            throw new IllegalArgumentException("framesPerSecond must be positive: " + framesPerSecond);
+        this.framesPerSecond = framesPerSecond;
+    }
 
     /**
-     * Tells whether the simulation is currently paused.
+     * Sets showHelperGraphics on or off.
      * 
-     * @return true if simulation is paused
+     * @param show Set to true to show helper graphics
      */
-    public boolean isPaused() { return isPaused; }
+    public void setHelperGraphics(boolean show) {
+        showHelperGraphics = show;
+        dirty = true;
+    }
 
     /**
      * Sets whether agents are displayed graphically or not.
      * 
      * @param show true displays agents, false does not
      */
-    public void setShowAgents(boolean show) { showAgents = show; }
+    public void setShowAgents(boolean show) {
+        showAgents = show;
+        dirty = true;
+    }
 }
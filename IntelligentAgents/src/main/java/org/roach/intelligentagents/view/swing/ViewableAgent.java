@@ -7,6 +7,10 @@ import javax.swing.JComponent;
 import org.roach.intelligentagents.model.Agent;
 
 /**
+ * A component that draws an agent. The Swing view no longer uses one per item; it
+ * draws every frame with {@link RasterRenderer}. Kept for views built on
+ * components.
+ *
  * @author Larry S. Roach
  *
  */
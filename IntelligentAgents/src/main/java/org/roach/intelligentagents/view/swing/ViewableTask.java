@@ -11,6 +11,10 @@ import org.roach.intelligentagents.PropertyConstants;
 import org.roach.intelligentagents.model.Task;
 
 /**
+ * A component that draws a task. The Swing view no longer uses one per item; it
+ * draws every frame with {@link RasterRenderer}. Kept for views built on
+ * components.
+ *
  * @author Larry S. Roach
  *
  */
@@ -0,0 +1,74 @@
+package org.roach.intelligentagents.controller.batch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy;
+import org.roach.intelligentagents.model.strategy.SearchStrategy;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class BatchRunnerTest {
+
+    private static BatchOpts smallSweep() {
+	BatchOpts opts = new BatchOpts();
+	opts.strategies = List.of("MailboxStrategy", SearchStrategy.class.getName());
+	opts.gridSizes = List.of(20);
+	opts.numAgents = List.of(5, 10);
+	opts.numTasks = List.of(20);
+	opts.commDists = List.of(5);
+	opts.seeds = List.of(1L, 2L);
+	opts.threads = 2;
+	opts.warmup = 0;
+	opts.maxTicks = 2000;
+	return opts;
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testSweepCoversEveryCombination() {
+	List<RunConfig> runs = new BatchRunner(smallSweep()).sweep();
+	assertEquals(8, runs.size());
+	assertEquals(new RunConfig(MailboxStrategy.class, 20, 5, 20, 5, 1L), runs.get(0));
+	assertEquals(new RunConfig(MailboxStrategy.class, 20, 5, 20, 5, 2L), runs.get(1));
+	assertEquals(new RunConfig(SearchStrategy.class, 20, 10, 20, 5, 2L), runs.get(7));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testRunAllWritesOneLinePerRun() throws InterruptedException {
+	StringWriter text = new StringWriter();
+	new BatchRunner(smallSweep()).runAll(new PrintWriter(text, true));
+	String[] lines = text.toString().split("\\R");
+	assertEquals(RunResult.CSV_HEADER, lines[0]);
+	assertEquals(9, lines.length);
+	Set<String> runs = new HashSet<>();
+	for (int i = 1; i < lines.length; i++) {
+	    String[] fields = lines[i].split(",");
+	    assertEquals(10, fields.length);
+	    runs.add(fields[0]);
+	    assertTrue(Integer.parseInt(fields[7]) <= 2000, lines[i]);
+	}
+	assertEquals(Set.of("0", "1", "2", "3", "4", "5", "6", "7"), runs);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testUnknownStrategyIsRejected() {
+	assertThrows(IllegalArgumentException.class, () -> BatchRunner.strategyClass("NoSuchStrategy"));
+    }
+}
@@ -0,0 +1,56 @@
+package org.roach.intelligentagents.controller.partition;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class PartitionedRunnerTest {
+
+    private static PartitionOpts smallRun() {
+	PartitionOpts opts = new PartitionOpts();
+	opts.gridSize = 200;
+	opts.numAgents = 600;
+	opts.numTasks = 1000;
+	opts.maxTicks = 5000;
+	return opts;
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testRegionsTradeAgentsAndBroadcasts() throws IOException, InterruptedException {
+	PartitionOpts opts = smallRun();
+	opts.inProcess = true;
+	PartitionResult result = new PartitionedRunner(opts).run();
+	assertEquals(4, result.regions());
+	assertTrue(result.completed(), result.toJson());
+	assertTrue(result.tasksComplete() >= 950, result.toJson());
+	assertTrue(result.migrations() > 0, result.toJson());
+	assertTrue(result.relayedBroadcasts() > 0, result.toJson());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testWorkerJvmsRunTheSameAsThreads() throws IOException, InterruptedException {
+	PartitionOpts opts = smallRun();
+	opts.columns = 3;
+	opts.rows = 1;
+	opts.inProcess = true;
+	PartitionResult threads = new PartitionedRunner(opts).run();
+	opts.inProcess = false;
+	PartitionResult jvms = new PartitionedRunner(opts).run();
+	assertEquals(threads.ticks(), jvms.ticks());
+	assertEquals(threads.tasksComplete(), jvms.tasksComplete());
+	assertEquals(threads.migrations(), jvms.migrations());
+	assertEquals(threads.relayedBroadcasts(), jvms.relayedBroadcasts());
+    }
+}
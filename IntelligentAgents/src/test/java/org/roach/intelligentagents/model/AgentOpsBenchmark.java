@@ -0,0 +1,121 @@
+package org.roach.intelligentagents.model;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.strategy.PrioritizingStrategy;
+
+/**
+ * The single operations a tick is made of: an agent's moves with the grid
+ * notification that follows them, a neighbour query, a task execution and a
+ * prioritizing agent receiving a broadcast. Each operation cycles through the
+ * agents so that the index is touched all over the grid.
+ *
+ * @author Larry S. Roach
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AgentOpsBenchmark {
+    @Param({ "1000", "3000" })
+    int gridSize;
+    @Param({ "5000", "20000" })
+    int numAgents;
+    @Param({ "50000" })
+    int numTasks;
+    @Param({ "12" })
+    int commDist;
+
+    private SimulationGrid simGrid;
+    private List<Agent> agents;
+    private Location[] targets;
+    private int cursor;
+    private long seed;
+
+    @Setup
+    public void setup() {
+	simGrid = new SimulationGrid(gridSize, numTasks, commDist, 1L);
+	simGrid.initTaskGrid();
+	AgentAppOpts opts = new AgentAppOpts();
+	opts.commDist = commDist;
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(numAgents);
+	factory.setOptions(opts);
+	factory.setStrategyType(PrioritizingStrategy.class);
+	agents = factory.build();
+	simGrid.setAgents(agents);
+	List<Task> tasks = simGrid.getTaskList();
+	targets = new Location[agents.size()];
+	for (int i = 0; i < targets.length; i++)
+	    targets[i] = tasks.get(i % tasks.size()).getLocation();
+    }
+
+    private Agent next() {
+	cursor = (cursor + 1) % agents.size();
+	return agents.get(cursor);
+    }
+
+    /** A random step and the move notification the grid gets for it. */
+    @Benchmark
+    public long randomMove() {
+	Agent a = next();
+	long from = a.getPos();
+	a.randomMove();
+	a.finishAction(from);
+	return a.getPos();
+    }
+
+    /** A step towards a task and the move notification the grid gets for it. */
+    @Benchmark
+    public long moveTowards() {
+	Agent a = next();
+	long from = a.getPos();
+	a.moveTowards(targets[cursor]);
+	a.finishAction(from);
+	return a.getPos();
+    }
+
+    @Benchmark
+    public Set<Agent> getNearbyAgents() {
+	return simGrid.getNearbyAgents(next().getLoc(), commDist);
+    }
+
+    /** Executing a fresh task until it completes. */
+    @Benchmark
+    @OperationsPerInvocation(5)
+    public boolean taskExecute() {
+	Task t = new Task(targets[next().getId()], 0, seed++);
+	boolean complete = false;
+	for (int i = 0; i < 5; i++)
+	    complete |= t.execute();
+	return complete;
+    }
+
+    /** A broadcast received and the task it names dropped again. */
+    @Benchmark
+    public Object receiveMessage() {
+	Agent a = next();
+	PrioritizingStrategy s = (PrioritizingStrategy) a.getStrategy();
+	s.receiveMessage(targets[(cursor * 31) % targets.length]);
+	s.executeTask();
+	return s.getTaskToDo();
+    }
+}
@@ -0,0 +1,158 @@
+package org.roach.intelligentagents.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy;
+
+/**
+ * Compares the {@link CellIndex} used by {@link SimulationGrid} against the
+ * nested-List grid plus xRef table it replaced, for agent moves and for
+ * neighbor queries.
+ *
+ * @author Larry S. Roach
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CellIndexBenchmark {
+    @Param({ "1000" })
+    int gridSize;
+    @Param({ "5000" })
+    int numAgents;
+    @Param({ "12" })
+    int commDist;
+
+    private SimulationGrid simGrid;
+    private List<Agent> agents;
+    private CellIndex index;
+    private LegacyIndex legacy;
+    private Location[] probes;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+	simGrid = new SimulationGrid(gridSize, 0);
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(numAgents);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(MailboxStrategy.class);
+	agents = factory.build();
+	simGrid.setAgents(agents);
+
+	index = new CellIndex(gridSize, numAgents);
+	legacy = new LegacyIndex(gridSize);
+	for (Agent a : agents) {
+	    index.add(a.getId(), a.getLoc().x(), a.getLoc().y());
+	    legacy.add(a, a.getLoc());
+	}
+	Random rand = new Random(42);
+	probes = new Location[1024];
+	for (int i = 0; i < probes.length; i++) {
+	    probes[i] = agents.get(rand.nextInt(numAgents)).getLoc();
+	}
+    }
+
+    private int nextCursor() {
+	cursor = (cursor + 1) & 1023;
+	return cursor;
+    }
+
+    @Benchmark
+    public int cellIndexNearby() {
+	return simGrid.getNearbyAgents(probes[nextCursor()], commDist).size();
+    }
+
+    @Benchmark
+    public int legacyNearby() {
+	return legacy.getNearbyAgents(probes[nextCursor()], commDist).size();
+    }
+
+    @Benchmark
+    public int cellIndexMove() {
+	int c = nextCursor();
+	Agent a = agents.get(c % numAgents);
+	Location to = probes[c];
+	index.move(a.getId(), to.x(), to.y());
+	return index.size();
+    }
+
+    @Benchmark
+    public int legacyMove() {
+	int c = nextCursor();
+	Agent a = agents.get(c % numAgents);
+	Location to = probes[c];
+	legacy.remove(a, a.getLoc());
+	legacy.add(a, to);
+	a.setLoc(to);
+	return c;
+    }
+
+    /**
+     * The agent index SimulationGrid used before CellIndex, kept verbatim
+     * (including the shared per-cell set) so the numbers compare like for like.
+     */
+    static final class LegacyIndex {
+	private final List<List<Set<Agent>>> grid;
+	private final Map<Integer, HashSet<Integer>> xRef = new HashMap<>();
+	private final int gridSize;
+
+	LegacyIndex(final int gridSize) {
+	    this.gridSize = gridSize;
+	    this.grid = Collections.nCopies(gridSize, Collections.nCopies(gridSize, new HashSet<Agent>()));
+	}
+
+	void add(final Agent a, final Location loc) {
+	    grid.get(loc.x()).get(loc.y()).add(a);
+	    Integer X = loc.x();
+	    if (!xRef.containsKey(X)) {
+		xRef.put(X, new HashSet<Integer>());
+	    }
+	    xRef.get(X).add(loc.y());
+	}
+
+	void remove(final Agent a, final Location loc) {
+	    grid.get(loc.x()).get(loc.y()).remove(a);
+	    xRef.get(loc.x()).remove(loc.y());
+	}
+
+	Set<Agent> getNearbyAgents(final Location loc, final int distance) {
+	    int commDistSq = distance * distance;
+	    Set<Agent> list = new HashSet<>();
+	    Integer startCheckX = (loc.x() > distance) ? (loc.x() - distance) : 0;
+	    Integer endCheckX = ((loc.x() + distance) < (gridSize - 1)) ? (loc.x() + distance) : (gridSize - 1);
+	    for (Integer X = startCheckX; X <= endCheckX; X++) {
+		if (xRef.containsKey(X)) {
+		    for (Integer Y : xRef.get(X)) {
+			Location checkLoc = new Location(X, Y);
+			if (!loc.equals(checkLoc) && loc.isInCircle(checkLoc, commDistSq))
+			    list.addAll(grid.get(checkLoc.x()).get(checkLoc.y()));
+		    }
+		}
+	    }
+	    return list;
+	}
+    }
+}
@@ -0,0 +1,83 @@
+package org.roach.intelligentagents.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class CellIndexTest {
+
+    private static int countCell(CellIndex index, int x, int y) {
+	int n = 0;
+	for (int id = index.firstInCell(x, y); id != CellIndex.NONE; id = index.nextInCell(id))
+	    n++;
+	return n;
+    }
+
+    private static int countRow(CellIndex index, int x) {
+	int n = 0;
+	for (int id = index.firstInRow(x); id != CellIndex.NONE; id = index.nextInRow(id))
+	    n++;
+	return n;
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testAddAndRemove() {
+	CellIndex index = new CellIndex(10, 4);
+	index.add(0, 1, 1);
+	index.add(1, 1, 1);
+	index.add(2, 1, 2);
+	assertEquals(3, index.size());
+	assertEquals(2, countCell(index, 1, 1));
+	assertEquals(1, countCell(index, 1, 2));
+	assertEquals(0, countCell(index, 2, 1));
+	assertEquals(3, index.rowCount(1));
+	assertEquals(3, countRow(index, 1));
+	assertTrue(index.remove(1));
+	assertFalse(index.remove(1));
+	assertFalse(index.contains(1));
+	assertEquals(1, countCell(index, 1, 1));
+	assertEquals(2, index.rowCount(1));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testMove() {
+	CellIndex index = new CellIndex(10, 4);
+	index.add(0, 3, 4);
+	index.move(0, 3, 5);
+	assertEquals(0, countCell(index, 3, 4));
+	assertEquals(1, countCell(index, 3, 5));
+	index.move(0, 4, 5);
+	assertEquals(0, index.rowCount(3));
+	assertEquals(1, index.rowCount(4));
+	assertEquals(4, index.x(0));
+	assertEquals(5, index.y(0));
+	assertEquals(1, index.size());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testGrowsPastExpectedSize() {
+	int gridSize = 50;
+	CellIndex index = new CellIndex(gridSize, 1);
+	for (int id = 0; id < 2000; id++)
+	    index.add(id, id % gridSize, (id / gridSize) % gridSize);
+	assertEquals(2000, index.size());
+	int total = 0;
+	for (int x = 0; x < gridSize; x++)
+	    for (int y = 0; y < gridSize; y++)
+		total += countCell(index, x, y);
+	assertEquals(2000, total);
+    }
+}
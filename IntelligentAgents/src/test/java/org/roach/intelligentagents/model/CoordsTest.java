@@ -0,0 +1,44 @@
+package org.roach.intelligentagents.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class CoordsTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testPackRoundTrip() {
+	for (int x : new int[] { 0, 1, 999, Integer.MAX_VALUE }) {
+	    for (int y : new int[] { 0, 1, 999, Integer.MAX_VALUE }) {
+		long p = Coords.pack(x, y);
+		assertEquals(x, Coords.x(p));
+		assertEquals(y, Coords.y(p));
+		assertNotEquals(Coords.NONE, p);
+	    }
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testMatchesLocation() {
+	Location center = new Location(10, 10);
+	for (int x = 0; x < 20; x++) {
+	    for (int y = 0; y < 20; y++) {
+		Location l = new Location(x, y);
+		long c = Coords.pack(10, 10);
+		long p = Coords.pack(x, y);
+		assertEquals(center.getManDist(l), Coords.manDist(c, p));
+		assertEquals(center.isInCircle(l, 5), Coords.isInCircle(c, p, 5));
+	    }
+	}
+    }
+}
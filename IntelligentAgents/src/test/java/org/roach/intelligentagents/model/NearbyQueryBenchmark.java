@@ -0,0 +1,75 @@
+package org.roach.intelligentagents.model;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy;
+
+/**
+ * Radius queries through {@link SimulationGrid#forEachAgentWithin} with and
+ * without the coarse bucket layer, swept over communication distance and grid
+ * size. With buckets on, the bucket side equals commDist.
+ *
+ * @author Larry S. Roach
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NearbyQueryBenchmark {
+    @Param({ "1000", "3000", "10000" })
+    int gridSize;
+    @Param({ "5000" })
+    int numAgents;
+    @Param({ "4", "8", "16", "32", "64" })
+    int commDist;
+    @Param({ "false", "true" })
+    boolean buckets;
+
+    private SimulationGrid simGrid;
+    private Location[] probes;
+    private int cursor;
+    private int visited;
+    private final AgentVisitor counter = a -> visited++;
+
+    @Setup
+    public void setup() {
+	simGrid = new SimulationGrid(gridSize, 0, buckets ? commDist : 0);
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(numAgents);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(MailboxStrategy.class);
+	List<Agent> agents = factory.build();
+	simGrid.setAgents(agents);
+
+	Random rand = new Random(42);
+	probes = new Location[1024];
+	for (int i = 0; i < probes.length; i++) {
+	    probes[i] = agents.get(rand.nextInt(numAgents)).getLoc();
+	}
+    }
+
+    @Benchmark
+    public int radiusQuery() {
+	cursor = (cursor + 1) & 1023;
+	visited = 0;
+	simGrid.forEachAgentWithin(probes[cursor], commDist, counter);
+	return visited;
+    }
+}
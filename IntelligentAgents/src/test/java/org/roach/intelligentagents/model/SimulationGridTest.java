@@ -0,0 +1,294 @@
+package org.roach.intelligentagents.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.engine.ParallelTickEngine;
+import org.roach.intelligentagents.model.engine.SequentialTickEngine;
+import org.roach.intelligentagents.model.engine.TickEngine;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class SimulationGridTest {
+
+    private static SimulationGrid newGrid(int gridSize, int numAgents) {
+	return newGrid(gridSize, numAgents, 0);
+    }
+
+    private static SimulationGrid newGrid(int gridSize, int numAgents, int bucketSize) {
+	SimulationGrid simGrid = new SimulationGrid(gridSize, 0, bucketSize);
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(numAgents);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(MailboxStrategy.class);
+	simGrid.setAgents(factory.build());
+	return simGrid;
+    }
+
+    private static Set<Agent> bruteForce(List<Agent> agents, Location loc, int distance) {
+	Set<Agent> expected = new HashSet<>();
+	for (Agent a : agents) {
+	    Location l = a.getLoc();
+	    if (!l.equals(loc) && loc.isInCircle(l, distance))
+		expected.add(a);
+	}
+	return expected;
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testForEachAgentWithinMatchesBruteForce() {
+	SimulationGrid simGrid = newGrid(60, 400);
+	for (Agent center : simGrid.getAgents()) {
+	    for (int distance : new int[] { 0, 1, 5, 12 }) {
+		Set<Agent> found = new HashSet<>();
+		simGrid.forEachAgentWithin(center.getLoc(), distance, found::add);
+		assertEquals(bruteForce(simGrid.getAgents(), center.getLoc(), distance), found);
+	    }
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testBucketQueryMatchesBruteForce() {
+	for (int bucketSize : new int[] { 1, 7, 12, 100 }) {
+	    SimulationGrid simGrid = newGrid(60, 400, bucketSize);
+	    for (Agent center : simGrid.getAgents()) {
+		for (int distance : new int[] { 0, 1, 5, 12 }) {
+		    Set<Agent> found = new HashSet<>();
+		    simGrid.forEachAgentWithin(center.getLoc(), distance, found::add);
+		    assertEquals(bruteForce(simGrid.getAgents(), center.getLoc(), distance), found);
+		}
+	    }
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testGetNearbyAgentsSkipsOwnCell() {
+	SimulationGrid simGrid = newGrid(20, 50);
+	for (Agent a : simGrid.getAgents()) {
+	    assertFalse(simGrid.getNearbyAgents(a.getLoc(), 3).contains(a));
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testApplyIntentsReindexesAgents() {
+	SimulationGrid simGrid = newGrid(60, 400);
+	simGrid.initTaskGrid();
+	simGrid.beginSensePhase();
+	for (Agent a : simGrid.getAgents()) {
+	    a.getStrategy().doAction();
+	}
+	simGrid.applyIntents();
+	for (Agent center : simGrid.getAgents()) {
+	    Set<Agent> found = new HashSet<>();
+	    simGrid.forEachAgentWithin(center.getLoc(), 5, found::add);
+	    assertEquals(bruteForce(simGrid.getAgents(), center.getLoc(), 5), found);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testTaskExecutionWaitsForApplyPhase() {
+	SimulationGrid simGrid = new SimulationGrid(10, 20);
+	simGrid.initTaskGrid();
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(1);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(MailboxStrategy.class);
+	simGrid.setAgents(factory.build());
+	Agent a = simGrid.getAgents().get(0);
+	Task t = simGrid.getTaskList().get(0);
+	a.setLoc(t.getLocation());
+	simGrid.beginSensePhase();
+	a.executeTask();
+	assertEquals(0, t.getPrio());
+	simGrid.applyIntents();
+	assertEquals(1, t.getPrio());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testOnMoveKeepsIndexCurrent() {
+	SimulationGrid simGrid = newGrid(60, 400, 12);
+	simGrid.initTaskGrid();
+	for (int tick = 0; tick < 5; tick++) {
+	    for (Agent a : simGrid.getAgents()) {
+		a.getStrategy().doAction();
+	    }
+	}
+	for (Agent center : simGrid.getAgents()) {
+	    Set<Agent> found = new HashSet<>();
+	    simGrid.forEachAgentWithin(center.getLoc(), 5, found::add);
+	    assertEquals(bruteForce(simGrid.getAgents(), center.getLoc(), 5), found);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testTaskIdsIndexTaskList() {
+	SimulationGrid simGrid = new SimulationGrid(30, 100);
+	simGrid.initTaskGrid();
+	List<Task> tasks = simGrid.getTaskList();
+	for (int i = 0; i < tasks.size(); i++)
+	    assertEquals(i, tasks.get(i).getId());
+	Agent a = newGrid(30, 1).getAgents().get(0);
+	assertFalse(a.hasDoneAlready(tasks.get(42)));
+	a.markDone(tasks.get(42));
+	assertTrue(a.hasDoneAlready(tasks.get(42)));
+	assertFalse(a.hasDoneAlready(tasks.get(41)));
+	assertFalse(a.hasDoneAlready(null));
+    }
+
+    private static int ticksToFinish(TickEngine engine, long seed) {
+	SimulationGrid simGrid = new SimulationGrid(40, 100, 0, seed);
+	simGrid.initTaskGrid();
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(200);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(MailboxStrategy.class);
+	simGrid.setAgents(factory.build());
+	int ticks = 0;
+	while (simGrid.getNumTasksComplete() < 95 && ticks < 100_000) {
+	    engine.tick(simGrid);
+	    ticks++;
+	}
+	engine.shutdown();
+	return ticks;
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testSameSeedRepeatsRun() {
+	int sequential = ticksToFinish(new SequentialTickEngine(), 7L);
+	assertTrue(sequential < 100_000);
+	assertEquals(sequential, ticksToFinish(new SequentialTickEngine(), 7L));
+	int parallel = ticksToFinish(new ParallelTickEngine(1), 7L);
+	assertTrue(parallel < 100_000);
+	assertEquals(parallel, ticksToFinish(new ParallelTickEngine(3), 7L));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testInitTaskGridFillsEveryCellWhenDense() {
+	SimulationGrid simGrid = new SimulationGrid(40, 1600, 0, 3L);
+	simGrid.initTaskGrid();
+	List<Task> tasks = simGrid.getTaskList();
+	assertEquals(1600, tasks.size());
+	for (int x = 0; x < 40; x++)
+	    for (int y = 0; y < 40; y++)
+		assertTrue(simGrid.isTask(new Location(x, y)));
+	for (int i = 0; i < tasks.size(); i++)
+	    assertSame(tasks.get(i), simGrid.getTask(tasks.get(i).getLocation()));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testSameSeedPlacesSameTasks() {
+	SimulationGrid a = new SimulationGrid(500, 20_000, 0, 11L);
+	SimulationGrid b = new SimulationGrid(500, 20_000, 0, 11L);
+	a.initTaskGrid();
+	b.initTaskGrid();
+	assertEquals(20_000, new HashSet<>(a.getTaskList()).size());
+	assertEquals(a.getTaskList(), b.getTaskList());
+    }
+    private static long distSq(Location a, Location b) {
+	long dx = a.x() - b.x();
+	long dy = a.y() - b.y();
+	return dx * dx + dy * dy;
+    }
+
+    private static Task bruteForceNearest(SimulationGrid simGrid, Location loc) {
+	Task best = null;
+	long bestDistSq = Long.MAX_VALUE;
+	for (Task t : simGrid.getTaskList()) {
+	    long d = distSq(loc, t.getLocation());
+	    if (!t.isComplete() && d < bestDistSq) {
+		best = t;
+		bestDistSq = d;
+	    }
+	}
+	return best;
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testOpenTaskQueriesMatchBruteForce() {
+	SimulationGrid simGrid = new SimulationGrid(80, 300, 0, 5L);
+	simGrid.initTaskGrid();
+	List<Task> tasks = simGrid.getTaskList();
+	for (int i = 0; i < tasks.size(); i += 2) {
+	    Location l = tasks.get(i).getLocation();
+	    for (int n = 0; n < Task.getTaskComplete(); n++)
+		simGrid.executeTaskAt(l);
+	}
+	assertEquals(150, simGrid.getNumTasksComplete());
+	for (int x = 0; x < 80; x += 3) {
+	    for (int y = 0; y < 80; y += 7) {
+		Location loc = new Location(x, y);
+		Task nearest = simGrid.nearestOpenTask(loc);
+		Task expected = bruteForceNearest(simGrid, loc);
+		assertEquals(distSq(loc, expected.getLocation()), distSq(loc, nearest.getLocation()));
+		assertFalse(nearest.isComplete());
+		for (int distance : new int[] { 0, 3, 10, 40 }) {
+		    Set<Task> expectedWithin = new HashSet<>();
+		    for (Task t : tasks)
+			if (!t.isComplete() && loc.isInCircle(t.getLocation(), distance))
+			    expectedWithin.add(t);
+		    assertEquals(expectedWithin, new HashSet<>(simGrid.openTasksWithin(loc, distance)));
+		}
+	    }
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testNearestOpenTaskIsNullOnceAllComplete() {
+	SimulationGrid simGrid = new SimulationGrid(10, 3, 0, 9L);
+	simGrid.initTaskGrid();
+	for (Task t : simGrid.getTaskList()) {
+	    assertSame(t, simGrid.nearestOpenTask(t.getLocation()));
+	    for (int n = 0; n < Task.getTaskComplete(); n++)
+		simGrid.executeTaskAt(t.getLocation());
+	}
+	assertNull(simGrid.nearestOpenTask(new Location(5, 5)));
+	assertTrue(simGrid.openTasksWithin(new Location(5, 5), 20).isEmpty());
+    }
+}
@@ -0,0 +1,41 @@
+package org.roach.intelligentagents.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times {@link SimulationGrid#initTaskGrid()} from sparse to nearly full grids,
+ * up to 10M tasks on a 10000x10000 grid.
+ *
+ * @author Larry S. Roach
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xmx6g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class TaskPlacementBenchmark {
+    @Param({ "1000:50000", "1000:900000", "10000:10000000" })
+    String gridAndTasks;
+
+    private long seed;
+
+    @Benchmark
+    public SimulationGrid place() {
+	String[] parts = gridAndTasks.split(":");
+	SimulationGrid simGrid = new SimulationGrid(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), 0, seed++);
+	simGrid.initTaskGrid();
+	return simGrid;
+    }
+}
@@ -0,0 +1,73 @@
+package org.roach.intelligentagents.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class TaskStoreTest {
+
+    private static Task[] randomTasks(int gridSize, int numTasks, long seed) {
+	SplittableRandom rand = new SplittableRandom(seed);
+	boolean[][] taken = new boolean[gridSize][gridSize];
+	Task[] tasks = new Task[numTasks];
+	for (int i = 0; i < numTasks; i++) {
+	    int x;
+	    int y;
+	    do {
+		x = rand.nextInt(gridSize);
+		y = rand.nextInt(gridSize);
+	    } while (taken[x][y]);
+	    taken[x][y] = true;
+	    tasks[i] = new Task(new Location(x, y), i, seed);
+	}
+	return tasks;
+    }
+
+    private static void assertStoreHolds(TaskStore store, int gridSize, Task[] tasks) {
+	Task[][] expected = new Task[gridSize][gridSize];
+	for (Task t : tasks)
+	    expected[t.getLocation().x()][t.getLocation().y()] = t;
+	for (int x = 0; x < gridSize; x++)
+	    for (int y = 0; y < gridSize; y++)
+		assertSame(expected[x][y], store.get(x, y), x + "," + y);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testDenseAndSparseAgree() {
+	for (int numTasks : new int[] { 0, 1, 2, 3, 50, 1000, 2500 }) {
+	    Task[] tasks = randomTasks(50, numTasks, numTasks);
+	    assertStoreHolds(new DenseTaskStore(50, tasks), 50, tasks);
+	    assertStoreHolds(new SparseTaskStore(tasks), 50, tasks);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testStoreChosenByDensity() {
+	assertTrue(TaskStore.of(100, randomTasks(100, 100, 1L)) instanceof SparseTaskStore);
+	assertTrue(TaskStore.of(100, randomTasks(100, 5000, 1L)) instanceof DenseTaskStore);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testSparseGridStaysSmall() {
+	SimulationGrid simGrid = new SimulationGrid(20_000, 1000, 0, 4L);
+	simGrid.initTaskGrid(); // A dense store would need 400M references
+	for (Task t : simGrid.getTaskList())
+	    assertSame(t, simGrid.getTask(t.getLocation()));
+	assertEquals(1000, simGrid.getTaskList().size());
+    }
+}
@@ -71,4 +71,15 @@ public class TaskTest {
 	assertEquals(t1.toString(), "Task: (0,0), prio: 0");
     }
 
+    /**
+     * 
+     */
+    @Test
+    public void testExecuteReportsCompletionOnce() {
+	Task t1 = new Task(new Location(0, 0));
+	for (int i = 1; i < Task.getTaskComplete(); i++)
+	    assertFalse(t1.execute());
+	assertTrue(t1.execute());
+	assertFalse(t1.execute());
+    }
 }
@@ -0,0 +1,121 @@
+package org.roach.intelligentagents.model.checkpoint;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.Agent;
+import org.roach.intelligentagents.model.AgentFactory;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.Task;
+import org.roach.intelligentagents.model.engine.ParallelTickEngine;
+import org.roach.intelligentagents.model.engine.SequentialTickEngine;
+import org.roach.intelligentagents.model.engine.TickEngine;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+import org.roach.intelligentagents.model.strategy.FinderDoerStrategy;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy;
+import org.roach.intelligentagents.model.strategy.PrioritizingStrategy;
+import org.roach.intelligentagents.model.strategy.SearchStrategy;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class CheckpointTest {
+
+    private static SimulationGrid newGrid(Class<? extends AgentStrategy> strategy, int bucketSize) {
+	SimulationGrid simGrid = new SimulationGrid(60, 400, bucketSize, 21L);
+	simGrid.initTaskGrid();
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(150);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(strategy);
+	simGrid.setAgents(factory.build());
+	return simGrid;
+    }
+
+    /**
+     * Where every agent is and what every task has reached after each tick.
+     */
+    private static List<String> run(TickEngine engine, SimulationGrid simGrid, int ticks) {
+	List<String> trace = new ArrayList<>();
+	for (int i = 0; i < ticks; i++) {
+	    engine.tick(simGrid);
+	    StringBuilder sb = new StringBuilder().append(simGrid.getNumTasksComplete());
+	    for (Agent a : simGrid.getAgents())
+		sb.append(' ').append(a.getPos()).append(a.getStrategy().getState().getName());
+	    for (Task t : simGrid.getTaskList())
+		sb.append(t.getPrio());
+	    trace.add(sb.toString());
+	}
+	engine.shutdown();
+	return trace;
+    }
+
+    private static void assertRestoredRunMatches(Class<? extends AgentStrategy> strategy, int bucketSize,
+	    TickEngine first, TickEngine rest, TickEngine restored) throws IOException {
+	Path file = Files.createTempFile("sim", ".ckpt");
+	try {
+	    SimulationGrid simGrid = newGrid(strategy, bucketSize);
+	    run(first, simGrid, 40);
+	    Checkpoint.write(file, simGrid, 40);
+	    List<String> expected = run(rest, simGrid, 120);
+	    Checkpoint checkpoint = Checkpoint.read(file, null);
+	    assertEquals(40, checkpoint.time());
+	    assertEquals(expected, run(restored, checkpoint.simGrid(), 120), strategy.getSimpleName());
+	} finally {
+	    Files.deleteIfExists(file);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testRestoredRunMatchesEveryStrategy() throws IOException {
+	for (Class<? extends AgentStrategy> strategy : List.of(MailboxStrategy.class, PrioritizingStrategy.class,
+		FinderDoerStrategy.class, SearchStrategy.class)) {
+	    assertRestoredRunMatches(strategy, 0, new SequentialTickEngine(), new SequentialTickEngine(),
+		    new SequentialTickEngine());
+	    assertRestoredRunMatches(strategy, 12, new SequentialTickEngine(), new SequentialTickEngine(),
+		    new SequentialTickEngine());
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testRestoredRunMatchesWithParallelTicks() throws IOException {
+	assertRestoredRunMatches(MailboxStrategy.class, 12, new ParallelTickEngine(2), new ParallelTickEngine(2),
+		new ParallelTickEngine(3));
+	assertRestoredRunMatches(PrioritizingStrategy.class, 12, new ParallelTickEngine(2),
+		new ParallelTickEngine(2), new ParallelTickEngine(2));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testDamagedCheckpointIsRefused() throws IOException {
+	Path file = Files.createTempFile("sim", ".ckpt");
+	try {
+	    Checkpoint.write(file, newGrid(MailboxStrategy.class, 0), 0);
+	    byte[] bytes = Files.readAllBytes(file);
+	    bytes[bytes.length / 2] ^= 1;
+	    Files.write(file, bytes);
+	    assertThrows(IOException.class, () -> Checkpoint.read(file, null));
+	    Files.write(file, new byte[] { 1, 2, 3 });
+	    assertThrows(IOException.class, () -> Checkpoint.read(file, null));
+	} finally {
+	    Files.deleteIfExists(file);
+	}
+    }
+}
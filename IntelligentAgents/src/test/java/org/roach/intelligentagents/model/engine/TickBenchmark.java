@@ -0,0 +1,79 @@
+package org.roach.intelligentagents.model.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.AgentFactory;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+
+/**
+ * One whole tick, as the animators run it, swept over the size of the
+ * simulation, the strategy and the engine. The simulation keeps running across
+ * invocations, so later measurements see more tasks complete and more
+ * messages in flight, as a real run does.
+ *
+ * @author Larry S. Roach
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TickBenchmark {
+    @Param({ "1000", "3000" })
+    int gridSize;
+    @Param({ "5000", "20000" })
+    int numAgents;
+    @Param({ "50000" })
+    int numTasks;
+    @Param({ "12" })
+    int commDist;
+    @Param({ "MailboxStrategy", "PrioritizingStrategy", "FinderDoerStrategy", "SearchStrategy" })
+    String strategy;
+    @Param({ "sequential", "parallel" })
+    String engine;
+
+    private SimulationGrid simGrid;
+    private TickEngine tickEngine;
+
+    @Setup
+    public void setup() throws ClassNotFoundException {
+	simGrid = new SimulationGrid(gridSize, numTasks, commDist, 1L);
+	simGrid.initTaskGrid();
+	AgentAppOpts opts = new AgentAppOpts();
+	opts.commDist = commDist;
+	opts.commTime = 6;
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(numAgents);
+	factory.setOptions(opts);
+	factory.setStrategyType(Class.forName(AgentStrategy.class.getPackageName() + "." + strategy)
+		.asSubclass(AgentStrategy.class));
+	simGrid.setAgents(factory.build());
+	tickEngine = TickEngine.forName(engine, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+	tickEngine.shutdown();
+    }
+
+    @Benchmark
+    public void tick() {
+	tickEngine.tick(simGrid);
+    }
+}
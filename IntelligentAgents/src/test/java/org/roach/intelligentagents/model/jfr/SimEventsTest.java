@@ -0,0 +1,90 @@
+package org.roach.intelligentagents.model.jfr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.AgentFactory;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.engine.SequentialTickEngine;
+import org.roach.intelligentagents.model.engine.TickEngine;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class SimEventsTest {
+
+    private static SimulationGrid newGrid() {
+	SimulationGrid simGrid = new SimulationGrid(30, 40, 0, 5L);
+	simGrid.initTaskGrid();
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(60);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(MailboxStrategy.class);
+	simGrid.setAgents(factory.build());
+	return simGrid;
+    }
+
+    private static List<RecordedEvent> record(Recording recording, SimulationGrid simGrid, int ticks)
+	    throws IOException {
+	TickEngine engine = new SequentialTickEngine();
+	Path file = Files.createTempFile("sim", ".jfr");
+	try {
+	    recording.start();
+	    for (int i = 0; i < ticks; i++)
+		SimEvents.tick(engine, simGrid, i);
+	    recording.stop();
+	    recording.dump(file);
+	    return RecordingFile.readAllEvents(file);
+	} finally {
+	    recording.close();
+	    Files.deleteIfExists(file);
+	}
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+	return events.stream().filter(e -> e.getEventType().getName().equals(SimEvents.PREFIX + name)).count();
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testEnabledEventsAreRecorded() throws IOException {
+	SimulationGrid simGrid = newGrid();
+	Recording recording = new Recording();
+	recording.enable(TickEvent.class);
+	recording.enable(TaskCompletedEvent.class);
+	recording.enable(MailboxPostEvent.class);
+	List<RecordedEvent> events = record(recording, simGrid, 200);
+	assertEquals(200, count(events, "Tick"));
+	assertEquals(simGrid.getNumTasksComplete(), count(events, "TaskCompleted"));
+	assertTrue(count(events, "MailboxPost") > 0);
+	assertEquals(0, count(events, "MailboxPoll"));
+	long completed = events.stream().filter(e -> e.getEventType().getName().equals(SimEvents.PREFIX + "Tick"))
+		.mapToLong(e -> e.getInt("tasksCompleted")).sum();
+	assertEquals(simGrid.getNumTasksComplete(), completed);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testEventsAreOffByDefault() throws IOException {
+	List<RecordedEvent> events = record(new Recording(), newGrid(), 20);
+	assertEquals(0, count(events, "Tick"));
+	assertEquals(0, count(events, "MailboxPost"));
+    }
+}
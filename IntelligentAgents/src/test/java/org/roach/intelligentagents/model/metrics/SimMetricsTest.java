@@ -0,0 +1,101 @@
+package org.roach.intelligentagents.model.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.AgentFactory;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.engine.MeteredTickEngine;
+import org.roach.intelligentagents.model.engine.SequentialTickEngine;
+import org.roach.intelligentagents.model.metrics.SimMetrics.Counter;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class SimMetricsTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testHistogramPercentiles() {
+	TickHistogram h = new TickHistogram();
+	assertEquals(0, h.percentile(50));
+	for (int i = 1; i <= 1000; i++)
+	    h.record(i * 1000L);
+	assertEquals(1000, h.getCount());
+	assertEquals(1_000_000, h.getMax());
+	assertEquals(500_000, h.percentile(50), 500_000 * 0.07);
+	assertEquals(990_000, h.percentile(99), 990_000 * 0.07);
+	assertEquals(1_000_000, h.percentile(100), 1_000_000 * 0.07);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testEndTickDrainsCounters() {
+	SimMetrics metrics = new SimMetrics(2);
+	metrics.count(Counter.MESSAGES_SENT);
+	metrics.add(Counter.NEIGHBORS_VISITED, 6);
+	metrics.count(Counter.NEIGHBOR_QUERIES);
+	metrics.count(Counter.NEIGHBOR_QUERIES);
+	metrics.registerGauge("depth", () -> 7);
+	TickSample first = metrics.endTick(100, 64, 2, List.of());
+	assertEquals(1, first.messagesSent());
+	assertEquals(3.0, first.fanOut());
+	assertEquals(Long.valueOf(7), first.gauges().get("depth"));
+	TickSample second = metrics.endTick(200, -1, 0, List.of());
+	assertEquals(0, second.messagesSent());
+	assertEquals(0.0, second.fanOut());
+	metrics.endTick(300, 0, 1, List.of());
+	assertEquals(3, metrics.getTicks());
+	assertEquals(1, metrics.getTotal(Counter.MESSAGES_SENT));
+	assertEquals(3, metrics.getTotalTasksCompleted());
+	assertEquals(64, metrics.getTotalAllocatedBytes());
+	assertEquals(2, metrics.recentTicks().size()); // Only the last two are kept
+	assertEquals(2, metrics.recentTicks().get(0).tick());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testMeteredEngineSamplesEveryTick() throws IOException {
+	SimulationGrid simGrid = new SimulationGrid(40, 100, 0, 3L);
+	simGrid.initTaskGrid();
+	SimMetrics metrics = new SimMetrics();
+	simGrid.setMetrics(metrics);
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(200);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(MailboxStrategy.class);
+	simGrid.setAgents(factory.build());
+	MeteredTickEngine engine = new MeteredTickEngine(new SequentialTickEngine());
+	for (int i = 0; i < 50; i++)
+	    engine.tick(simGrid);
+	engine.shutdown();
+	assertEquals(50, metrics.getTicks());
+	assertEquals(simGrid.getNumTasksComplete(), metrics.getTotalTasksCompleted());
+	assertTrue(metrics.getTotal(Counter.MESSAGES_SENT) > 0);
+	TickSample last = metrics.getLastTick();
+	assertNotNull(last);
+	assertEquals(200, last.agentsByState().values().stream().mapToInt(Integer::intValue).sum());
+	assertTrue(last.gauges().containsKey("mailboxDepth"));
+	assertTrue(metrics.tickNanosPercentile(50) > 0);
+	StringWriter out = new StringWriter();
+	metrics.writeJsonLines(out);
+	String[] lines = out.toString().split("\n");
+	assertEquals(51, lines.length);
+	assertTrue(lines[0].startsWith("{\"tick\":1,"));
+	assertTrue(lines[50].startsWith("{\"summary\":{\"ticks\":50,"));
+    }
+}
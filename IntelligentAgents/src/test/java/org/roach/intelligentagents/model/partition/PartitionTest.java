@@ -0,0 +1,118 @@
+package org.roach.intelligentagents.model.partition;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.model.Coords;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class PartitionTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testRegionsCoverTheGridOnce() {
+	Partition p = new Partition(101, 3, 2, 10);
+	assertEquals(6, p.size());
+	long cells = 0;
+	for (int r = 0; r < p.size(); r++) {
+	    assertEquals(cells, p.cellsBefore(r));
+	    for (int x = p.x0(r); x < p.x1(r); x++) {
+		for (int y = p.y0(r); y < p.y1(r); y++)
+		    assertEquals(r, p.owner(x, y));
+	    }
+	    cells += (long) (p.x1(r) - p.x0(r)) * (p.y1(r) - p.y0(r));
+	}
+	assertEquals(101L * 101, cells);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testFramesAndNeighbors() {
+	Partition p = new Partition(90, 3, 3, 10);
+	assertEquals(0, p.frameX0(0));
+	assertEquals(40, p.frameX1(0));
+	assertEquals(20, p.frameX0(4));
+	assertEquals(70, p.frameX1(4));
+	assertTrue(p.inFrame(4, 20, 69));
+	assertFalse(p.inFrame(4, 19, 40));
+	assertArrayEquals(new int[] { 1, 3, 4 }, p.neighbors(0));
+	assertArrayEquals(new int[] { 0, 1, 2, 3, 5, 6, 7, 8 }, p.neighbors(4));
+	assertTrue(p.reaches(4, 25, 30, 5));
+	assertFalse(p.reaches(4, 25, 30, 4));
+	assertTrue(p.reaches(4, 27, 26, 5));
+	assertFalse(p.reaches(4, 26, 26, 5));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testRegionsNarrowerThanTheMarginAreRejected() {
+	assertThrows(IllegalArgumentException.class, () -> new Partition(100, 4, 1, 30));
+	assertThrows(IllegalArgumentException.class, () -> new Partition(100, 0, 1, 3));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testSharesAddUpToTheTotal() {
+	long whole = 7;
+	long sum = 0;
+	for (long before = 0; before < whole; before++)
+	    sum += Partition.share(10, before + 1, whole) - Partition.share(10, before, whole);
+	assertEquals(10, sum);
+	assertEquals(Long.MAX_VALUE / 2, Partition.share(Long.MAX_VALUE, 1, 2));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testPlacementOfRectanglesAgreesWithTheWholeGrid() {
+	int gridSize = 2500;
+	TaskPlacement placement = new TaskPlacement(gridSize, 40_000, 7L);
+	TaskPlacement.Tasks all = placement.place(0, 0, gridSize, gridSize);
+	assertEquals(40_000, all.locations().length);
+	Map<Long, Long> seeds = new HashMap<>();
+	for (int i = 0; i < all.locations().length; i++)
+	    assertNull(seeds.put(all.locations()[i], all.seeds()[i]));
+
+	int[][] rects = { { 1000, 900, 1100, 2100 }, { 0, 0, 1, 2500 }, { 2047, 1023, 2049, 1025 } };
+	for (int[] r : rects) {
+	    TaskPlacement.Tasks part = new TaskPlacement(gridSize, 40_000, 7L).place(r[0], r[1], r[2], r[3]);
+	    int inside = 0;
+	    for (long location : all.locations()) {
+		int x = Coords.x(location);
+		int y = Coords.y(location);
+		if (x >= r[0] && x < r[2] && y >= r[1] && y < r[3])
+		    inside++;
+	    }
+	    assertEquals(inside, part.locations().length);
+	    for (int i = 0; i < part.locations().length; i++)
+		assertEquals(seeds.get(part.locations()[i]).longValue(), part.seeds()[i]);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testAgentsAreSharedOutExactly() {
+	PartitionedRun run = new PartitionedRun(1000, 3, 2, 12_345, 50_000, 12, 6, 12, 1L);
+	int agents = 0;
+	for (int r = 0; r < run.partition().size(); r++)
+	    agents += run.agentsIn(r);
+	assertEquals(12_345, agents);
+    }
+}
@@ -0,0 +1,100 @@
+package org.roach.intelligentagents.model.store;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.Task;
+import org.roach.intelligentagents.model.engine.ArrayTickEngine;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class StoredAgentTest {
+
+    private static StoredAgent newAgent(SimulationGrid simGrid, int x, int y) {
+	AgentStore store = new AgentStore(simGrid.getGridSize(), 1);
+	store.add(simGrid.nextAgentId(), x, y, 3);
+	return new StoredAgent(store, simGrid).at(0);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testMoveStaysOnGrid() {
+	SimulationGrid simGrid = new SimulationGrid(10, 0);
+	StoredAgent a = newAgent(simGrid, 0, 0);
+	a.moveBy(-1, 1);
+	assertEquals(0, a.x());
+	assertEquals(0, a.y());
+	a.moveBy(1, 1);
+	assertEquals(1, a.x());
+	assertEquals(1, a.y());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testMoveTowards() {
+	SimulationGrid simGrid = new SimulationGrid(10, 0);
+	StoredAgent a = newAgent(simGrid, 5, 5);
+	int target = 2 * 10 + 7;
+	a.moveTowards(target);
+	assertEquals(4, a.x());
+	assertEquals(6, a.y());
+	a.moveTowards(target);
+	a.moveTowards(target);
+	a.moveTowards(target);
+	assertEquals(target, a.cell());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testExecuteTaskRecordsIt() {
+	SimulationGrid simGrid = new SimulationGrid(10, 5);
+	simGrid.initTaskGrid();
+	Task t = simGrid.getTaskList().get(0);
+	StoredAgent a = newAgent(simGrid, t.getLocation().x(), t.getLocation().y());
+	assertTrue(a.foundNewTask());
+	a.executeTask();
+	assertEquals(1, t.getPrio());
+	assertTrue(a.hasDoneAlready(a.cell()));
+	assertFalse(a.foundNewTask());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testSweepKeepsIndexCurrent() {
+	SimulationGrid simGrid = new SimulationGrid(60, 200, 12);
+	simGrid.initTaskGrid();
+	ArrayTickEngine engine = ArrayTickEngine.populate(simGrid, 400, 12, 3);
+	for (int tick = 0; tick < 10; tick++)
+	    engine.tick(simGrid);
+	StoredAgent a = new StoredAgent(engine.getStore(), simGrid);
+	StoredAgent b = new StoredAgent(engine.getStore(), simGrid);
+	for (int id = 0; id < engine.getStore().size(); id++) {
+	    a.at(id);
+	    Set<Integer> found = new HashSet<>();
+	    simGrid.forEachAgentIdWithin(a.x(), a.y(), 5, found::add);
+	    Set<Integer> expected = new HashSet<>();
+	    for (int other = 0; other < engine.getStore().size(); other++) {
+		b.at(other);
+		int dx = b.x() - a.x();
+		int dy = b.y() - a.y();
+		if ((dx != 0 || dy != 0) && dx * dx + dy * dy <= 25)
+		    expected.add(other);
+	    }
+	    assertEquals(expected, found);
+	}
+    }
+}
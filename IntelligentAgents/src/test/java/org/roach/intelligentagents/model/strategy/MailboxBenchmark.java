@@ -0,0 +1,112 @@
+package org.roach.intelligentagents.model.strategy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roach.intelligentagents.model.Location;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy.Mailbox;
+
+/**
+ * Throughput of the sharded {@link Mailbox} against the single synchronized
+ * deque it replaced, under the traffic of the RANDOM state on a 1000x1000 grid.
+ * An agent at a random cell asks for a message within {@link #COMM_DIST}; with
+ * the deque it has to poll the head and put it back when it is too far away.
+ * Claimed messages are posted again, as an agent does when a task is not yet
+ * complete, so the number of messages stays at a tenth of the agents.
+ *
+ * @author Larry S. Roach
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(4)
+public class MailboxBenchmark {
+    private static final int GRID_SIZE = 1000;
+    private static final int COMM_DIST = 12;
+    private static final Predicate<Location> NONE = l -> false;
+
+    @Param({ "5000", "20000", "100000" })
+    int numAgents;
+
+    private Mailbox mailbox;
+    private LegacyMailbox legacy;
+
+    @Setup
+    public void setup() {
+	mailbox = new Mailbox(GRID_SIZE);
+	legacy = new LegacyMailbox();
+	SplittableRandom rand = new SplittableRandom(1);
+	for (int i = 0; i < numAgents / 10; i++) {
+	    Location l = new Location(rand.nextInt(GRID_SIZE), rand.nextInt(GRID_SIZE));
+	    mailbox.postMessage(l);
+	    legacy.postMessage(l);
+	}
+    }
+
+    /** Each benchmark thread draws its own agent positions. */
+    @State(Scope.Thread)
+    public static class Agent {
+	final SplittableRandom rand = new SplittableRandom();
+    }
+
+    @Benchmark
+    public Object mailbox(Agent agent) {
+	Mailbox.MailMessage m = mailbox.claimNear(0, agent.rand.nextInt(GRID_SIZE), agent.rand.nextInt(GRID_SIZE),
+		COMM_DIST, NONE);
+	if (m != null)
+	    mailbox.postMessage(m.location());
+	return m;
+    }
+
+    @Benchmark
+    public Object legacy(Agent agent) {
+	int x = agent.rand.nextInt(GRID_SIZE);
+	int y = agent.rand.nextInt(GRID_SIZE);
+	Location l = legacy.pollMessage();
+	if (l != null)
+	    legacy.postMessage(l); // Too far away, or claimed and not yet complete
+	return l != null && Math.abs(l.x() - x) + Math.abs(l.y() - y) <= COMM_DIST ? l : null;
+    }
+
+    /**
+     * The mailbox as it was: a deque under one lock, deduplicated by a linear
+     * contains that compared locations by reference.
+     */
+    static final class LegacyMailbox {
+	private final Deque<Location> messages = new ArrayDeque<>();
+
+	void postMessage(Location loc) {
+	    synchronized (messages) {
+		for (Location queued : messages) {
+		    if (queued == loc)
+			return;
+		}
+		messages.addLast(loc);
+	    }
+	}
+
+	Location pollMessage() {
+	    synchronized (messages) {
+		return messages.pollFirst();
+	    }
+	}
+    }
+}
@@ -0,0 +1,108 @@
+package org.roach.intelligentagents.model.strategy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.model.Location;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy.Mailbox;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class MailboxTest {
+
+    private static final Predicate<Location> NONE = l -> false;
+
+    /**
+     *
+     */
+    @Test
+    public void testPostDeduplicatesByLocation() {
+	Mailbox mailbox = new Mailbox(20);
+	mailbox.postMessage(new Location(3, 4));
+	mailbox.postMessage(new Location(3, 4));
+	mailbox.postMessage(new Location(4, 3));
+	assertEquals(new Location(3, 4), mailbox.claimNear(0, 3, 4, 5, NONE).location());
+	assertEquals(new Location(4, 3), mailbox.claimNear(0, 3, 4, 5, NONE).location());
+	assertNull(mailbox.claimNear(0, 3, 4, 5, NONE));
+	assertFalse(mailbox.messagesExist());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testLocationCanBePostedAgainOnceTaken() {
+	Mailbox mailbox = new Mailbox(20);
+	mailbox.postMessage(new Location(1, 1));
+	assertNotNull(mailbox.claimNear(0, 1, 1, 0, NONE));
+	mailbox.postMessage(new Location(1, 1));
+	assertTrue(mailbox.messagesExist());
+	assertNotNull(mailbox.claimNear(0, 1, 1, 0, NONE));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testClaimNearTakesNearestInReach() {
+	Mailbox mailbox = new Mailbox(100);
+	mailbox.postMessage(new Location(0, 0));
+	mailbox.postMessage(new Location(10, 10));
+	mailbox.postMessage(new Location(14, 13));
+	mailbox.postMessage(new Location(50, 50));
+	assertNull(mailbox.claimNear(0, 20, 20, 5, NONE));
+	assertEquals(new Location(10, 10),
+		mailbox.claimNear(0, 12, 12, 12, l -> l.equals(new Location(14, 13))).location());
+	assertEquals(new Location(14, 13), mailbox.claimNear(0, 12, 12, 12, NONE).location());
+	assertNull(mailbox.claimNear(0, 12, 12, 12, NONE));
+	assertEquals(new Location(50, 50), mailbox.claimNear(0, 99, 99, 100, NONE).location());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testConcurrentPostsQueueEachLocationOnce() throws InterruptedException {
+	Mailbox mailbox = new Mailbox(500);
+	Thread[] threads = new Thread[4];
+	for (int t = 0; t < threads.length; t++) {
+	    threads[t] = new Thread(() -> {
+		for (int i = 0; i < 10_000; i++)
+		    mailbox.postMessage(new Location(i % 500, 0));
+	    });
+	    threads[t].start();
+	}
+	for (Thread t : threads)
+	    t.join();
+	Set<Location> seen = new HashSet<>();
+	for (Mailbox.MailMessage m = mailbox.claimNear(0, 0, 0, 1000, NONE); m != null; m = mailbox.claimNear(0, 0, 0,
+		1000, NONE))
+	    assertTrue(seen.add(m.location()), "queued twice: " + m.location());
+	assertEquals(500, seen.size());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testClaimsApplyAfterSensePhase() {
+	Mailbox mailbox = new Mailbox(20);
+	mailbox.reserve(1);
+	mailbox.postMessage(new Location(2, 2));
+	mailbox.postMessage(new Location(5, 5));
+	mailbox.beginSensePhase();
+	assertEquals(new Location(2, 2), mailbox.claimNear(0, 2, 2, 3, NONE).location());
+	assertEquals(new Location(2, 2), mailbox.claimNear(1, 2, 2, 3, NONE).location()); // Both see it
+	assertEquals(new Location(5, 5), mailbox.claimNear(1, 5, 5, 3, NONE).location());
+	mailbox.postMessage(1, new Location(5, 5)); // Putting it back cancels the claim
+	mailbox.applyIntents();
+	assertNull(mailbox.claimNear(0, 2, 2, 3, NONE));
+	assertEquals(new Location(5, 5), mailbox.claimNear(0, 5, 5, 3, NONE).location());
+    }
+}
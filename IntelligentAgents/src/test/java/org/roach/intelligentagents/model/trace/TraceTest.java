@@ -0,0 +1,169 @@
+package org.roach.intelligentagents.model.trace;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.AgentAppOpts;
+import org.roach.intelligentagents.model.AgentFactory;
+import org.roach.intelligentagents.model.SimulationGrid;
+import org.roach.intelligentagents.model.Task;
+import org.roach.intelligentagents.model.engine.ParallelTickEngine;
+import org.roach.intelligentagents.model.engine.RecordingTickEngine;
+import org.roach.intelligentagents.model.engine.ReplayTickEngine;
+import org.roach.intelligentagents.model.engine.SequentialTickEngine;
+import org.roach.intelligentagents.model.engine.TickEngine;
+import org.roach.intelligentagents.model.metrics.SimMetrics;
+import org.roach.intelligentagents.model.strategy.AgentStrategy;
+import org.roach.intelligentagents.model.strategy.FinderDoerStrategy;
+import org.roach.intelligentagents.model.strategy.MailboxStrategy;
+import org.roach.intelligentagents.model.strategy.PrioritizingStrategy;
+import org.roach.intelligentagents.model.strategy.SearchStrategy;
+import org.roach.intelligentagents.view.swing.FrameSnapshot;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class TraceTest {
+
+    private static SimulationGrid newGrid(Class<? extends AgentStrategy> strategy) {
+	SimulationGrid simGrid = new SimulationGrid(60, 400, 12, 5L);
+	simGrid.initTaskGrid();
+	AgentFactory factory = new AgentFactory();
+	factory.setSimGrid(simGrid);
+	factory.setNumAgents(150);
+	factory.setOptions(new AgentAppOpts());
+	factory.setStrategyType(strategy);
+	simGrid.setAgents(factory.build());
+	return simGrid;
+    }
+
+    /**
+     * What a frame shows of the grid, and the name of every agent's state.
+     */
+    private static String frame(SimulationGrid simGrid) {
+	FrameSnapshot s = FrameSnapshot.capture(simGrid, 0);
+	StringBuilder sb = new StringBuilder().append(simGrid.getNumTasksComplete());
+	for (int i = 0; i < s.numAgents(); i++)
+	    sb.append(' ').append(s.agentX(i)).append(',').append(s.agentY(i)).append(',')
+		    .append(Integer.toHexString(s.agentRgb(i))).append(',').append(s.commRadius(i)).append(',')
+		    .append(s.gotoTarget(i)).append(simGrid.getAgents().get(i).getStrategy().getState().getName());
+	for (int i = 0; i < s.numTasks(); i++)
+	    sb.append(s.taskPrio(i));
+	return sb.toString();
+    }
+
+    private static List<String> record(Path file, SimulationGrid simGrid, TickEngine engine, int ticks)
+	    throws IOException {
+	List<String> frames = new ArrayList<>();
+	frames.add(frame(simGrid));
+	TickEngine recording = new RecordingTickEngine(engine, simGrid, new TraceRecorder(file, simGrid, 7));
+	for (int i = 0; i < ticks; i++) {
+	    recording.tick(simGrid);
+	    frames.add(frame(simGrid));
+	}
+	recording.shutdown();
+	return frames;
+    }
+
+    private static List<String> replay(Path file) throws IOException {
+	ReplayTickEngine replay = ReplayTickEngine.open(file);
+	assertEquals(7, replay.getStartTick());
+	SimulationGrid simGrid = replay.getSimGrid();
+	List<String> frames = new ArrayList<>();
+	frames.add(frame(simGrid));
+	while (!replay.isFinished()) {
+	    replay.tick(simGrid);
+	    frames.add(frame(simGrid));
+	}
+	replay.shutdown();
+	return frames;
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testReplayShowsTheRecordedRun() throws IOException {
+	Path file = Files.createTempFile("sim", ".trace");
+	try {
+	    for (Class<? extends AgentStrategy> strategy : List.of(MailboxStrategy.class, PrioritizingStrategy.class,
+		    FinderDoerStrategy.class, SearchStrategy.class)) {
+		List<String> expected = record(file, newGrid(strategy), new SequentialTickEngine(), 150);
+		assertEquals(expected, replay(file), strategy.getSimpleName());
+	    }
+	    List<String> expected = record(file, newGrid(PrioritizingStrategy.class), new ParallelTickEngine(2), 150);
+	    assertEquals(expected, replay(file));
+	} finally {
+	    Files.deleteIfExists(file);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testTraceHoldsEveryExecutionAndBroadcast() throws IOException {
+	Path file = Files.createTempFile("sim", ".trace");
+	try {
+	    SimulationGrid simGrid = newGrid(PrioritizingStrategy.class);
+	    SimMetrics metrics = new SimMetrics();
+	    simGrid.setMetrics(metrics);
+	    record(file, simGrid, new SequentialTickEngine(), 200);
+	    metrics.endTick(0, 0, 0, simGrid.getAgents());
+	    long[] counts = new long[3];
+	    try (TraceReader reader = new TraceReader(file)) {
+		assertEquals(60, reader.getGridSize());
+		assertEquals(150, reader.getNumAgents());
+		assertEquals(400, reader.getTaskLocations().length);
+		TraceVisitor visitor = new TraceVisitor() {
+		    @Override
+		    public void taskExecuted(int task) {
+			counts[0]++;
+		    }
+
+		    @Override
+		    public void broadcast(int sender, int fromX, int fromY, int radius, int taskX, int taskY,
+			    int receivers) {
+			counts[1]++;
+			counts[2] += receivers;
+		    }
+		};
+		while (reader.readFrame(visitor))
+		    assertTrue(reader.getTick() <= 207);
+		assertEquals(207, reader.getTick());
+	    }
+	    assertEquals(simGrid.getTaskList().stream().mapToLong(Task::getPrio).sum(), counts[0]);
+	    assertTrue(counts[1] > 0);
+	    assertEquals(metrics.getTotal(SimMetrics.Counter.MESSAGES_SENT), counts[1]);
+	    assertEquals(metrics.getTotal(SimMetrics.Counter.MESSAGES_RECEIVED), counts[2]);
+	} finally {
+	    Files.deleteIfExists(file);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testTraceCutShortEndsWithLastWholeTick() throws IOException {
+	Path file = Files.createTempFile("sim", ".trace");
+	try {
+	    List<String> expected = record(file, newGrid(MailboxStrategy.class), new SequentialTickEngine(), 50);
+	    byte[] bytes = Files.readAllBytes(file);
+	    Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+	    assertEquals(expected.subList(0, 50), replay(file));
+	    Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+	    assertThrows(IOException.class, () -> ReplayTickEngine.open(file));
+	} finally {
+	    Files.deleteIfExists(file);
+	}
+    }
+}
@@ -0,0 +1,124 @@
+package org.roach.intelligentagents.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.roach.intelligentagents.controller.AgentApp;
+
+/**
+ * @author Larry S. Roach
+ *
+ */
+public class AAnimatorTest {
+
+    /** Counts ticks instead of running a simulation. */
+    private static final class CountingAnimator extends AAnimator {
+	final AtomicInteger ticks = new AtomicInteger();
+	final AtomicInteger singles = new AtomicInteger();
+
+	CountingAnimator() {
+	    super(new AgentApp());
+	}
+
+	@Override
+	protected void tick(final boolean single) {
+	    ticks.incrementAndGet();
+	    if (single)
+		singles.incrementAndGet();
+	}
+
+	Thread thread() {
+	    return animatorThread;
+	}
+    }
+
+    private static void stop(CountingAnimator animator) throws InterruptedException {
+	animator.isRunning = false;
+	animator.wake();
+	if (animator.thread() != null)
+	    animator.thread().join(5000);
+    }
+
+    private static void awaitParked(Thread t) throws InterruptedException {
+	for (int i = 0; i < 500 && t.getState() != Thread.State.WAITING
+		&& t.getState() != Thread.State.TIMED_WAITING; i++)
+	    Thread.sleep(10);
+	assertTrue(t.getState() == Thread.State.WAITING || t.getState() == Thread.State.TIMED_WAITING,
+		t.getState().toString());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testPausedSimulationParks() throws InterruptedException {
+	CountingAnimator animator = new CountingAnimator();
+	try {
+	    animator.pause();
+	    animator.startSim();
+	    awaitParked(animator.thread());
+	    int before = animator.ticks.get();
+	    Thread.sleep(100);
+	    assertEquals(before, animator.ticks.get());
+	    animator.unpause();
+	    for (int i = 0; i < 500 && animator.ticks.get() == before; i++)
+		Thread.sleep(10);
+	    assertTrue(animator.ticks.get() > before);
+	} finally {
+	    stop(animator);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testStepsRunOneTickEachWhilePaused() throws InterruptedException {
+	CountingAnimator animator = new CountingAnimator();
+	try {
+	    animator.setTickMode(TickMode.SINGLE_STEP);
+	    animator.startSim();
+	    awaitParked(animator.thread());
+	    for (int i = 0; i < 3; i++)
+		animator.step();
+	    for (int i = 0; i < 500 && animator.ticks.get() < 3; i++)
+		Thread.sleep(10);
+	    awaitParked(animator.thread());
+	    assertEquals(3, animator.ticks.get());
+	    assertEquals(3, animator.singles.get());
+	    animator.setTickMode(TickMode.MAX_SPEED);
+	    animator.pause();
+	    awaitParked(animator.thread());
+	    int before = animator.ticks.get();
+	    animator.step();
+	    for (int i = 0; i < 500 && animator.ticks.get() == before; i++)
+		Thread.sleep(10);
+	    awaitParked(animator.thread());
+	    assertEquals(before + 1, animator.ticks.get());
+	} finally {
+	    stop(animator);
+	}
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testFixedRateIsThrottled() throws InterruptedException {
+	CountingAnimator animator = new CountingAnimator();
+	try {
+	    animator.setTicksPerSecond(50);
+	    assertEquals(TickMode.FIXED_RATE, animator.getTickMode());
+	    animator.startSim();
+	    Thread.sleep(500);
+	    int ticks = animator.ticks.get();
+	    assertTrue(ticks >= 5 && ticks <= 40, "ticks: " + ticks);
+	    animator.setTicksPerSecond(0);
+	    assertEquals(TickMode.MAX_SPEED, animator.getTickMode());
+	} finally {
+	    stop(animator);
+	}
+    }
+}